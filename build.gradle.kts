@@ -47,7 +47,10 @@ protobuf.protoc {
 
 /* Testing */
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        // Benchmarks are slow and start thousands of threads, run them with the benchmark task.
+        excludeTags("benchmark")
+    }
     testLogging {
         events = setOf(
             TestLogEvent.FAILED,
@@ -57,6 +60,19 @@ tasks.test {
     }
 }
 
+tasks.register<Test>("benchmark") {
+    description = "Runs the tests tagged as benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging {
+        showStandardStreams = true
+    }
+}
+
 /* Test Reporting */
 jacoco.toolVersion = libs.versions.jacoco.get()
 tasks.jacocoTestReport {
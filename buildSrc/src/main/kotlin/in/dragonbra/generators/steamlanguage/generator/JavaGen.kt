@@ -134,7 +134,11 @@ class JavaGen(
             }
         } else if (node is EnumNode) {
             if ("flags" == (node as EnumNode).flags) {
+                writer?.writeln("import in.dragonbra.javasteam.util.IntEnumFlags;")
+                writer?.writeln()
                 writer?.writeln("import java.util.EnumSet;")
+            } else {
+                writer?.writeln("import in.dragonbra.javasteam.util.IntEnumLookup;")
             }
         }
     }
@@ -678,32 +682,27 @@ class JavaGen(
         writer?.writeln("}")
         writer?.writeln()
 
+        // the lookup tables are built once from values(), so from(code) neither copies nor scans the constants
+        val name = this.node.name
         if (flags) {
+            writer?.writeln(
+                "private static final IntEnumFlags<$name> FLAGS = IntEnumFlags.of($name.class, $name::code);"
+            )
+            writer?.writeln()
             writer?.writeln("public static EnumSet<${this.node.name}> from($type code) {")
-            writer?.writeln("    EnumSet<${this.node.name}> set = EnumSet.noneOf(${this.node.name}.class);")
-            writer?.writeln("    for (${this.node.name} e : ${this.node.name}.values()) {")
-            writer?.writeln("        if ((e.code & code) == e.code) {")
-            writer?.writeln("            set.add(e);")
-            writer?.writeln("        }")
-            writer?.writeln("    }")
-            writer?.writeln("    return set;")
+            writer?.writeln("    return FLAGS.decode(code);")
             writer?.writeln("}")
             writer?.writeln()
             writer?.writeln("public static $type code(EnumSet<${this.node.name}> flags) {")
-            writer?.writeln("    $type code = 0;")
-            writer?.writeln("    for (${this.node.name} flag : flags) {")
-            writer?.writeln("        code |= flag.code;")
-            writer?.writeln("    }")
-            writer?.writeln("    return code;")
+            writer?.writeln("    return ${if (type == "int") "" else "($type) "}FLAGS.encode(flags);")
             writer?.writeln("}")
         } else {
+            writer?.writeln(
+                "private static final IntEnumLookup<$name> LOOKUP = IntEnumLookup.of($name.class, $name::code);"
+            )
+            writer?.writeln()
             writer?.writeln("public static ${this.node.name} from($type code) {")
-            writer?.writeln("    for (${this.node.name} e : ${this.node.name}.values()) {")
-            writer?.writeln("        if (e.code == code) {")
-            writer?.writeln("            return e;")
-            writer?.writeln("        }")
-            writer?.writeln("    }")
-            writer?.writeln("    return null;")
+            writer?.writeln("    return LOOKUP.get(code);")
             writer?.writeln("}")
         }
     }
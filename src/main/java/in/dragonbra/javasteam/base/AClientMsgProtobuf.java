@@ -8,7 +8,6 @@ import in.dragonbra.javasteam.types.SteamID;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 /**
@@ -32,7 +31,11 @@ public class AClientMsgProtobuf extends MsgBase<MsgHdrProtoBuf> {
             logger.debug("ClientMsgProtobuf used for non-proto message!");
         }
 
-        deserialize(msg.getData());
+        if (msg instanceof PacketClientMsgProtobuf) {
+            setHeader(((PacketClientMsgProtobuf) msg).copyHeader());
+        } else {
+            deserialize(msg.getData());
+        }
     }
 
     private AClientMsgProtobuf() {
@@ -123,8 +126,8 @@ public class AClientMsgProtobuf extends MsgBase<MsgHdrProtoBuf> {
 
     @Override
     public void deserialize(byte[] data) {
-        try(var bais = new ByteArrayInputStream(data)) {
-            getHeader().deserialize(bais);
+        try {
+            PacketClientMsgProtobuf.readHeader(data, getHeader());
         } catch (IOException e) {
             logger.debug(e);
         }
@@ -13,8 +13,6 @@ import in.dragonbra.javasteam.util.stream.SeekOrigin;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 /**
  * Represents a protobuf backed game coordinator message.
@@ -64,17 +62,11 @@ public class ClientGCMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyT
      * @param eMsg           The network message type this client message represents.
      * @param payloadReserve The number of bytes to initialize the payload capacity to.
      */
-    @SuppressWarnings("unchecked")
     public ClientGCMsgProtobuf(Class<? extends AbstractMessage> clazz, int eMsg, int payloadReserve) {
         super(MsgGCHdrProtoBuf.class, payloadReserve);
         this.clazz = clazz;
 
-        try {
-            final Method m = clazz.getMethod("newBuilder");
-            body = (BodyType) m.invoke(null);
-        } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            logger.debug(e);
-        }
+        body = MessageBuilders.newBuilder(clazz);
 
         getHeader().setEMsg(eMsg);
     }
@@ -160,7 +152,6 @@ public class ClientGCMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyT
         return new byte[0];
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void deserialize(byte[] data) {
         if (data == null) {
@@ -169,12 +160,11 @@ public class ClientGCMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyT
 
         try (var ms = new BinaryReader(new ByteArrayInputStream(data))) {
             getHeader().deserialize(ms);
-            final Method m = clazz.getMethod("newBuilder");
-            body = (BodyType) m.invoke(null);
+            body = MessageBuilders.newBuilder(clazz);
             body.mergeFrom(ms);
             payload.write(data, ms.getPosition(), ms.available());
             payload.seek(0, SeekOrigin.BEGIN);
-        } catch (IOException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+        } catch (IOException e) {
             logger.debug(e);
         }
     }
@@ -6,14 +6,9 @@ import in.dragonbra.javasteam.enums.EMsg;
 import in.dragonbra.javasteam.generated.MsgHdrProtoBuf;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
-import in.dragonbra.javasteam.util.stream.BinaryReader;
-import in.dragonbra.javasteam.util.stream.SeekOrigin;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 /**
  * Represents a protobuf backed client message.
@@ -40,7 +35,15 @@ public class ClientMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyTyp
         if (!msg.isProto()) {
             logger.debug("ClientMsgProtobuf<" + clazz.getSimpleName() + "> used for non-proto message!");
         }
-        deserialize(msg.getData());
+
+        if (msg instanceof PacketClientMsgProtobuf) {
+            // the packet already decoded the header, only the body is left to parse
+            var packetMsg = (PacketClientMsgProtobuf) msg;
+            setHeader(packetMsg.copyHeader());
+            deserializeBody(packetMsg.getData(), packetMsg.getBodyOffset());
+        } else {
+            deserialize(msg.getData());
+        }
     }
 
     /**
@@ -74,17 +77,11 @@ public class ClientMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyTyp
      * @param eMsg           The network message type this client message represents.
      * @param payloadReserve The number of bytes to initialize the payload capacity to.
      */
-    @SuppressWarnings("unchecked")
     public ClientMsgProtobuf(Class<? extends AbstractMessage> clazz, EMsg eMsg, int payloadReserve) {
         super(payloadReserve);
         this.clazz = clazz;
 
-        try {
-            final Method m = clazz.getMethod("newBuilder");
-            body = (BodyType) m.invoke(null);
-        } catch (IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            logger.debug(e);
-        }
+        body = MessageBuilders.newBuilder(clazz);
 
         getHeader().setEMsg(eMsg);
     }
@@ -147,28 +144,35 @@ public class ClientMsgProtobuf<BodyType extends GeneratedMessage.Builder<BodyTyp
         return new byte[0];
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void deserialize(byte[] data) {
         if (data == null) {
             throw new IllegalArgumentException("data is null");
         }
-        BinaryReader ms = new BinaryReader(new ByteArrayInputStream(data));
 
         try {
-            getHeader().deserialize(ms);
-            final Method m = clazz.getMethod("newBuilder");
-            body = (BodyType) m.invoke(null);
-            body.mergeFrom(ms);
-            payload.write(data, ms.getPosition(), ms.available());
-            payload.seek(0, SeekOrigin.BEGIN);
-        } catch (IOException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            int bodyOffset = PacketClientMsgProtobuf.readHeader(data, getHeader());
+            deserializeBody(data, bodyOffset);
+        } catch (IOException e) {
             logger.debug(e);
         }
+    }
 
-        // TODO can be MemoryStream?
+    /**
+     * Parses the body straight from the message data. The body runs to the end of the message, so nothing is
+     * left over for the payload.
+     *
+     * @param data       The message data.
+     * @param bodyOffset The offset of the body within the data.
+     */
+    private void deserializeBody(byte[] data, int bodyOffset) {
         try {
-            ms.close();
+            if (body == null) {
+                body = MessageBuilders.newBuilder(clazz);
+            } else {
+                body.clear();
+            }
+            body.mergeFrom(data, bodyOffset, data.length - bodyOffset);
         } catch (IOException e) {
             logger.debug(e);
         }
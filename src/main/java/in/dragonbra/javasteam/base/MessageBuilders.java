@@ -0,0 +1,55 @@
+package in.dragonbra.javasteam.base;
+
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.Message;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates builders for protobuf message classes. The default instance of each class is looked up reflectively the
+ * first time the class is used, after that a builder is a plain virtual call on the cached default instance.
+ */
+final class MessageBuilders {
+
+    private static final Map<Class<?>, Message> DEFAULT_INSTANCES = new ConcurrentHashMap<>();
+
+    private MessageBuilders() {
+    }
+
+    /**
+     * Gets the default instance of a protobuf message class.
+     *
+     * @param clazz the message class
+     * @return the default instance
+     * @throws IllegalArgumentException if the class isn't a generated protobuf message
+     */
+    static Message getDefaultInstance(Class<? extends AbstractMessage> clazz) {
+        Message instance = DEFAULT_INSTANCES.get(clazz);
+
+        if (instance == null) {
+            try {
+                instance = (Message) clazz.getMethod("getDefaultInstance").invoke(null);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException(clazz.getName() + " is not a generated protobuf message", e);
+            }
+
+            DEFAULT_INSTANCES.putIfAbsent(clazz, instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Creates an empty builder for a protobuf message class.
+     *
+     * @param clazz     the message class
+     * @param <Builder> the builder type of the message class
+     * @return a new builder
+     * @throws IllegalArgumentException if the class isn't a generated protobuf message
+     */
+    @SuppressWarnings("unchecked")
+    static <Builder extends Message.Builder> Builder newBuilder(Class<? extends AbstractMessage> clazz) {
+        return (Builder) getDefaultInstance(clazz).newBuilderForType();
+    }
+}
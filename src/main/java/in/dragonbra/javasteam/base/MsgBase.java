@@ -49,4 +49,13 @@ public abstract class MsgBase<HdrType extends ISteamSerializable> extends Abstra
     public HdrType getHeader() {
         return header;
     }
+
+    /**
+     * Replaces the header, so a received message can take a copy of the header already decoded by its packet.
+     *
+     * @param header the header for this message.
+     */
+    void setHeader(HdrType header) {
+        this.header = header;
+    }
 }
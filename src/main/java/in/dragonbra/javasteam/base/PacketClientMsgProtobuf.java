@@ -1,22 +1,35 @@
 package in.dragonbra.javasteam.base;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import in.dragonbra.javasteam.enums.EMsg;
 import in.dragonbra.javasteam.generated.MsgHdrProtoBuf;
+import in.dragonbra.javasteam.util.MsgUtil;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Represents a protobuf backed packet message.
+ * The header is decoded once when the packet is received and copied to the client messages built from it,
+ * the body is left in place in the packet data until a handler parses it.
  */
 public class PacketClientMsgProtobuf implements IPacketMsg {
 
+    /**
+     * Size of the fixed part of the header: the EMsg followed by the length of the protobuf header.
+     */
+    static final int FIXED_HEADER_SIZE = 8;
+
     private final EMsg msgType;
 
     private final byte[] payload;
 
     private final MsgHdrProtoBuf header;
 
+    private final int bodyOffset;
+
     /**
      * Initializes a new instance of the {@link PacketClientMsgProtobuf} class.
      *
@@ -29,10 +42,34 @@ public class PacketClientMsgProtobuf implements IPacketMsg {
         this.payload = data;
 
         header = new MsgHdrProtoBuf();
+        bodyOffset = readHeader(data, header);
+    }
+
+    /**
+     * Decodes the header in place from the start of the data.
+     *
+     * @param data   The message data.
+     * @param header The header to fill.
+     * @return The offset of the body within the data.
+     * @throws IOException if the data doesn't hold a complete header.
+     */
+    static int readHeader(byte[] data, MsgHdrProtoBuf header) throws IOException {
+        if (data.length < FIXED_HEADER_SIZE) {
+            throw new IOException("message is too short to hold a protobuf header");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = buffer.getInt(4);
 
-        try (var stream = new ByteArrayInputStream(data)) {
-            header.deserialize(stream);
+        if (headerLength < 0 || headerLength > data.length - FIXED_HEADER_SIZE) {
+            throw new IOException("protobuf header length " + headerLength + " exceeds the message");
         }
+
+        header.setMsg(MsgUtil.getMsg(buffer.getInt(0)));
+        header.setHeaderLength(headerLength);
+        header.getProto().clear().mergeFrom(data, FIXED_HEADER_SIZE, headerLength);
+
+        return FIXED_HEADER_SIZE + headerLength;
     }
 
     /**
@@ -44,6 +81,38 @@ public class PacketClientMsgProtobuf implements IPacketMsg {
         return header;
     }
 
+    /**
+     * Copies the decoded header for a client message built from this packet, so messages wrapping the same packet
+     * can't change each other's header. The fields are copied, not parsed again.
+     *
+     * @return A copy of the header.
+     */
+    MsgHdrProtoBuf copyHeader() {
+        var copy = new MsgHdrProtoBuf();
+        copy.setMsg(header.getMsg());
+        copy.setHeaderLength(header.getHeaderLength());
+        copy.setProto(header.getProto().clone());
+        return copy;
+    }
+
+    /**
+     * Gets the offset of the protobuf body within {@link #getData()}.
+     *
+     * @return The body offset.
+     */
+    public int getBodyOffset() {
+        return bodyOffset;
+    }
+
+    /**
+     * Gets the protobuf body as a view of the packet data, without copying it.
+     *
+     * @return The body.
+     */
+    public ByteString getBody() {
+        return UnsafeByteOperations.unsafeWrap(payload, bodyOffset, payload.length - bodyOffset);
+    }
+
     @Override
     public boolean isProto() {
         return true;
@@ -68,6 +68,18 @@ public abstract class Connection {
      */
     public abstract void send(byte[] data);
 
+    /**
+     * Sends the specified data packet without waiting for room in a full outbound queue, for callers that must not
+     * block, like the heart beat. Connections whose {@link #send(byte[])} never waits send it as usual.
+     *
+     * @param data The data packet to send.
+     * @return false if the packet was dropped because the outbound queue was full.
+     */
+    public boolean trySend(byte[] data) {
+        send(data);
+        return true;
+    }
+
     /**
      * Gets the local IP.
      *
@@ -210,6 +210,15 @@ public class EnvelopeEncryptedConnection extends Connection {
         inner.send(data);
     }
 
+    @Override
+    public boolean trySend(byte[] data) {
+        if (state == EncryptionState.ENCRYPTED) {
+            data = encryption.processOutgoing(data);
+        }
+
+        return inner.trySend(data);
+    }
+
     @Override
     public InetAddress getLocalIP() {
         return inner.getLocalIP();
@@ -11,13 +11,19 @@ public interface IConnectionFactory {
 
     IConnectionFactory DEFAULT = (configuration, protocol) -> {
         if (protocol.contains(ProtocolTypes.WEB_SOCKET)) {
-            return new WebSocketConnection();
+            return new WebSocketConnection(configuration.getWebSocketClientEngine());
         }
         if (protocol.contains(ProtocolTypes.TCP)) {
-            return new EnvelopeEncryptedConnection(new TcpConnection(), configuration.getUniverse());
+            TcpEventLoopGroup eventLoopGroup = configuration.getTcpEventLoopGroup();
+            TcpSocketOptions socketOptions = configuration.getTcpSocketOptions();
+            Connection tcpConnection = eventLoopGroup != null
+                    ? new NioTcpConnection(eventLoopGroup, socketOptions)
+                    : new TcpConnection(socketOptions, configuration.getThreading());
+            return new EnvelopeEncryptedConnection(tcpConnection, configuration.getUniverse());
         }
         if (protocol.contains(ProtocolTypes.UDP)) {
-            return new EnvelopeEncryptedConnection(new UdpConnection(), configuration.getUniverse());
+            Connection udpConnection = new UdpConnection(configuration.getThreading());
+            return new EnvelopeEncryptedConnection(udpConnection, configuration.getUniverse());
         }
         return null;
     };
@@ -1,10 +1,12 @@
 package in.dragonbra.javasteam.networking.steam3;
 
 import in.dragonbra.javasteam.util.crypto.CryptoException;
-import in.dragonbra.javasteam.util.crypto.CryptoHelper;
+import in.dragonbra.javasteam.util.crypto.SessionCipher;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
 
+import java.security.SecureRandom;
+
 /**
  * @author lngtr
  * @since 2018-02-24
@@ -13,19 +15,31 @@ public class NetFilterEncryption implements INetFilterEncryption {
 
     private static final Logger logger = LogManager.getLogger(NetFilterEncryption.class);
 
-    private final byte[] sessionKey;
+    private final SessionCipher decryptor;
+
+    private final SessionCipher encryptor;
+
+    private final SecureRandom random = new SecureRandom();
 
     public NetFilterEncryption(byte[] sessionKey) {
         if (sessionKey.length != 32) {
             logger.debug("AES session key was not 32 bytes!");
         }
-        this.sessionKey = sessionKey;
+
+        try {
+            decryptor = SessionCipher.forDecryption(sessionKey);
+            encryptor = SessionCipher.forEncryption(sessionKey);
+        } catch (CryptoException e) {
+            throw new IllegalStateException("Unable to set up the session ciphers", e);
+        }
     }
 
     @Override
     public byte[] processIncoming(byte[] data) {
         try {
-            return CryptoHelper.symmetricDecrypt(data, sessionKey);
+            synchronized (decryptor) {
+                return decryptor.decrypt(data);
+            }
         } catch (CryptoException e) {
             throw new IllegalStateException("Unable to decrypt incoming packet", e);
         }
@@ -33,8 +47,13 @@ public class NetFilterEncryption implements INetFilterEncryption {
 
     @Override
     public byte[] processOutgoing(byte[] data) {
+        byte[] iv = new byte[SessionCipher.IV_LENGTH];
+        random.nextBytes(iv);
+
         try {
-            return CryptoHelper.symmetricEncrypt(data, sessionKey);
+            synchronized (encryptor) {
+                return encryptor.encrypt(data, iv);
+            }
         } catch (CryptoException e) {
             throw new IllegalStateException("Unable to encrypt outgoing packet", e);
         }
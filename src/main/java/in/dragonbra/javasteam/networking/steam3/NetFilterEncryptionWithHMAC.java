@@ -1,10 +1,17 @@
 package in.dragonbra.javasteam.networking.steam3;
 
 import in.dragonbra.javasteam.util.crypto.CryptoException;
-import in.dragonbra.javasteam.util.crypto.CryptoHelper;
+import in.dragonbra.javasteam.util.crypto.SessionCipher;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
 
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
 /**
  * @author lngtr
  * @since 2018-02-24
@@ -13,32 +20,92 @@ public class NetFilterEncryptionWithHMAC implements INetFilterEncryption {
 
     private static final Logger logger = LogManager.getLogger(NetFilterEncryptionWithHMAC.class);
 
-    private final byte[] sessionKey;
-    private final byte[] hmacSecret;
+    /**
+     * The IV is HMAC-SHA1(Random(3) + Plaintext) truncated to 13 bytes, followed by the 3 random bytes.
+     */
+    private static final int RANDOM_LENGTH = 3;
+
+    private static final int HMAC_LENGTH = SessionCipher.IV_LENGTH - RANDOM_LENGTH;
+
+    private final SessionCipher decryptor;
+
+    private final SessionCipher encryptor;
+
+    private final Mac incomingMac;
+
+    private final Mac outgoingMac;
+
+    private final byte[] incomingHash;
+
+    private final byte[] outgoingHash;
+
+    private final SecureRandom random = new SecureRandom();
 
     public NetFilterEncryptionWithHMAC(byte[] sessionKey) {
         if (sessionKey.length != 32) {
             logger.debug("AES session key was not 32 bytes!");
         }
-        this.sessionKey = sessionKey;
-        this.hmacSecret = new byte[16];
+
+        byte[] hmacSecret = new byte[16];
         System.arraycopy(sessionKey, 0, hmacSecret, 0, hmacSecret.length);
+
+        try {
+            decryptor = SessionCipher.forDecryption(sessionKey);
+            encryptor = SessionCipher.forEncryption(sessionKey);
+
+            SecretKeySpec macKey = new SecretKeySpec(hmacSecret, "HmacSHA1");
+            incomingMac = Mac.getInstance("HmacSHA1");
+            incomingMac.init(macKey);
+            outgoingMac = Mac.getInstance("HmacSHA1");
+            outgoingMac.init(macKey);
+        } catch (CryptoException | NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Unable to set up the session ciphers", e);
+        }
+
+        incomingHash = new byte[incomingMac.getMacLength()];
+        outgoingHash = new byte[outgoingMac.getMacLength()];
     }
 
     @Override
     public byte[] processIncoming(byte[] data) {
         try {
-            return CryptoHelper.symmetricDecryptHMACIV(data, sessionKey, hmacSecret);
-        } catch (CryptoException e) {
+            synchronized (decryptor) {
+                byte[] plaintext = decryptor.decrypt(data);
+                byte[] iv = decryptor.getLastIV();
+
+                incomingMac.update(iv, HMAC_LENGTH, RANDOM_LENGTH);
+                incomingMac.update(plaintext);
+                incomingMac.doFinal(incomingHash, 0);
+
+                for (int i = 0; i < HMAC_LENGTH; i++) {
+                    if (incomingHash[i] != iv[i]) {
+                        throw new CryptoException("NetFilterEncryption was unable to decrypt packet: HMAC from server did not match computed HMAC.");
+                    }
+                }
+
+                return plaintext;
+            }
+        } catch (CryptoException | ShortBufferException e) {
             throw new IllegalStateException("Unable to decrypt incoming packet", e);
         }
     }
 
     @Override
     public byte[] processOutgoing(byte[] data) {
+        byte[] iv = new byte[SessionCipher.IV_LENGTH];
+        random.nextBytes(iv);
+
         try {
-            return CryptoHelper.symmetricEncryptWithHMACIV(data, sessionKey, hmacSecret);
-        } catch (CryptoException e) {
+            synchronized (encryptor) {
+                outgoingMac.update(iv, HMAC_LENGTH, RANDOM_LENGTH);
+                outgoingMac.update(data);
+                outgoingMac.doFinal(outgoingHash, 0);
+
+                System.arraycopy(outgoingHash, 0, iv, 0, HMAC_LENGTH);
+
+                return encryptor.encrypt(data, iv);
+            }
+        } catch (CryptoException | ShortBufferException e) {
             throw new IllegalStateException("Unable to encrypt outgoing packet", e);
         }
     }
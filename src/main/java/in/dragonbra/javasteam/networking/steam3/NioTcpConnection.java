@@ -0,0 +1,333 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import in.dragonbra.javasteam.util.NetHelpers;
+import in.dragonbra.javasteam.util.log.LogManager;
+import in.dragonbra.javasteam.util.log.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A TCP connection that is driven by a shared {@link TcpEventLoopGroup} instead of a dedicated polling thread.
+ * Frames are dispatched as soon as they are fully received.
+ */
+public class NioTcpConnection extends Connection implements TcpEventLoopGroup.Handler {
+
+    private static final Logger logger = LogManager.getLogger(NioTcpConnection.class);
+
+    private static final int MAGIC = TcpOutboundQueue.MAGIC;
+
+    private static final int HEADER_SIZE = TcpOutboundQueue.HEADER_SIZE;
+
+    private static final int MAX_PACKET_LENGTH = TcpOutboundQueue.MAX_PACKET_LENGTH;
+
+    /**
+     * Maximum number of reads done for a single connection per selector wake up, so a busy connection can't
+     * starve the others on the same loop.
+     */
+    private static final int MAX_READS_PER_EVENT = 16;
+
+    private final TcpEventLoopGroup group;
+
+    private final TcpSocketOptions socketOptions;
+
+    private volatile TcpEventLoopGroup.EventLoop loop;
+
+    private volatile SocketChannel channel;
+
+    private SelectionKey key;
+
+    private InetSocketAddress currentEndPoint;
+
+    private final Object netLock = new Object();
+
+    private final AtomicBoolean released = new AtomicBoolean(true);
+
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] body;
+
+    private int bodyPosition;
+
+    private final TcpOutboundQueue outbound = new TcpOutboundQueue();
+
+    public NioTcpConnection() {
+        this(TcpEventLoopGroup.getDefault());
+    }
+
+    public NioTcpConnection(TcpEventLoopGroup group) {
+        this(group, TcpSocketOptions.DEFAULT);
+    }
+
+    public NioTcpConnection(TcpEventLoopGroup group, TcpSocketOptions socketOptions) {
+        if (group == null) {
+            throw new IllegalArgumentException("group is null");
+        }
+        if (socketOptions == null) {
+            throw new IllegalArgumentException("socketOptions is null");
+        }
+        this.group = group;
+        this.socketOptions = socketOptions;
+    }
+
+    @Override
+    public void connect(InetSocketAddress endPoint, int timeout) {
+        synchronized (netLock) {
+            currentEndPoint = endPoint;
+
+            SocketChannel channel;
+            try {
+                logger.debug("Connecting to " + currentEndPoint + "...");
+                channel = SocketChannel.open();
+                socketOptions.apply(channel.socket());
+                // connecting in blocking mode keeps the timeout semantics of TcpConnection
+                channel.socket().connect(endPoint, timeout);
+                channel.configureBlocking(false);
+            } catch (IOException e) {
+                logger.debug("Socket exception while completing connection request to " + currentEndPoint, e);
+                onDisconnected(false);
+                return;
+            }
+
+            logger.debug("Connected to " + currentEndPoint);
+
+            this.channel = channel;
+            header.clear();
+            body = null;
+            outbound.clear();
+            released.set(false);
+            loop = group.next();
+        }
+
+        onConnected();
+
+        loop.execute(() -> {
+            try {
+                synchronized (netLock) {
+                    if (released.get()) {
+                        return;
+                    }
+                    int ops = SelectionKey.OP_READ;
+                    if (!outbound.isEmpty()) {
+                        ops |= SelectionKey.OP_WRITE;
+                    }
+                    key = loop.register(channel, ops, this);
+                }
+            } catch (IOException e) {
+                logger.debug("Exception while registering connection to " + currentEndPoint, e);
+                release(false);
+            }
+        });
+    }
+
+    @Override
+    public void disconnect(boolean userInitiated) {
+        TcpEventLoopGroup.EventLoop loop;
+        synchronized (netLock) {
+            loop = this.loop;
+        }
+
+        if (loop != null) {
+            loop.execute(() -> release(userInitiated));
+        }
+    }
+
+    @Override
+    public void send(byte[] data) {
+        TcpEventLoopGroup.EventLoop loop = this.loop;
+
+        if (loop == null || released.get()) {
+            logger.debug("Attempting to send client data when not connected.");
+            return;
+        }
+
+        if (outbound.offer(data)) {
+            loop.execute(this::onWritable);
+        }
+    }
+
+    @Override
+    public void onReadable(ByteBuffer readBuffer) {
+        for (int i = 0; i < MAX_READS_PER_EVENT; i++) {
+            SocketChannel channel = this.channel;
+            if (channel == null) {
+                return;
+            }
+
+            readBuffer.clear();
+
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                onError(e);
+                return;
+            }
+
+            if (read < 0) {
+                logger.debug("Connection closed by " + currentEndPoint);
+                release(false);
+                return;
+            }
+
+            if (read == 0) {
+                return;
+            }
+
+            readBuffer.flip();
+
+            try {
+                readFrames(readBuffer);
+            } catch (IOException e) {
+                onError(e);
+                return;
+            }
+        }
+    }
+
+    private void readFrames(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && !released.get()) {
+            if (body == null) {
+                while (header.hasRemaining() && buffer.hasRemaining()) {
+                    header.put(buffer.get());
+                }
+
+                if (header.hasRemaining()) {
+                    return;
+                }
+
+                header.flip();
+                int packetLen = header.getInt();
+                int packetMagic = header.getInt();
+                header.clear();
+
+                if (packetMagic != MAGIC) {
+                    throw new IOException("Got a packet with invalid magic!");
+                }
+
+                if (packetLen < 0) {
+                    throw new IOException("Got a packet with negative length!");
+                }
+
+                if (packetLen > MAX_PACKET_LENGTH) {
+                    throw new IOException("Got a packet of " + packetLen + " bytes, more than the maximum of "
+                            + MAX_PACKET_LENGTH + "!");
+                }
+
+                body = new byte[packetLen];
+                bodyPosition = 0;
+            }
+
+            int count = Math.min(buffer.remaining(), body.length - bodyPosition);
+            buffer.get(body, bodyPosition, count);
+            bodyPosition += count;
+
+            if (bodyPosition == body.length) {
+                byte[] packData = body;
+                body = null;
+
+                onNetMsgReceived(new NetMsgEventArgs(packData, currentEndPoint));
+            }
+        }
+    }
+
+    @Override
+    public void onWritable() {
+        outbound.beginDrain();
+
+        SocketChannel channel = this.channel;
+        SelectionKey key = this.key;
+
+        if (channel == null || released.get()) {
+            return;
+        }
+
+        try {
+            boolean drained = outbound.drainTo(channel);
+
+            if (key != null && key.isValid()) {
+                int ops = key.interestOps();
+                int wanted = drained ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE;
+                if (ops != wanted) {
+                    key.interestOps(wanted);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Socket exception while writing data.", e);
+
+            // looks like the only way to detect a closed connection is to try and write to it
+            release(false);
+        }
+    }
+
+    @Override
+    public void onError(IOException e) {
+        logger.debug("Socket exception occurred while reading packet", e);
+        release(false);
+    }
+
+    private void release(boolean userRequestedDisconnect) {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+
+        synchronized (netLock) {
+            if (loop != null) {
+                loop.deregister(key);
+            }
+            key = null;
+
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+
+            outbound.clear();
+            body = null;
+        }
+
+        onDisconnected(userRequestedDisconnect);
+    }
+
+    @Override
+    public InetAddress getLocalIP() {
+        synchronized (netLock) {
+            if (channel == null) {
+                return null;
+            }
+
+            try {
+                return NetHelpers.getLocalIP(channel.socket());
+            } catch (Exception e) {
+                logger.debug("Socket exception trying to read bound IP: ", e);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getCurrentEndPoint() {
+        return currentEndPoint;
+    }
+
+    @Override
+    public ProtocolTypes getProtocolTypes() {
+        return ProtocolTypes.TCP;
+    }
+
+    /**
+     * @return The event loop group this connection is multiplexed on.
+     */
+    public TcpEventLoopGroup getGroup() {
+        return group;
+    }
+}
@@ -1,15 +1,17 @@
 package in.dragonbra.javasteam.networking.steam3;
 
+import in.dragonbra.javasteam.steam.steamclient.ClientThreading;
 import in.dragonbra.javasteam.util.NetHelpers;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
 import in.dragonbra.javasteam.util.stream.BinaryReader;
-import in.dragonbra.javasteam.util.stream.BinaryWriter;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author lngtr
@@ -19,13 +21,22 @@ public class TcpConnection extends Connection {
 
     private static final Logger logger = LogManager.getLogger(TcpConnection.class);
 
-    private static final int MAGIC = 0x31305456; // "VT01"
+    private static final int MAGIC = TcpOutboundQueue.MAGIC;
 
-    private Socket socket;
+    private static final int MAX_PACKET_LENGTH = TcpOutboundQueue.MAX_PACKET_LENGTH;
+
+    private final TcpSocketOptions socketOptions;
+
+    private final ClientThreading threading;
+
+    private final TcpOutboundQueue outbound = new TcpOutboundQueue();
+
+    // read without the lock by send()
+    private volatile Socket socket;
 
     private InetSocketAddress currentEndPoint;
 
-    private BinaryWriter netWriter;
+    private OutputStream netWriter;
 
     private BinaryReader netReader;
 
@@ -34,7 +45,33 @@ public class TcpConnection extends Connection {
 
     private NetLoop netLoop;
 
-    private final Object netLock = new Object();
+    // locks instead of monitors, so a virtual thread blocked on the socket while holding one doesn't pin its carrier
+    private final ReentrantLock netLock = new ReentrantLock();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public TcpConnection() {
+        this(TcpSocketOptions.DEFAULT);
+    }
+
+    public TcpConnection(TcpSocketOptions socketOptions) {
+        this(socketOptions, ClientThreading.DEFAULT);
+    }
+
+    /**
+     * @param socketOptions the socket options to apply
+     * @param threading     creates the thread reading from the socket and runs the socket writes
+     */
+    public TcpConnection(TcpSocketOptions socketOptions, ClientThreading threading) {
+        if (socketOptions == null) {
+            throw new IllegalArgumentException("socketOptions is null");
+        }
+        if (threading == null) {
+            throw new IllegalArgumentException("threading is null");
+        }
+        this.socketOptions = socketOptions;
+        this.threading = threading;
+    }
 
     private void shutdown() {
         try {
@@ -57,14 +94,17 @@ public class TcpConnection extends Connection {
         logger.debug("Connected to " + currentEndPoint);
 
         try {
-            synchronized (netLock) {
+            netLock.lock();
+            try {
                 netReader = new BinaryReader(socket.getInputStream());
-                netWriter = new BinaryWriter(socket.getOutputStream());
+                netWriter = socket.getOutputStream();
 
                 netLoop = new NetLoop();
-                netThread = new Thread(netLoop, "TcpConnection Thread");
+                netThread = threading.newThread("TcpConnection Thread", netLoop);
 
                 currentEndPoint = new InetSocketAddress(socket.getInetAddress(), socket.getPort());
+            } finally {
+                netLock.unlock();
             }
 
             netThread.start();
@@ -77,7 +117,8 @@ public class TcpConnection extends Connection {
     }
 
     private void release(boolean userRequestedDisconnect) {
-        synchronized (netLock) {
+        netLock.lock();
+        try {
             if (netWriter != null) {
                 try {
                     netWriter.close();
@@ -86,6 +127,8 @@ public class TcpConnection extends Connection {
                 netWriter = null;
             }
 
+            outbound.clear();
+
             if (netReader != null) {
                 try {
                     netReader.close();
@@ -101,6 +144,8 @@ public class TcpConnection extends Connection {
                 }
                 socket = null;
             }
+        } finally {
+            netLock.unlock();
         }
 
         onDisconnected(userRequestedDisconnect);
@@ -108,11 +153,13 @@ public class TcpConnection extends Connection {
 
     @Override
     public void connect(InetSocketAddress endPoint, int timeout) {
-        synchronized (netLock) {
+        netLock.lock();
+        try {
             currentEndPoint = endPoint;
             try {
                 logger.debug("Connecting to " + currentEndPoint + "...");
                 socket = new Socket();
+                socketOptions.apply(socket);
                 socket.connect(endPoint, timeout);
 
                 connectionCompleted(true);
@@ -120,15 +167,20 @@ public class TcpConnection extends Connection {
                 logger.debug("Socket exception while completing connection request to " + currentEndPoint, e);
                 connectionCompleted(false);
             }
+        } finally {
+            netLock.unlock();
         }
     }
 
     @Override
     public void disconnect(boolean userInitiated) {
-        synchronized (netLock) {
+        netLock.lock();
+        try {
             if (netLoop != null) {
                 netLoop.stop(userInitiated);
             }
+        } finally {
+            netLock.unlock();
         }
     }
 
@@ -140,36 +192,77 @@ public class TcpConnection extends Connection {
             throw new IOException("Got a packet with invalid magic!");
         }
 
+        if (packetLen < 0 || packetLen > MAX_PACKET_LENGTH) {
+            throw new IOException("Got a packet with invalid length " + packetLen + "!");
+        }
+
         return netReader.readBytes(packetLen);
     }
 
     @Override
     public void send(byte[] data) {
-        synchronized (netLock) {
-            if (socket == null) {
-                logger.debug("Attempting to send client data when not connected.");
-                return;
-            }
+        if (socket == null) {
+            logger.debug("Attempting to send client data when not connected.");
+            return;
+        }
 
-            try {
-                netWriter.writeInt(data.length);
-                netWriter.writeInt(MAGIC);
-                netWriter.write(data);
-            } catch (IOException e) {
-                logger.debug("Socket exception while writing data.", e);
+        // the executor of the threading strategy drains the queue, so callers never block on the socket
+        if (outbound.offer(data)) {
+            threading.getExecutor().execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes everything queued so far. The write lock keeps a single writer per connection, so frames go out in
+     * the order they were queued.
+     */
+    private void flush() {
+        writeLock.lock();
+        try {
+            outbound.beginDrain();
+            drain();
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-                // looks like the only way to detect a closed connection is to try and write to it
-                // afaik read also throws an exception if the connection is open but there is nothing to read
+    private void drain() {
+        OutputStream writer;
+        netLock.lock();
+        try {
+            writer = netWriter;
+        } finally {
+            netLock.unlock();
+        }
+
+        if (writer == null) {
+            outbound.clear();
+            return;
+        }
+
+        try {
+            outbound.drainTo(writer);
+        } catch (IOException e) {
+            logger.debug("Socket exception while writing data.", e);
+            outbound.clear();
+
+            // looks like the only way to detect a closed connection is to try and write to it
+            // afaik read also throws an exception if the connection is open but there is nothing to read
+            netLock.lock();
+            try {
                 if (netLoop != null) {
                     netLoop.stop(false);
                 }
+            } finally {
+                netLock.unlock();
             }
         }
     }
 
     @Override
     public InetAddress getLocalIP() {
-        synchronized (netLock) {
+        netLock.lock();
+        try {
             if (socket == null) {
                 return null;
             }
@@ -180,6 +273,8 @@ public class TcpConnection extends Connection {
                 logger.debug("Socket exception trying to read bound IP: ", e);
                 return null;
             }
+        } finally {
+            netLock.unlock();
         }
     }
 
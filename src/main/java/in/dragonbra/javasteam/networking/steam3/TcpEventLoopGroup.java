@@ -0,0 +1,278 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import in.dragonbra.javasteam.util.log.LogManager;
+import in.dragonbra.javasteam.util.log.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed group of selector threads that multiplex the sockets of every {@link NioTcpConnection} assigned to it.
+ * One group is meant to be shared by all the clients running in the same JVM, so the number of network threads
+ * stays constant no matter how many connections are open.
+ */
+public final class TcpEventLoopGroup implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(TcpEventLoopGroup.class);
+
+    /**
+     * Size of the read buffer shared by all connections of a single event loop.
+     */
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final AtomicInteger GROUP_ID = new AtomicInteger();
+
+    private final EventLoop[] loops;
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Creates a new event loop group and starts its threads.
+     *
+     * @param threads The number of selector threads to start.
+     */
+    public TcpEventLoopGroup(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        int groupId = GROUP_ID.incrementAndGet();
+
+        loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            try {
+                loops[i] = new EventLoop("TcpEventLoop-" + groupId + "-" + i);
+            } catch (IOException e) {
+                for (int j = 0; j < i; j++) {
+                    loops[j].shutdown();
+                }
+                throw new IllegalStateException("couldn't open selector", e);
+            }
+        }
+
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Gets the process-wide event loop group, creating it on first use. It is sized to the number of available
+     * processors, capped at 4, and its threads are daemon threads that live for the rest of the process.
+     *
+     * @return The shared event loop group.
+     */
+    public static TcpEventLoopGroup getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return The number of selector threads in this group.
+     */
+    public int getThreadCount() {
+        return loops.length;
+    }
+
+    /**
+     * @return The number of connections currently registered with this group.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            count += loop.connections.get();
+        }
+        return count;
+    }
+
+    /**
+     * Picks the event loop for a new connection, round-robin.
+     */
+    EventLoop next() {
+        if (closed.get()) {
+            throw new IllegalStateException("event loop group is closed");
+        }
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Stops every selector thread in this group. Connections still registered are not notified.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            for (EventLoop loop : loops) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Receives readiness notifications from an {@link EventLoop}. Always called on the event loop thread.
+     */
+    interface Handler {
+        void onReadable(ByteBuffer readBuffer);
+
+        void onWritable();
+
+        void onError(IOException e);
+    }
+
+    /**
+     * A single selector thread.
+     */
+    static final class EventLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Thread thread;
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+        private final AtomicInteger connections = new AtomicInteger();
+
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        private volatile boolean running = true;
+
+        EventLoop(String name) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        boolean inEventLoop() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Runs the task on the event loop thread, inline if already there.
+         */
+        void execute(Runnable task) {
+            if (inEventLoop()) {
+                task.run();
+                return;
+            }
+
+            tasks.add(task);
+
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Registers the channel with this loop's selector. Must be called on the event loop thread.
+         */
+        SelectionKey register(SelectableChannel channel, int ops, Handler handler) throws IOException {
+            SelectionKey key = channel.register(selector, ops, handler);
+            connections.incrementAndGet();
+            return key;
+        }
+
+        /**
+         * Cancels the key of a closed connection. Must be called on the event loop thread.
+         */
+        void deregister(SelectionKey key) {
+            if (key != null) {
+                key.cancel();
+                connections.decrementAndGet();
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    logger.error("Selector failed", e);
+                    continue;
+                } catch (ClosedSelectorException e) {
+                    break;
+                }
+
+                wakeupPending.set(false);
+
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    processKey(key);
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug(e);
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // the loop is shared by many connections, one failing task must not stop it
+                    logger.error("Unhandled exception in event loop task", e);
+                }
+            }
+        }
+
+        private void processKey(SelectionKey key) {
+            Handler handler = (Handler) key.attachment();
+
+            try {
+                if (!key.isValid()) {
+                    return;
+                }
+
+                int ready = key.readyOps();
+
+                if ((ready & SelectionKey.OP_WRITE) != 0) {
+                    handler.onWritable();
+                }
+
+                if (key.isValid() && (ready & SelectionKey.OP_READ) != 0) {
+                    readBuffer.clear();
+                    handler.onReadable(readBuffer);
+                }
+            } catch (Throwable e) {
+                // fail only this connection, the loop is shared by many others
+                try {
+                    handler.onError(e instanceof IOException ? (IOException) e : new IOException(e));
+                } catch (Throwable onErrorFailure) {
+                    logger.error("Unhandled exception while failing a connection", onErrorFailure);
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final TcpEventLoopGroup INSTANCE =
+                new TcpEventLoopGroup(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+}
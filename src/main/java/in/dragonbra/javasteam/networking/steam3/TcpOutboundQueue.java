@@ -0,0 +1,191 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import in.dragonbra.javasteam.util.ByteArrayPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Outbound frame queue of a TCP connection. Any thread may enqueue, a single writer drains.
+ * Each message is framed together with its VT01 header into one pooled buffer, and pending frames are written
+ * in batches so bursts of messages go out in as few writes as possible.
+ */
+final class TcpOutboundQueue {
+
+    static final int MAGIC = 0x31305456; // "VT01"
+
+    static final int HEADER_SIZE = 8;
+
+    /**
+     * Largest frame body accepted from the server. The length comes from the wire, so anything larger is treated as a
+     * corrupt stream instead of being allocated.
+     */
+    static final int MAX_PACKET_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Maximum number of frames handed to a single gathering write.
+     */
+    private static final int MAX_BATCH = 64;
+
+    /**
+     * Size of the buffer small frames are coalesced into when writing to a stream.
+     */
+    private static final int COALESCE_SIZE = 16 * 1024;
+
+    private final ByteArrayPool pool;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> frames = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean writerScheduled = new AtomicBoolean();
+
+    private final ByteBuffer[] batch = new ByteBuffer[MAX_BATCH];
+
+    TcpOutboundQueue() {
+        this(ByteArrayPool.getShared());
+    }
+
+    TcpOutboundQueue(ByteArrayPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Frames the data and appends it to the queue.
+     *
+     * @param data The message to send.
+     * @return true if the caller should schedule the writer, false if a writer is already scheduled.
+     */
+    boolean offer(byte[] data) {
+        int frameLength = HEADER_SIZE + data.length;
+
+        ByteBuffer frame = ByteBuffer.wrap(pool.rent(frameLength), 0, frameLength).order(ByteOrder.LITTLE_ENDIAN);
+        frame.putInt(data.length);
+        frame.putInt(MAGIC);
+        frame.put(data);
+        frame.flip();
+
+        frames.add(frame);
+
+        return writerScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Called by the writer before it starts draining. Frames offered after this point schedule a new writer run.
+     */
+    void beginDrain() {
+        writerScheduled.set(false);
+    }
+
+    boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Writes pending frames to a non-blocking channel with gathering writes.
+     *
+     * @param channel The channel to write to.
+     * @return true if the queue was fully drained, false if the channel stopped accepting data.
+     * @throws IOException if the write fails.
+     */
+    boolean drainTo(GatheringByteChannel channel) throws IOException {
+        while (true) {
+            int count = 0;
+            for (ByteBuffer frame : frames) {
+                batch[count++] = frame;
+                if (count == MAX_BATCH) {
+                    break;
+                }
+            }
+
+            if (count == 0) {
+                return true;
+            }
+
+            channel.write(batch, 0, count);
+
+            for (int i = 0; i < count; i++) {
+                ByteBuffer frame = batch[i];
+                batch[i] = null;
+
+                if (frame.hasRemaining()) {
+                    // the socket buffer is full, the rest of the batch stays queued
+                    for (int j = i + 1; j < count; j++) {
+                        batch[j] = null;
+                    }
+                    return false;
+                }
+
+                frames.poll();
+                pool.release(frame.array());
+            }
+        }
+    }
+
+    /**
+     * Writes pending frames to a blocking stream. Small frames are copied into a single buffer first, so a burst
+     * of messages results in one write.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if the write fails.
+     */
+    void drainTo(OutputStream out) throws IOException {
+        byte[] coalesced = null;
+        int length = 0;
+
+        try {
+            ByteBuffer frame;
+            while ((frame = frames.poll()) != null) {
+                int frameLength = frame.remaining();
+
+                if (coalesced == null && frames.isEmpty()) {
+                    // single frame, nothing to coalesce
+                    out.write(frame.array(), frame.position(), frameLength);
+                    pool.release(frame.array());
+                    continue;
+                }
+
+                if (coalesced == null) {
+                    coalesced = pool.rent(COALESCE_SIZE);
+                }
+
+                if (length + frameLength > coalesced.length) {
+                    out.write(coalesced, 0, length);
+                    length = 0;
+                }
+
+                if (frameLength > coalesced.length) {
+                    out.write(frame.array(), frame.position(), frameLength);
+                } else {
+                    frame.get(coalesced, length, frameLength);
+                    length += frameLength;
+                }
+
+                pool.release(frame.array());
+            }
+
+            if (length > 0) {
+                out.write(coalesced, 0, length);
+            }
+
+            out.flush();
+        } finally {
+            if (coalesced != null) {
+                pool.release(coalesced);
+            }
+        }
+    }
+
+    /**
+     * Drops every pending frame.
+     */
+    void clear() {
+        ByteBuffer frame;
+        while ((frame = frames.poll()) != null) {
+            pool.release(frame.array());
+        }
+    }
+}
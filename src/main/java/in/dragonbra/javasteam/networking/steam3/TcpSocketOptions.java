@@ -0,0 +1,75 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Socket level tuning applied to TCP connections to the CM servers.
+ */
+public final class TcpSocketOptions {
+
+    /**
+     * Disables Nagle's algorithm and keeps the OS default buffer sizes.
+     * Outgoing messages are already coalesced by the connection, so there is nothing for Nagle to batch.
+     */
+    public static final TcpSocketOptions DEFAULT = new TcpSocketOptions(true, 0, 0);
+
+    private final boolean tcpNoDelay;
+
+    private final int sendBufferSize;
+
+    private final int receiveBufferSize;
+
+    /**
+     * @param tcpNoDelay        Whether to set TCP_NODELAY on the socket.
+     * @param sendBufferSize    The SO_SNDBUF size in bytes, or 0 to keep the OS default.
+     * @param receiveBufferSize The SO_RCVBUF size in bytes, or 0 to keep the OS default.
+     */
+    public TcpSocketOptions(boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize) {
+        if (sendBufferSize < 0 || receiveBufferSize < 0) {
+            throw new IllegalArgumentException("buffer sizes must not be negative");
+        }
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Applies these options to the socket. Buffer sizes should be set before the socket connects.
+     *
+     * @param socket The socket to configure.
+     * @throws SocketException if an option can't be set.
+     */
+    public void apply(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(tcpNoDelay);
+
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TcpSocketOptions{" +
+                "tcpNoDelay=" + tcpNoDelay +
+                ", sendBufferSize=" + sendBufferSize +
+                ", receiveBufferSize=" + receiveBufferSize +
+                '}';
+    }
+}
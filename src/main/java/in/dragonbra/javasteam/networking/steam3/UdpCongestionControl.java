@@ -0,0 +1,176 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+/**
+ * Send window and retransmission timer of a {@link UdpConnection}.
+ * The retransmission timeout follows the smoothed round trip time and its variance (Jacobson/Karels), and the window
+ * grows with slow start and congestion avoidance, halving on fast retransmit and collapsing on a timeout.
+ * Only the connection's net thread mutates the state, {@link #getStats()} may be called from any thread.
+ */
+final class UdpCongestionControl {
+
+    /**
+     * Packets that may be in flight before the first ack. Steam itself never seems to send more than 4 packets
+     * before it gets an ack, so we start from there.
+     */
+    static final int INITIAL_WINDOW = 3;
+
+    static final int MAX_WINDOW = 64;
+
+    /**
+     * Number of pure acks repeating the same sequence number that trigger a fast retransmit.
+     */
+    static final int DUPLICATE_ACK_THRESHOLD = 3;
+
+    static final long INITIAL_RTO = 3000L;
+
+    static final long MIN_RTO = 200L;
+
+    static final long MAX_RTO = 15000L;
+
+    private double smoothedRtt;
+
+    private double rttVariance;
+
+    private boolean hasRttSample;
+
+    private long rto = INITIAL_RTO;
+
+    private double window = INITIAL_WINDOW;
+
+    private int slowStartThreshold = MAX_WINDOW;
+
+    private int duplicateAcks;
+
+    private boolean inRecovery;
+
+    private int recoverSeq;
+
+    private long packetsSent;
+
+    private long packetsRetransmitted;
+
+    private long fastRetransmits;
+
+    private long timeouts;
+
+    /**
+     * @return The number of sequenced packets that may be unacknowledged at a time.
+     */
+    synchronized int getWindow() {
+        return (int) window;
+    }
+
+    /**
+     * @return The current retransmission timeout in milliseconds.
+     */
+    synchronized long getRto() {
+        return rto;
+    }
+
+    /**
+     * Records a sequenced packet going out.
+     *
+     * @param retransmission Whether the packet was sent before.
+     */
+    synchronized void onPacketSent(boolean retransmission) {
+        packetsSent++;
+        if (retransmission) {
+            packetsRetransmitted++;
+        }
+    }
+
+    /**
+     * Updates the round trip estimate. Only packets that were sent once may be sampled (Karn's algorithm).
+     *
+     * @param rtt The measured round trip time in milliseconds.
+     */
+    synchronized void onRttSample(long rtt) {
+        if (!hasRttSample) {
+            smoothedRtt = rtt;
+            rttVariance = rtt / 2.0;
+            hasRttSample = true;
+        } else {
+            rttVariance = 0.75 * rttVariance + 0.25 * Math.abs(smoothedRtt - rtt);
+            smoothedRtt = 0.875 * smoothedRtt + 0.125 * rtt;
+        }
+
+        rto = clampRto((long) Math.ceil(smoothedRtt + 4 * rttVariance));
+    }
+
+    /**
+     * Records the server acknowledging new packets and opens the window.
+     *
+     * @param ackedPackets The number of newly acknowledged packets.
+     * @param seqAck       The acknowledged sequence number.
+     */
+    synchronized void onAck(int ackedPackets, int seqAck) {
+        duplicateAcks = 0;
+
+        if (inRecovery) {
+            if (seqAck - recoverSeq >= 0) {
+                inRecovery = false;
+                window = slowStartThreshold;
+            }
+            return;
+        }
+
+        if (window < slowStartThreshold) {
+            window += ackedPackets;
+        } else {
+            window += (double) ackedPackets / window;
+        }
+
+        window = Math.min(window, MAX_WINDOW);
+    }
+
+    /**
+     * Records a pure ack that didn't acknowledge anything new while packets are in flight.
+     *
+     * @param highestSent The highest sequence number sent so far.
+     * @return true if the oldest unacknowledged packet should be retransmitted right away.
+     */
+    synchronized boolean onDuplicateAck(int highestSent) {
+        if (inRecovery || ++duplicateAcks < DUPLICATE_ACK_THRESHOLD) {
+            return false;
+        }
+
+        duplicateAcks = 0;
+        slowStartThreshold = Math.max(getWindow() / 2, 2);
+        window = slowStartThreshold;
+        inRecovery = true;
+        recoverSeq = highestSent;
+        fastRetransmits++;
+
+        return true;
+    }
+
+    /**
+     * Records the retransmission timer expiring: the window collapses and the timeout backs off.
+     */
+    synchronized void onTimeout() {
+        slowStartThreshold = Math.max(getWindow() / 2, 2);
+        window = INITIAL_WINDOW;
+        rto = clampRto(rto * 2);
+        duplicateAcks = 0;
+        inRecovery = false;
+        timeouts++;
+    }
+
+    synchronized UdpConnectionStats getStats() {
+        return new UdpConnectionStats(
+                hasRttSample ? Math.round(smoothedRtt) : -1L,
+                hasRttSample ? Math.round(rttVariance) : -1L,
+                rto,
+                getWindow(),
+                slowStartThreshold,
+                packetsSent,
+                packetsRetransmitted,
+                fastRetransmits,
+                timeouts
+        );
+    }
+
+    private static long clampRto(long rto) {
+        return Math.max(MIN_RTO, Math.min(MAX_RTO, rto));
+    }
+}
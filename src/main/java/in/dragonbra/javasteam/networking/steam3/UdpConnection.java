@@ -1,18 +1,20 @@
 package in.dragonbra.javasteam.networking.steam3;
 
-import in.dragonbra.javasteam.enums.EUdpPacketType;
-import in.dragonbra.javasteam.generated.ChallengeData;
 import in.dragonbra.javasteam.generated.ConnectData;
+import in.dragonbra.javasteam.steam.steamclient.ClientThreading;
 import in.dragonbra.javasteam.util.NetHelpers;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
-import in.dragonbra.javasteam.util.stream.MemoryStream;
-import in.dragonbra.javasteam.util.stream.SeekOrigin;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.*;
-import java.util.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -23,25 +25,20 @@ public class UdpConnection extends Connection {
 
     private static final Logger logger = LogManager.getLogger(UdpConnection.class);
 
-    /**
-     * Milliseconds to wait before sending packets.
-     */
-    private static final long RESEND_DELAY = 3000L;
-
     /**
      * Milliseconds to wait before considering the connection dead.
      */
     private static final long TIMEOUT_DELAY = 60000L;
 
     /**
-     * Maximum number of packets to resend when RESEND_DELAY is exceeded.
+     * Number of packets past the last handled one that are buffered when they arrive out of order.
      */
-    private static final int RESEND_COUNT = 3;
+    private static final int RECEIVE_WINDOW = 256;
 
     /**
-     * Maximum number of packets that we can be waiting on at a time.
+     * Initial number of slots for queued outgoing packets, the ring grows if more are queued.
      */
-    private static final int AHEAD_COUNT = 3;
+    private static final int SEND_RING_CAPACITY = 64;
 
     /**
      * Contains information about the state of the connection, used to filter out packets that are
@@ -55,7 +52,9 @@ public class UdpConnection extends Connection {
     @SuppressWarnings("FieldCanBeLocal")
     private NetLoop netLoop;
 
-    private final DatagramSocket sock;
+    private final DatagramChannel channel;
+
+    private Selector selector;
 
     private long timeout;
 
@@ -69,6 +68,10 @@ public class UdpConnection extends Connection {
      * The next outgoing sequence number to be used.
      */
     private int outSeq;
+    /**
+     * The sequence number of the oldest outgoing packet still queued.
+     */
+    private int outHead;
     /**
      * The highest sequence number of an outbound packet that has been sent.
      */
@@ -92,16 +95,56 @@ public class UdpConnection extends Connection {
      */
     private int inSeqHandled;
 
-    private final List<UdpPacket> outPackets = new ArrayList<>();
-    private Map<Integer, UdpPacket> inPackets;
+    /**
+     * Guards the outgoing ring and outSeq, which are written by senders and read by the net thread.
+     */
+    private final Object outLock = new Object();
+
+    private final UdpPacketRing outPackets = new UdpPacketRing(SEND_RING_CAPACITY);
+
+    private final UdpPacketRing inPackets = new UdpPacketRing(RECEIVE_WINDOW);
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(2048).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(UdpPacket.MAX_PACKET_SIZE);
+
+    /**
+     * Storage for unsequenced packets, only used on the net thread.
+     */
+    private final byte[] unsequenced = new byte[UdpPacket.MAX_PACKET_SIZE];
+
+    /**
+     * The message currently being reassembled from in-order packets.
+     */
+    private byte[] message;
+
+    private int messageLength;
+
+    private int messagePartsRemaining;
 
     private InetSocketAddress currentEndPoint;
 
+    private volatile UdpCongestionControl congestion = new UdpCongestionControl();
+
+    private final ClientThreading threading;
+
     public UdpConnection() {
+        this(ClientThreading.DEFAULT);
+    }
+
+    /**
+     * @param threading creates the thread running the connection
+     */
+    public UdpConnection(ClientThreading threading) {
+        if (threading == null) {
+            throw new IllegalArgumentException("threading is null");
+        }
+        this.threading = threading;
+
         try {
-            sock = new DatagramSocket();
-        } catch (SocketException e) {
-            throw new IllegalStateException("couldn't create datagram socket", e);
+            channel = DatagramChannel.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("couldn't create datagram channel", e);
         }
 
         state = new AtomicReference<>(State.DISCONNECTED);
@@ -109,13 +152,19 @@ public class UdpConnection extends Connection {
 
     @Override
     public void connect(InetSocketAddress endPoint, int timeout) {
-        outPackets.clear();
-        inPackets = new HashMap<>();
+        synchronized (outLock) {
+            outPackets.clear();
+
+            outSeq = 1;
+            outHead = 1;
+        }
+
+        inPackets.clear();
+        message = null;
 
         currentEndPoint = null;
         remoteConnId = 0;
 
-        outSeq = 1;
         outSeqSent = 0;
         outSeqAcked = 0;
 
@@ -123,9 +172,11 @@ public class UdpConnection extends Connection {
         inSeqAcked = 0;
         inSeqHandled = 0;
 
+        congestion = new UdpCongestionControl();
+
         logger.debug("connecting to " + endPoint);
         netLoop = new NetLoop(endPoint);
-        netThread = new Thread(netLoop, "UdpConnection Thread");
+        netThread = threading.newThread("UdpConnection Thread", netLoop);
         netThread.start();
     }
 
@@ -144,7 +195,7 @@ public class UdpConnection extends Connection {
         if (state.get() == State.DISCONNECTING) {
             // Play nicely and let the server know that we're done. Other party is expected to Ack this,
             // so it needs to be sent sequenced.
-            sendSequenced(new UdpPacket(EUdpPacketType.Disconnect));
+            sendSequenced(UdpPacket.DISCONNECT, null, 0);
         }
 
         // Advance this the same way that steam does, when a socket gets reused.
@@ -156,13 +207,13 @@ public class UdpConnection extends Connection {
     @Override
     public void send(byte[] data) {
         if (state.get() == State.CONNECTED) {
-            sendData(new MemoryStream(data));
+            sendData(data);
         }
     }
 
     @Override
     public InetAddress getLocalIP() {
-        return NetHelpers.getLocalIP(sock);
+        return NetHelpers.getLocalIP(channel.socket());
     }
 
     @Override
@@ -175,80 +226,106 @@ public class UdpConnection extends Connection {
         return ProtocolTypes.UDP;
     }
 
+    /**
+     * Gets a snapshot of the round trip estimate, send window and retransmission counters of the current session.
+     *
+     * @return the connection stats.
+     */
+    public UdpConnectionStats getStats() {
+        return congestion.getStats();
+    }
+
     /**
      * Sends the data sequenced as a single message, splitting it into multiple parts if necessary.
      *
-     * @param ms The data to send.
+     * @param data The data to send.
      */
-    private void sendData(MemoryStream ms) {
-        UdpPacket[] packets = new UdpPacket[(int) ((ms.getLength() / UdpPacket.MAX_PAYLOAD) + 1)];
+    private void sendData(byte[] data) {
+        int packetCount = data.length / UdpPacket.MAX_PAYLOAD + 1;
+
+        synchronized (outLock) {
+            int msgStart = outSeq;
 
-        for (int i = 0; i < packets.length; i++) {
-            long index = (long) i * UdpPacket.MAX_PAYLOAD;
-            long length = Math.min(UdpPacket.MAX_PAYLOAD, ms.getLength() - index);
+            for (int i = 0; i < packetCount; i++) {
+                int offset = i * UdpPacket.MAX_PAYLOAD;
+                int length = Math.min(UdpPacket.MAX_PAYLOAD, data.length - offset);
 
-            packets[i] = new UdpPacket(EUdpPacketType.Data, ms, length);
-            packets[i].getHeader().setMsgSize((int) ms.getLength());
+                int seq = outSeq++;
+                byte[] packet = claimOutgoing(seq);
+                UdpPacket.writeHeader(packet, UdpPacket.DATA, length, seq, packetCount, msgStart, data.length);
+                System.arraycopy(data, offset, packet, UdpPacket.HEADER_SIZE, length);
+                outPackets.setLength(seq, UdpPacket.HEADER_SIZE + length);
+            }
         }
 
-        sendSequenced(packets);
+        wakeup();
     }
 
     /**
-     * Sends the packet as a sequenced, reliable packet.
+     * Queues a single packet as a sequenced, reliable packet.
      *
-     * @param packet The packet.
+     * @param type    The packet type.
+     * @param payload The payload, or null.
+     * @param length  The payload length.
      */
-    private void sendSequenced(UdpPacket packet) {
-        synchronized (outPackets) {
-            packet.getHeader().setSeqThis(outSeq);
-            packet.getHeader().setMsgStartSeq(outSeq);
-            packet.getHeader().setPacketsInMsg(1);
+    private void sendSequenced(byte type, byte[] payload, int length) {
+        synchronized (outLock) {
+            int seq = outSeq++;
+            byte[] packet = claimOutgoing(seq);
+            UdpPacket.writeHeader(packet, type, length, seq, 1, seq, length);
+            if (payload != null) {
+                System.arraycopy(payload, 0, packet, UdpPacket.HEADER_SIZE, length);
+            }
+            outPackets.setLength(seq, UdpPacket.HEADER_SIZE + length);
+        }
 
-            outPackets.add(packet);
+        wakeup();
+    }
 
-            outSeq++;
+    private byte[] claimOutgoing(int seq) {
+        while (seq - outHead >= outPackets.capacity()) {
+            outPackets.grow();
         }
+        return outPackets.claim(seq);
     }
 
     /**
-     * Sends the packets as one sequenced, reliable net message.
+     * Sends an unsequenced packet with no payload immediately.
      *
-     * @param packets The packets that make up the single net message
+     * @param type The packet type.
      */
-    private void sendSequenced(UdpPacket[] packets) {
-        synchronized (outPackets) {
-            int msgStart = outSeq;
-
-            for (UdpPacket packet : packets) {
-                sendSequenced(packet);
-
-                // Correct for any assumptions made for the single-packet case.
-                packet.getHeader().setPacketsInMsg(packets.length);
-                packet.getHeader().setMsgStartSeq(msgStart);
-            }
-        }
+    private void sendUnsequenced(byte type) {
+        UdpPacket.writeHeader(unsequenced, type, 0, 0, 0, 0, 0);
+        sendPacket(unsequenced, UdpPacket.HEADER_SIZE);
     }
 
     /**
-     * Sends a packet immediately.
+     * Sends a packet immediately. Only called on the net thread.
      *
      * @param packet The packet.
+     * @param length The length of the packet, including the header.
      */
-    private void sendPacket(UdpPacket packet) {
-        packet.getHeader().setSourceConnID(SOURCE_CONN_ID);
-        packet.getHeader().setDestConnID(remoteConnId);
+    private void sendPacket(byte[] packet, int length) {
+        UdpPacket.putInt(packet, UdpPacket.SOURCE_CONN_ID_OFFSET, SOURCE_CONN_ID);
+        UdpPacket.putInt(packet, UdpPacket.DEST_CONN_ID_OFFSET, remoteConnId);
         inSeqAcked = inSeq;
-        packet.getHeader().setSeqAck(inSeqAcked);
+        UdpPacket.putInt(packet, UdpPacket.SEQ_ACK_OFFSET, inSeqAcked);
 
-        logger.debug(String.format("Sent -> %s Seq %d Ack %d; %d bytes; Message: %d bytes %d packets",
-                packet.getHeader().getPacketType(), packet.getHeader().getSeqThis(), packet.getHeader().getSeqAck(),
-                packet.getHeader().getPayloadSize(), packet.getHeader().getMsgSize(), packet.getHeader().getPacketsInMsg()));
+        int seqThis = UdpPacket.getInt(packet, UdpPacket.SEQ_THIS_OFFSET);
+
+        if (logger.isEnabled()) {
+            logger.debug(String.format("Sent -> %s Seq %d Ack %d; %d bytes; Message: %d bytes %d packets",
+                    UdpPacket.typeName(packet[UdpPacket.PACKET_TYPE_OFFSET]), seqThis, inSeqAcked,
+                    UdpPacket.getPayloadSize(packet), UdpPacket.getInt(packet, UdpPacket.MSG_SIZE_OFFSET),
+                    UdpPacket.getInt(packet, UdpPacket.PACKETS_IN_MSG_OFFSET)));
+        }
 
-        byte[] data = packet.getData();
+        sendBuffer.clear();
+        sendBuffer.put(packet, 0, length);
+        sendBuffer.flip();
 
         try {
-            sock.send(new DatagramPacket(data, 0, data.length, currentEndPoint.getAddress(), currentEndPoint.getPort()));
+            channel.write(sendBuffer);
         } catch (IOException e) {
             logger.debug("Critical socket failure", e);
             state.set(State.DISCONNECTING);
@@ -258,13 +335,13 @@ public class UdpConnection extends Connection {
         // If we've been idle but completely acked for more than two seconds, the next sent
         // packet will trip the resend detection. This fixes that.
         if (outSeqSent == outSeqAcked) {
-            nextResend = System.currentTimeMillis() + RESEND_DELAY;
+            nextResend = System.currentTimeMillis() + congestion.getRto();
         }
 
         // Sending should generally carry on from the packet most recently sent, even if it was a
         // resend (who knows what else was lost).
-        if (packet.getHeader().getSeqThis() > 0) {
-            outSeqSent = packet.getHeader().getSeqThis();
+        if (seqThis > 0) {
+            outSeqSent = seqThis;
         }
     }
 
@@ -272,7 +349,7 @@ public class UdpConnection extends Connection {
      * Sends a datagram Ack, used when an Ack needs to be sent but there is no data response to piggy-back on.
      */
     private void sendAck() {
-        sendPacket(new UdpPacket(EUdpPacketType.Datagram));
+        sendUnsequenced(UdpPacket.DATAGRAM);
     }
 
     /**
@@ -280,199 +357,229 @@ public class UdpConnection extends Connection {
      * the rate at which they are sent.
      */
     private void sendPendingMessages() {
-        synchronized (outPackets) {
+        synchronized (outLock) {
+            int queued = outSeq - outHead;
+
             if (System.currentTimeMillis() > nextResend && outSeqSent > outSeqAcked) {
                 // If we can't clear the send queue during a Disconnect, clear out the pending messages
                 if (state.get() == State.DISCONNECTING) {
                     outPackets.clear();
+                    outHead = outSeq;
+                    queued = 0;
                 }
 
                 logger.debug("Sequenced packet resend required");
 
-                // Don't send more than 3 (Steam behavior?)
-                for (int i = 0; i < RESEND_COUNT && i < outPackets.size(); i++) {
-                    sendPacket(outPackets.get(i));
-                }
+                // Go back to the oldest unacknowledged packet, the collapsed window limits how much is resent
+                congestion.onTimeout();
+                outSeqSent = outSeqAcked;
+                nextResend = System.currentTimeMillis() + congestion.getRto();
+            }
 
-                nextResend = System.currentTimeMillis() + RESEND_DELAY;
-            } else if (outSeqSent < outSeqAcked + AHEAD_COUNT) {
-                // I've never seen Steam send more than 4 packets before it gets an Ack, so this limits the
-                // number of sequenced packets that can be sent out at one time.
-                for (int i = outSeqSent - outSeqAcked; i < AHEAD_COUNT && i < outPackets.size(); i++) {
-                    sendPacket(outPackets.get(i));
-                }
+            int window = congestion.getWindow();
+            for (int i = outSeqSent - outSeqAcked; i < window && i < queued; i++) {
+                sendQueued(outHead + i);
             }
         }
     }
 
+    private void sendQueued(int seq) {
+        int transmissions = outPackets.markSent(seq, System.currentTimeMillis());
+        congestion.onPacketSent(transmissions > 1);
+        sendPacket(outPackets.get(seq), outPackets.length(seq));
+    }
+
     /**
-     * Returns the number of message parts in the next message.
-     *
-     * @return Non-zero number of message parts if a message is ready to be handled, 0 otherwise
+     * @return whether there are queued packets that the send window allows to go out right away.
      */
-    private int readyMessageParts() {
-        UdpPacket packet;
-
-        // Make sure that the first packet of the next message to handle is present
-        packet = inPackets.get(inSeqHandled + 1);
-        if (packet == null) {
-            return 0;
+    private boolean canSendMore() {
+        synchronized (outLock) {
+            int inFlight = outSeqSent - outSeqAcked;
+            return inFlight < congestion.getWindow() && inFlight < outSeq - outHead;
         }
+    }
 
-        // ...and if relevant, all subparts of the message too
-        for (int i = 1; i < packet.getHeader().getPacketsInMsg(); i++) {
-            if (!inPackets.containsKey(inSeqHandled + 1 + i)) {
-                return 0;
-            }
+    private boolean hasOutgoing() {
+        synchronized (outLock) {
+            return outSeq != outHead;
         }
-
-        return packet.getHeader().getPacketsInMsg();
     }
 
     /**
-     * Dispatches up to one message to the rest of SteamKit
-     *
-     * @return True if a message was dispatched, false otherwise
+     * Dispatches as many messages as possible from the packets received in order.
+     * Packets are appended to the message being reassembled as soon as they are next in line, so only
+     * out of order packets are held in the receive ring.
      */
-    private boolean dispatchMessage() {
-        int numPackets = readyMessageParts();
-
-        if (numPackets == 0) {
-            return false;
-        }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        for (int i = 0; i < numPackets; i++) {
-            UdpPacket packet;
-
-            packet = inPackets.get(++inSeqHandled);
-            inPackets.remove(inSeqHandled);
+    private void dispatchMessages() {
+        while (inPackets.contains(inSeqHandled + 1)) {
+            int seq = ++inSeqHandled;
+            byte[] packet = inPackets.get(seq);
+            int payloadSize = UdpPacket.getPayloadSize(packet);
+
+            if (message == null) {
+                int msgSize = UdpPacket.getInt(packet, UdpPacket.MSG_SIZE_OFFSET);
+                message = new byte[Math.max(msgSize, 0)];
+                messageLength = 0;
+                messagePartsRemaining = Math.max(UdpPacket.getInt(packet, UdpPacket.PACKETS_IN_MSG_OFFSET), 1);
+            }
 
-            try {
-                baos.write(packet.getPayload().toByteArray());
-            } catch (IOException ignored) {
+            if (messageLength + payloadSize > message.length) {
+                message = Arrays.copyOf(message, messageLength + payloadSize);
             }
-        }
 
-        byte[] data = baos.toByteArray();
+            System.arraycopy(packet, UdpPacket.HEADER_SIZE, message, messageLength, payloadSize);
+            messageLength += payloadSize;
+            inPackets.remove(seq);
 
-        logger.debug("Dispatching message: " + data.length + " bytes");
+            if (--messagePartsRemaining == 0) {
+                byte[] data = messageLength == message.length ? message : Arrays.copyOf(message, messageLength);
+                message = null;
 
-        onNetMsgReceived(new NetMsgEventArgs(data, currentEndPoint));
+                logger.debug("Dispatching message: " + data.length + " bytes");
 
-        return true;
+                onNetMsgReceived(new NetMsgEventArgs(data, currentEndPoint));
+            }
+        }
     }
 
     /**
      * Receives the packet, performs all sanity checks and then passes it along as necessary.
      *
-     * @param packet The packet.
+     * @param packet The packet, little endian, positioned at the start of the datagram.
      */
-    private void receivePacket(UdpPacket packet) {
+    private void receivePacket(ByteBuffer packet) {
         // Check for a malformed packet
-        if (!packet.isValid()) {
+        if (!UdpPacket.isValid(packet)) {
             return;
         }
 
-        if (remoteConnId > 0 && packet.getHeader().getSourceConnID() != remoteConnId) {
+        int sourceConnId = UdpPacket.getInt(packet, UdpPacket.SOURCE_CONN_ID_OFFSET);
+
+        if (remoteConnId > 0 && sourceConnId != remoteConnId) {
             return;
         }
 
-        logger.debug(String.format("<- Recv'd %s Seq %d Ack %d; %d bytes; Message: %d bytes %d packets",
-                packet.getHeader().getPacketType(), packet.getHeader().getSeqThis(), packet.getHeader().getSeqAck(),
-                packet.getHeader().getPayloadSize(), packet.getHeader().getMsgSize(), packet.getHeader().getPacketsInMsg()));
+        byte packetType = UdpPacket.getPacketType(packet);
+        int seqThis = UdpPacket.getInt(packet, UdpPacket.SEQ_THIS_OFFSET);
+        int seqAck = UdpPacket.getInt(packet, UdpPacket.SEQ_ACK_OFFSET);
+
+        if (logger.isEnabled()) {
+            logger.debug(String.format("<- Recv'd %s Seq %d Ack %d; %d bytes; Message: %d bytes %d packets",
+                    UdpPacket.typeName(packetType), seqThis, seqAck, UdpPacket.getPayloadSize(packet),
+                    UdpPacket.getInt(packet, UdpPacket.MSG_SIZE_OFFSET),
+                    UdpPacket.getInt(packet, UdpPacket.PACKETS_IN_MSG_OFFSET)));
+        }
 
         // Throw away any duplicate messages we've already received, making sure to
         // re-ack it in case it got lost.
-        if (packet.getHeader().getPacketType() == EUdpPacketType.Data && packet.getHeader().getSeqThis() < inSeq) {
+        if (packetType == UdpPacket.DATA && seqThis < inSeq) {
             sendAck();
             return;
         }
 
         // When we get a SeqAck, all packets with sequence numbers below that have been safely received by
         // the server; we are now free to remove our copies
-        if (outSeqAcked < packet.getHeader().getSeqAck()) {
-            outSeqAcked = packet.getHeader().getSeqAck();
+        if (outSeqAcked < seqAck) {
+            int ackedPackets = seqAck - outSeqAcked;
+            outSeqAcked = seqAck;
 
             // outSeqSent can be less than this in a very rare case involving resent packets.
             if (outSeqSent < outSeqAcked) {
                 outSeqSent = outSeqAcked;
             }
 
-            outPackets.removeIf(udpPacket -> udpPacket.getHeader().getSeqThis() <= outSeqAcked);
-            nextResend = System.currentTimeMillis() + RESEND_DELAY;
+            synchronized (outLock) {
+                // Only packets that were sent once give an unambiguous round trip time
+                if (outPackets.contains(seqAck) && outPackets.transmissions(seqAck) == 1) {
+                    congestion.onRttSample(System.currentTimeMillis() - outPackets.sentTime(seqAck));
+                }
+
+                while (outHead - outSeqAcked <= 0 && outHead != outSeq) {
+                    outPackets.remove(outHead++);
+                }
+            }
+
+            congestion.onAck(ackedPackets, seqAck);
+            nextResend = System.currentTimeMillis() + congestion.getRto();
+        } else if (packetType == UdpPacket.DATAGRAM && seqAck == outSeqAcked && outSeqSent > outSeqAcked) {
+            // Pure acks repeating the last ack while packets are in flight mean something after it got lost.
+            // Data packets are not counted, they carry the same ack whenever the server has more to send.
+            if (congestion.onDuplicateAck(outSeqSent)) {
+                logger.debug("Fast retransmit of packet " + (outSeqAcked + 1));
+
+                synchronized (outLock) {
+                    if (outPackets.contains(outSeqAcked + 1)) {
+                        // only the lost packet is resent, the rest of the flight carries on where it was
+                        int highestSent = outSeqSent;
+                        sendQueued(outSeqAcked + 1);
+                        outSeqSent = highestSent;
+                    }
+                }
+
+                nextResend = System.currentTimeMillis() + congestion.getRto();
+            }
         }
 
         // inSeq should always be the latest value that we can ack, so advance it as far as is possible.
-        if (packet.getHeader().getSeqThis() == inSeq + 1) {
+        if (seqThis == inSeq + 1) {
             do {
                 inSeq++;
-            } while (inPackets.containsKey(inSeq + 1));
-        }
-
-        switch (packet.getHeader().getPacketType()) {
-            case Challenge:
-                receiveChallenge(packet);
-                break;
-            case Accept:
-                receiveAccept(packet);
-                break;
-            case Data:
-                receiveData(packet);
-                break;
-            case Disconnect:
-                logger.debug("Disconnected by server");
-                state.set(State.DISCONNECTED);
-                return;
-            case Datagram:
-                break;
-            default:
-                logger.debug("Received unexpected packet type " + packet.getHeader().getPacketType());
-                break;
+            } while (inPackets.contains(inSeq + 1));
+        }
+
+        if (packetType == UdpPacket.CHALLENGE) {
+            receiveChallenge(packet, seqThis);
+        } else if (packetType == UdpPacket.ACCEPT) {
+            receiveAccept(sourceConnId, seqThis);
+        } else if (packetType == UdpPacket.DATA) {
+            receiveData(packet, seqThis);
+        } else if (packetType == UdpPacket.DISCONNECT) {
+            logger.debug("Disconnected by server");
+            state.set(State.DISCONNECTED);
+        } else if (packetType != UdpPacket.DATAGRAM) {
+            logger.debug("Received unexpected packet type " + UdpPacket.typeName(packetType));
         }
     }
 
     /**
      * Receives the challenge and responds with a Connect request
      *
-     * @param packet The packet.
+     * @param packet  The packet.
+     * @param seqThis The sequence number of the packet.
      */
-    private void receiveChallenge(UdpPacket packet) {
+    private void receiveChallenge(ByteBuffer packet, int seqThis) {
         if (!state.compareAndSet(State.CHALLENGE_REQ_SENT, State.CONNECT_SENT)) {
             return;
         }
-        try {
-            ChallengeData cr = new ChallengeData();
-            cr.deserialize(packet.getPayload());
 
-            ConnectData cd = new ConnectData();
-            cd.setChallengeValue(cr.getChallengeValue() ^ ConnectData.CHALLENGE_MASK);
+        if (UdpPacket.getPayloadSize(packet) < 4) {
+            logger.debug("Challenge packet is too short");
+            return;
+        }
 
-            MemoryStream ms = new MemoryStream();
-            cd.serialize(ms.asOutputStream());
-            ms.seek(0, SeekOrigin.BEGIN);
+        int challengeValue = UdpPacket.getInt(packet, UdpPacket.HEADER_SIZE);
 
-            sendSequenced(new UdpPacket(EUdpPacketType.Connect, ms));
+        byte[] connectData = new byte[4];
+        UdpPacket.putInt(connectData, 0, challengeValue ^ ConnectData.CHALLENGE_MASK);
 
-            inSeqHandled = packet.getHeader().getSeqThis();
-        } catch (IOException e) {
-            logger.debug(e);
-        }
+        sendSequenced(UdpPacket.CONNECT, connectData, connectData.length);
+
+        inSeqHandled = seqThis;
     }
 
-    private void receiveAccept(UdpPacket packet) {
+    private void receiveAccept(int sourceConnId, int seqThis) {
         if (!state.compareAndSet(State.CONNECT_SENT, State.CONNECTED)) {
             return;
         }
 
         logger.debug("Connection established");
-        remoteConnId = packet.getHeader().getSourceConnID();
-        inSeqHandled = packet.getHeader().getSeqThis();
+        remoteConnId = sourceConnId;
+        inSeqHandled = seqThis;
 
         onConnected();
     }
 
-    private void receiveData(UdpPacket packet) {
+    private void receiveData(ByteBuffer packet, int seqThis) {
         // Data packets are unexpected if a valid connection has not been established
         if (state.get() != State.CONNECTED && state.get() != State.DISCONNECTING) {
             return;
@@ -480,94 +587,108 @@ public class UdpConnection extends Connection {
 
         // If we receive a packet that we've already processed (e.g. it got resent due to a lost ack)
         // or that is already waiting to be processed, do nothing.
-        if (packet.getHeader().getSeqThis() <= inSeqHandled || inPackets.containsKey(packet.getHeader().getSeqThis())) {
+        if (seqThis - inSeqHandled <= 0 || inPackets.contains(seqThis)) {
+            return;
+        }
+
+        // Too far ahead to buffer, the server will resend it once we've caught up.
+        if (seqThis - inSeqHandled > inPackets.capacity()) {
             return;
         }
 
-        inPackets.put(packet.getHeader().getSeqThis(), packet);
+        int length = UdpPacket.HEADER_SIZE + UdpPacket.getPayloadSize(packet);
+        byte[] slot = inPackets.claim(seqThis);
+        packet.get(slot, 0, length);
+        inPackets.setLength(seqThis, length);
+
+        dispatchMessages();
+    }
 
-        //noinspection StatementWithEmptyBody
-        while (dispatchMessage()) ;
+    private void wakeup() {
+        Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
     }
 
     /**
      * Processes incoming packets, maintains connection consistency, and oversees outgoing packets.
+     * The loop sleeps on a selector until a datagram arrives, something is queued for sending or
+     * the next resend or timeout deadline is due.
      */
     private class NetLoop implements Runnable {
 
+        private final InetSocketAddress endPoint;
+
         NetLoop(InetSocketAddress endPoint) {
+            this.endPoint = endPoint;
             currentEndPoint = endPoint;
         }
 
         @Override
         public void run() {
-            // Variables that will be used deeper in the function; locating them here avoids recreating
-            // them since they don't need to be.
             boolean userRequestDisconnect = false;
-            byte[] buf = new byte[2048];
-            DatagramPacket packet = new DatagramPacket(buf, buf.length);
-            boolean received = false;
 
             try {
-                sock.setSoTimeout(150);
-            } catch (SocketException e) {
-                logger.debug(e);
+                selector = Selector.open();
+                channel.configureBlocking(false);
+                // only datagrams from the server we're connected to are received
+                channel.connect(endPoint);
+                channel.register(selector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                logger.debug("Exception while setting up the datagram channel", e);
+                state.set(State.DISCONNECTED);
             }
 
-            if (currentEndPoint != null) {
+            if (state.get() == State.DISCONNECTED) {
                 timeout = System.currentTimeMillis() + TIMEOUT_DELAY;
-                nextResend = System.currentTimeMillis() + RESEND_DELAY;
+                nextResend = System.currentTimeMillis() + congestion.getRto();
 
                 if (!state.compareAndSet(State.DISCONNECTED, State.CHALLENGE_REQ_SENT)) {
                     state.set(State.DISCONNECTING);
                     userRequestDisconnect = true;
                 } else {
                     // Begin by sending off the challenge request
-                    sendPacket(new UdpPacket(EUdpPacketType.ChallengeReq));
+                    sendUnsequenced(UdpPacket.CHALLENGE_REQ);
                 }
             }
 
-            while (state.get() != State.DISCONNECTED) {
+            while (state.get() != State.DISCONNECTED && channel.isOpen()) {
                 try {
-                    try {
-                        sock.receive(packet);
-                        received = true;
-                    } catch (SocketTimeoutException e) {
-                        if (System.currentTimeMillis() > timeout) {
-                            logger.debug("Connection timed out", e);
-                            state.set(State.DISCONNECTED);
-                            break;
+                    long now = System.currentTimeMillis();
+
+                    if (canSendMore()) {
+                        selector.selectNow();
+                    } else {
+                        long deadline = timeout;
+                        if (outSeqSent > outSeqAcked || hasOutgoing()) {
+                            deadline = Math.min(deadline, nextResend);
                         }
+                        selector.select(Math.max(1L, deadline - now + 1));
                     }
+                    selector.selectedKeys().clear();
 
-                    // By using a 10ms wait, we allow for multiple packets sent at the time to all be processed before moving on
-                    // to processing output and therefore Acks (the more we process at the same time, the fewer acks we have to send)
-
-
-                    sock.setSoTimeout(10);
-                    while (received) {
-
-                        // Ignore packets that aren't sent by the server we're connected to.
-                        if (!packet.getAddress().equals(currentEndPoint.getAddress()) && packet.getPort() != currentEndPoint.getPort()) {
-                            continue;
+                    // Process everything that arrived before moving on to processing output and therefore Acks
+                    // (the more we process at the same time, the fewer acks we have to send)
+                    while (state.get() != State.DISCONNECTED) {
+                        receiveBuffer.clear();
+                        if (channel.read(receiveBuffer) <= 0) {
+                            break;
                         }
+                        receiveBuffer.flip();
 
                         timeout = System.currentTimeMillis() + TIMEOUT_DELAY;
 
-                        MemoryStream ms = new MemoryStream(packet.getData());
-                        UdpPacket udpPacket = new UdpPacket(ms);
-
-                        receivePacket(udpPacket);
-                        try {
-                            sock.receive(packet);
-                            //noinspection DataFlowIssue
-                            received = true;
-                        } catch (SocketTimeoutException e) {
-                            received = false;
-                        }
+                        receivePacket(receiveBuffer);
                     }
                 } catch (IOException e) {
-                    logger.debug("Exception while reading packer", e);
+                    logger.debug("Exception while reading packet", e);
+                    state.set(State.DISCONNECTED);
+                    break;
+                }
+
+                if (System.currentTimeMillis() > timeout) {
+                    logger.debug("Connection timed out");
                     state.set(State.DISCONNECTED);
                     break;
                 }
@@ -586,7 +707,7 @@ public class UdpConnection extends Connection {
 
                 // If a graceful shutdown has been requested, nothing in the outgoing queue is discarded.
                 // Once it's empty, we exit, since the last packet was our disconnect notification.
-                if (state.get() == State.DISCONNECTING && outPackets.isEmpty()) {
+                if (state.get() == State.DISCONNECTING && !hasOutgoing()) {
                     logger.debug("Graceful disconnect completed");
                     state.set(State.DISCONNECTED);
                     userRequestDisconnect = true;
@@ -594,7 +715,19 @@ public class UdpConnection extends Connection {
                 }
             }
 
-            sock.close();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug(e);
+            }
+
+            if (selector != null) {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    logger.debug(e);
+                }
+            }
 
             logger.debug("Calling onDisconnected");
             onDisconnected(userRequestDisconnect);
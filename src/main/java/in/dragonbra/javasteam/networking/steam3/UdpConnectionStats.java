@@ -0,0 +1,117 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+/**
+ * Snapshot of the reliability layer of a {@link UdpConnection}.
+ */
+public final class UdpConnectionStats {
+
+    private final long smoothedRtt;
+
+    private final long rttVariance;
+
+    private final long retransmissionTimeout;
+
+    private final int sendWindow;
+
+    private final int slowStartThreshold;
+
+    private final long packetsSent;
+
+    private final long packetsRetransmitted;
+
+    private final long fastRetransmits;
+
+    private final long timeouts;
+
+    UdpConnectionStats(long smoothedRtt, long rttVariance, long retransmissionTimeout, int sendWindow,
+                       int slowStartThreshold, long packetsSent, long packetsRetransmitted, long fastRetransmits,
+                       long timeouts) {
+        this.smoothedRtt = smoothedRtt;
+        this.rttVariance = rttVariance;
+        this.retransmissionTimeout = retransmissionTimeout;
+        this.sendWindow = sendWindow;
+        this.slowStartThreshold = slowStartThreshold;
+        this.packetsSent = packetsSent;
+        this.packetsRetransmitted = packetsRetransmitted;
+        this.fastRetransmits = fastRetransmits;
+        this.timeouts = timeouts;
+    }
+
+    /**
+     * @return The smoothed round trip time in milliseconds, or -1 if no round trip was measured yet.
+     */
+    public long getSmoothedRtt() {
+        return smoothedRtt;
+    }
+
+    /**
+     * @return The round trip time variance in milliseconds, or -1 if no round trip was measured yet.
+     */
+    public long getRttVariance() {
+        return rttVariance;
+    }
+
+    /**
+     * @return The time in milliseconds an unacknowledged packet waits before it is resent.
+     */
+    public long getRetransmissionTimeout() {
+        return retransmissionTimeout;
+    }
+
+    /**
+     * @return The number of sequenced packets that may currently be in flight.
+     */
+    public int getSendWindow() {
+        return sendWindow;
+    }
+
+    /**
+     * @return The window size at which slow start switches to linear growth.
+     */
+    public int getSlowStartThreshold() {
+        return slowStartThreshold;
+    }
+
+    /**
+     * @return The number of sequenced packets sent, including retransmissions.
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * @return The number of sequenced packets sent more than once.
+     */
+    public long getPacketsRetransmitted() {
+        return packetsRetransmitted;
+    }
+
+    /**
+     * @return The number of retransmissions triggered by duplicate acks.
+     */
+    public long getFastRetransmits() {
+        return fastRetransmits;
+    }
+
+    /**
+     * @return The number of times the retransmission timer expired.
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public String toString() {
+        return "UdpConnectionStats{" +
+                "smoothedRtt=" + smoothedRtt +
+                ", rttVariance=" + rttVariance +
+                ", retransmissionTimeout=" + retransmissionTimeout +
+                ", sendWindow=" + sendWindow +
+                ", slowStartThreshold=" + slowStartThreshold +
+                ", packetsSent=" + packetsSent +
+                ", packetsRetransmitted=" + packetsRetransmitted +
+                ", fastRetransmits=" + fastRetransmits +
+                ", timeouts=" + timeouts +
+                '}';
+    }
+}
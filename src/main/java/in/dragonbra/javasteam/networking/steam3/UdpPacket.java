@@ -2,140 +2,124 @@ package in.dragonbra.javasteam.networking.steam3;
 
 import in.dragonbra.javasteam.enums.EUdpPacketType;
 import in.dragonbra.javasteam.generated.UdpHeader;
-import in.dragonbra.javasteam.util.stream.MemoryStream;
-import in.dragonbra.javasteam.util.stream.SeekOrigin;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
+ * Layout of a raw UDP packet: a {@link UdpHeader} followed by up to {@link #MAX_PAYLOAD} bytes of payload.
+ * Fields are read and written in place on byte arrays and buffers, so packets can live in reused storage.
+ *
  * @author lngtr
  * @since 2018-03-01
  */
-class UdpPacket {
+final class UdpPacket {
     public static final int MAX_PAYLOAD = 0x4DC;
 
-    private final UdpHeader header;
-
-    private MemoryStream payload;
+    static final int HEADER_SIZE = 36;
+
+    static final int MAX_PACKET_SIZE = HEADER_SIZE + MAX_PAYLOAD;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int PAYLOAD_SIZE_OFFSET = 4;
+    static final int PACKET_TYPE_OFFSET = 6;
+    static final int FLAGS_OFFSET = 7;
+    static final int SOURCE_CONN_ID_OFFSET = 8;
+    static final int DEST_CONN_ID_OFFSET = 12;
+    static final int SEQ_THIS_OFFSET = 16;
+    static final int SEQ_ACK_OFFSET = 20;
+    static final int PACKETS_IN_MSG_OFFSET = 24;
+    static final int MSG_START_SEQ_OFFSET = 28;
+    static final int MSG_SIZE_OFFSET = 32;
+
+    static final byte CHALLENGE_REQ = EUdpPacketType.ChallengeReq.code();
+    static final byte CHALLENGE = EUdpPacketType.Challenge.code();
+    static final byte CONNECT = EUdpPacketType.Connect.code();
+    static final byte ACCEPT = EUdpPacketType.Accept.code();
+    static final byte DISCONNECT = EUdpPacketType.Disconnect.code();
+    static final byte DATA = EUdpPacketType.Data.code();
+    static final byte DATAGRAM = EUdpPacketType.Datagram.code();
+
+    private UdpPacket() {
+    }
 
     /**
-     * Initializes a new instance of the {@link UdpPacket} class with
-     * Header is populated from the MemoryStream
+     * Writes a header with everything but the connection ids and the ack, which are filled in when the packet is sent.
      *
-     * @param ms The stream containing the packet and it's payload data.
+     * @param packet       The packet storage.
+     * @param type         The packet type.
+     * @param payloadSize  The size of the payload following the header.
+     * @param seqThis      The sequence number of this packet, 0 for unsequenced packets.
+     * @param packetsInMsg The number of packets making up the message.
+     * @param msgStartSeq  The sequence number of the first packet of the message.
+     * @param msgSize      The size of the whole message.
      */
-    UdpPacket(MemoryStream ms) {
-        header = new UdpHeader();
-
-        try {
-            header.deserialize(ms);
-        } catch (IOException e) {
-            return;
-        }
-
-        if (header.getMagic() != UdpHeader.MAGIC) {
-            return;
-        }
-
-        setPayload(ms, header.getPayloadSize());
+    static void writeHeader(byte[] packet, byte type, int payloadSize, int seqThis, int packetsInMsg,
+                            int msgStartSeq, int msgSize) {
+        putInt(packet, MAGIC_OFFSET, UdpHeader.MAGIC);
+        packet[PAYLOAD_SIZE_OFFSET] = (byte) payloadSize;
+        packet[PAYLOAD_SIZE_OFFSET + 1] = (byte) (payloadSize >>> 8);
+        packet[PACKET_TYPE_OFFSET] = type;
+        packet[FLAGS_OFFSET] = 0;
+        putInt(packet, SOURCE_CONN_ID_OFFSET, 0);
+        putInt(packet, DEST_CONN_ID_OFFSET, 0);
+        putInt(packet, SEQ_THIS_OFFSET, seqThis);
+        putInt(packet, SEQ_ACK_OFFSET, 0);
+        putInt(packet, PACKETS_IN_MSG_OFFSET, packetsInMsg);
+        putInt(packet, MSG_START_SEQ_OFFSET, msgStartSeq);
+        putInt(packet, MSG_SIZE_OFFSET, msgSize);
     }
 
     /**
-     * Initializes a new instance of the {@link UdpPacket} class, with no payload.
-     * Header must be populated manually.
+     * Checks that the buffer holds a complete packet: correct magic, payload within bounds and fully present.
      *
-     * @param type The type.
+     * @param buffer A little endian buffer positioned at the start of the datagram, limited to its length.
+     * @return <b>true</b> if the packet is valid; otherwise, <b>false</b>.
      */
-    UdpPacket(EUdpPacketType type) {
-        header = new UdpHeader();
-        payload = new MemoryStream();
+    static boolean isValid(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return false;
+        }
 
-        header.setPacketType(type);
-    }
+        int start = buffer.position();
+        int payloadSize = getPayloadSize(buffer);
 
-    /**
-     * Initializes a new instance of the {@link UdpPacket} class, of the specified type containing the specified payload.
-     * Header must be populated manually.
-     *
-     * @param type    The type.
-     * @param payload The payload.
-     */
-    UdpPacket(EUdpPacketType type, MemoryStream payload) {
-        this(type);
-        setPayload(payload);
+        return buffer.getInt(start + MAGIC_OFFSET) == UdpHeader.MAGIC &&
+                payloadSize <= MAX_PAYLOAD &&
+                HEADER_SIZE + payloadSize <= buffer.remaining();
     }
 
-    /**
-     * Initializes a new instance of the {@link UdpPacket} class, of the specified type containing the first 'length' bytes of specified payload.
-     * Header must be populated manually.
-     *
-     * @param type    The type.
-     * @param payload The payload.
-     * @param length  The length.
-     */
-    UdpPacket(EUdpPacketType type, MemoryStream payload, long length) {
-        this(type);
-        setPayload(payload, length);
+    static int getPayloadSize(ByteBuffer buffer) {
+        return buffer.getShort(buffer.position() + PAYLOAD_SIZE_OFFSET) & 0xFFFF;
     }
 
-    /**
-     * Sets the payload
-     *
-     * @param ms The payload to copy.
-     */
-    public void setPayload(MemoryStream ms) {
-        setPayload(ms, ms.getLength() - ms.getPosition());
+    static byte getPacketType(ByteBuffer buffer) {
+        return buffer.get(buffer.position() + PACKET_TYPE_OFFSET);
     }
 
-    public void setPayload(MemoryStream ms, long length) {
-        if (length > MAX_PAYLOAD) {
-            throw new IllegalArgumentException("Payload length exceeds 0x4DC maximum");
-        }
-
-        byte[] buf = new byte[(int) length];
-        ms.read(buf, 0, buf.length);
-
-        payload = new MemoryStream(buf);
-        header.setPayloadSize((short) payload.getLength());
-        header.setMsgSize((int) payload.getLength());
-
+    static int getInt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(buffer.position() + offset);
     }
 
-    /**
-     * Serializes the UdpPacket.
-     *
-     * @return The serialized packet.
-     */
-    public byte[] getData() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-        try {
-            header.serialize(baos);
-            payload.seek(0, SeekOrigin.BEGIN);
-            baos.write(payload.toByteArray());
-        } catch (IOException ignored) {
-        }
-
-        return baos.toByteArray();
+    static int getPayloadSize(byte[] packet) {
+        return (packet[PAYLOAD_SIZE_OFFSET] & 0xFF) | ((packet[PAYLOAD_SIZE_OFFSET + 1] & 0xFF) << 8);
     }
 
-    /**
-     * Gets a value indicating whether this instance is valid.
-     *
-     * @return <b>true</b> if this instance is valid; otherwise, <b>false</b>.
-     */
-    public boolean isValid() {
-        return header.getMagic() == UdpHeader.MAGIC &&
-                header.getPayloadSize() <= MAX_PAYLOAD &&
-                payload != null;
+    static int getInt(byte[] packet, int offset) {
+        return (packet[offset] & 0xFF) |
+                ((packet[offset + 1] & 0xFF) << 8) |
+                ((packet[offset + 2] & 0xFF) << 16) |
+                ((packet[offset + 3] & 0xFF) << 24);
     }
 
-    public UdpHeader getHeader() {
-        return header;
+    static void putInt(byte[] packet, int offset, int value) {
+        packet[offset] = (byte) value;
+        packet[offset + 1] = (byte) (value >>> 8);
+        packet[offset + 2] = (byte) (value >>> 16);
+        packet[offset + 3] = (byte) (value >>> 24);
     }
 
-    public MemoryStream getPayload() {
-        return payload;
+    static String typeName(byte type) {
+        EUdpPacketType packetType = EUdpPacketType.from(type);
+        return packetType != null ? packetType.toString() : Byte.toString(type);
     }
 }
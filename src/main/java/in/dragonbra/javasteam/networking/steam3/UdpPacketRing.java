@@ -0,0 +1,147 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import java.util.Arrays;
+
+/**
+ * Sequence-indexed ring of raw UDP packets. Slot storage is allocated once and reused, so holding packets costs
+ * no garbage once the ring has warmed up.
+ */
+final class UdpPacketRing {
+
+    private byte[][] packets;
+
+    private int[] lengths;
+
+    private int[] seqs;
+
+    private boolean[] occupied;
+
+    private long[] sentTimes;
+
+    private int[] transmissions;
+
+    private int mask;
+
+    /**
+     * @param capacity The initial number of slots, must be a power of two.
+     */
+    UdpPacketRing(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        allocate(capacity);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    boolean contains(int seq) {
+        int index = seq & mask;
+        return occupied[index] && seqs[index] == seq;
+    }
+
+    /**
+     * Claims the slot for the sequence number and returns its storage.
+     * The caller writes the packet into it and then sets its length with {@link #setLength(int, int)}.
+     */
+    byte[] claim(int seq) {
+        int index = seq & mask;
+        byte[] packet = packets[index];
+        if (packet == null) {
+            packet = new byte[UdpPacket.MAX_PACKET_SIZE];
+            packets[index] = packet;
+        }
+        seqs[index] = seq;
+        lengths[index] = 0;
+        transmissions[index] = 0;
+        occupied[index] = true;
+        return packet;
+    }
+
+    void setLength(int seq, int length) {
+        lengths[seq & mask] = length;
+    }
+
+    /**
+     * @return The packet stored for the sequence number. Only valid if {@link #contains(int)} is true.
+     */
+    byte[] get(int seq) {
+        return packets[seq & mask];
+    }
+
+    int length(int seq) {
+        return lengths[seq & mask];
+    }
+
+    /**
+     * Records the packet being sent.
+     *
+     * @param seq  The sequence number.
+     * @param time The send time in milliseconds.
+     * @return The number of times the packet has been sent, including this one.
+     */
+    int markSent(int seq, long time) {
+        int index = seq & mask;
+        sentTimes[index] = time;
+        return ++transmissions[index];
+    }
+
+    /**
+     * @return The time the packet was last sent.
+     */
+    long sentTime(int seq) {
+        return sentTimes[seq & mask];
+    }
+
+    int transmissions(int seq) {
+        return transmissions[seq & mask];
+    }
+
+    void remove(int seq) {
+        int index = seq & mask;
+        if (seqs[index] == seq) {
+            occupied[index] = false;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(occupied, false);
+    }
+
+    /**
+     * Doubles the capacity, keeping the stored packets. Used when more packets are queued than fit in the ring.
+     */
+    void grow() {
+        byte[][] oldPackets = packets;
+        int[] oldLengths = lengths;
+        int[] oldSeqs = seqs;
+        boolean[] oldOccupied = occupied;
+        long[] oldSentTimes = sentTimes;
+        int[] oldTransmissions = transmissions;
+
+        allocate(oldPackets.length * 2);
+
+        for (int i = 0; i < oldPackets.length; i++) {
+            if (oldOccupied[i]) {
+                int index = oldSeqs[i] & mask;
+                packets[index] = oldPackets[i];
+                lengths[index] = oldLengths[i];
+                seqs[index] = oldSeqs[i];
+                sentTimes[index] = oldSentTimes[i];
+                transmissions[index] = oldTransmissions[i];
+                occupied[index] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        packets = new byte[capacity][];
+        lengths = new int[capacity];
+        seqs = new int[capacity];
+        occupied = new boolean[capacity];
+        sentTimes = new long[capacity];
+        transmissions = new int[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,72 @@
+package `in`.dragonbra.javasteam.networking.steam3
+
+import io.ktor.client.HttpClient
+import io.ktor.client.engine.cio.CIO
+import io.ktor.client.plugins.websocket.WebSockets
+import io.ktor.client.plugins.websocket.pingInterval
+import java.io.Closeable
+import kotlin.time.Duration.Companion.milliseconds
+
+/**
+ * A Ktor [HttpClient] shared by [WebSocketConnection]s, so all connections use one CIO engine with its selector and
+ * thread pool instead of building a client per socket. The client is created on first use.
+ *
+ * @param pingIntervalMillis The interval at which web socket pings are sent, or 0 to disable pings.
+ * @param outboundQueueCapacity The number of messages a connection buffers for its writer.
+ * @param sendTimeoutMillis How long [WebSocketConnection.send] waits for room in a full queue before the connection
+ * is considered stalled, or 0 to not wait.
+ * @param disconnectWhenStalled Whether a stalled connection is disconnected, like a failed write on a TCP connection.
+ * Otherwise the message that didn't fit is dropped and the connection stays open.
+ */
+class WebSocketClientEngine @JvmOverloads constructor(
+    val pingIntervalMillis: Long = DEFAULT_PING_INTERVAL_MILLIS,
+    val outboundQueueCapacity: Int = DEFAULT_OUTBOUND_QUEUE_CAPACITY,
+    val sendTimeoutMillis: Long = DEFAULT_SEND_TIMEOUT_MILLIS,
+    val disconnectWhenStalled: Boolean = true,
+) : Closeable {
+
+    companion object {
+        const val DEFAULT_PING_INTERVAL_MILLIS: Long = 30_000L
+
+        const val DEFAULT_OUTBOUND_QUEUE_CAPACITY: Int = 256
+
+        const val DEFAULT_SEND_TIMEOUT_MILLIS: Long = 5_000L
+
+        /**
+         * The engine shared across the whole process, used unless the configuration specifies another one.
+         */
+        @JvmStatic
+        val default: WebSocketClientEngine by lazy { WebSocketClientEngine() }
+    }
+
+    init {
+        require(pingIntervalMillis >= 0) { "pingIntervalMillis must not be negative" }
+        require(outboundQueueCapacity > 0) { "outboundQueueCapacity must be positive" }
+        require(sendTimeoutMillis >= 0) { "sendTimeoutMillis must not be negative" }
+    }
+
+    private val clientDelegate = lazy {
+        HttpClient(CIO) {
+            install(WebSockets) {
+                if (pingIntervalMillis > 0) {
+                    pingInterval = pingIntervalMillis.milliseconds
+                }
+            }
+        }
+    }
+
+    internal val client: HttpClient by clientDelegate
+
+    /**
+     * Closes the underlying client. Connections opened with this engine stop working.
+     */
+    override fun close() {
+        if (clientDelegate.isInitialized()) {
+            client.close()
+        }
+    }
+
+    override fun toString(): String =
+        "WebSocketClientEngine(pingIntervalMillis=$pingIntervalMillis, outboundQueueCapacity=$outboundQueueCapacity, " +
+            "sendTimeoutMillis=$sendTimeoutMillis, disconnectWhenStalled=$disconnectWhenStalled)"
+}
@@ -1,17 +1,12 @@
 package `in`.dragonbra.javasteam.networking.steam3
 
 import `in`.dragonbra.javasteam.util.log.LogManager
-import io.ktor.client.HttpClient
-import io.ktor.client.engine.cio.CIO
-import io.ktor.client.plugins.websocket.WebSockets
-import io.ktor.client.plugins.websocket.pingInterval
 import io.ktor.client.plugins.websocket.webSocketSession
 import io.ktor.http.URLProtocol
 import io.ktor.http.path
 import io.ktor.websocket.Frame
 import io.ktor.websocket.WebSocketSession
 import io.ktor.websocket.close
-import io.ktor.websocket.readBytes
 import io.ktor.websocket.readText
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
@@ -19,18 +14,31 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.ClosedSendChannelException
 import kotlinx.coroutines.channels.consumeEach
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeoutOrNull
 import java.net.InetAddress
 import java.net.InetSocketAddress
 import kotlin.coroutines.CoroutineContext
-import kotlin.time.DurationUnit
-import kotlin.time.toDuration
 
-class WebSocketConnection :
-    Connection(),
+/**
+ * Web socket connection to a CM server. The underlying HTTP client comes from a [WebSocketClientEngine] shared with
+ * other connections, and outgoing messages go through a bounded queue drained by a single writer, so they are sent in
+ * the order [send] was called.
+ *
+ * If the writer falls so far behind that the queue is full, [send] waits up to
+ * [WebSocketClientEngine.sendTimeoutMillis] for room. Past that the socket is considered stalled: the message is
+ * dropped, and the connection is disconnected unless [WebSocketClientEngine.disconnectWhenStalled] is off.
+ * [trySend] never waits and only drops the message, for callers like the heart beat that must not block.
+ */
+class WebSocketConnection @JvmOverloads constructor(
+    private val engine: WebSocketClientEngine = WebSocketClientEngine.default,
+) : Connection(),
     CoroutineScope {
 
     companion object {
@@ -39,10 +47,12 @@ class WebSocketConnection :
 
     private val job: Job = SupervisorJob()
 
-    private var client: HttpClient? = null
-
+    @Volatile
     private var session: WebSocketSession? = null
 
+    @Volatile
+    private var outbound: Channel<ByteArray>? = null
+
     private var endpoint: InetSocketAddress? = null
 
     private var lastFrameTime = System.currentTimeMillis()
@@ -50,19 +60,17 @@ class WebSocketConnection :
     override val coroutineContext: CoroutineContext = Dispatchers.IO + job
 
     override fun connect(endPoint: InetSocketAddress, timeout: Int) {
+        // messages sent while the socket is being set up are queued and go out once it's open
+        val outbound = Channel<ByteArray>(engine.outboundQueueCapacity)
+        this.outbound = outbound
+
         launch {
             logger.debug("Trying connection to ${endPoint.hostName}:${endPoint.port}")
 
             try {
                 endpoint = endPoint
 
-                client = HttpClient(CIO) {
-                    install(WebSockets) {
-                        pingInterval = timeout.toDuration(DurationUnit.SECONDS)
-                    }
-                }
-
-                val session = client?.webSocketSession {
+                val session = engine.client.webSocketSession {
                     url {
                         host = endPoint.hostName
                         port = endPoint.port
@@ -74,15 +82,18 @@ class WebSocketConnection :
                 this@WebSocketConnection.session = session
 
                 startConnectionMonitoring()
+                startWriter(session, outbound)
 
                 launch {
                     try {
-                        session?.incoming?.consumeEach { frame ->
+                        session.incoming.consumeEach { frame ->
                             when (frame) {
                                 is Frame.Binary -> {
                                     // logger.debug("on Binary ${frame.data.size}")
                                     lastFrameTime = System.currentTimeMillis()
-                                    onNetMsgReceived(NetMsgEventArgs(frame.readBytes(), currentEndPoint))
+                                    // the session hands over a reassembled frame that nothing else references,
+                                    // so its array is passed on as is instead of copied
+                                    onNetMsgReceived(NetMsgEventArgs(frame.data, currentEndPoint))
                                 }
 
                                 is Frame.Close -> disconnect(false)
@@ -113,12 +124,13 @@ class WebSocketConnection :
         logger.debug("Disconnect called: $userInitiated")
         launch {
             try {
+                outbound?.close()
                 session?.close()
-                client?.close()
             } finally {
                 session = null
-                client = null
+                outbound = null
 
+                // the client belongs to the shared engine and stays open
                 job.cancelChildren()
             }
 
@@ -127,30 +139,82 @@ class WebSocketConnection :
     }
 
     override fun send(data: ByteArray) {
-        launch {
-            try {
-                val frame = Frame.Binary(true, data)
-                session?.send(frame)
-            } catch (e: Exception) {
-                logger.error("An error occurred while sending data", e)
-                disconnect(false)
+        val outbound = outbound ?: return
+
+        val result = outbound.trySend(data)
+        if (result.isSuccess) {
+            return
+        }
+
+        if (result.isClosed) {
+            logger.debug("Dropping message, the connection is closed")
+            return
+        }
+
+        val sent = engine.sendTimeoutMillis > 0 && try {
+            runBlocking {
+                withTimeoutOrNull(engine.sendTimeoutMillis) { outbound.send(data) } != null
             }
+        } catch (e: ClosedSendChannelException) {
+            logger.debug("Dropping message, the connection is closed")
+            return
+        }
+
+        if (sent) {
+            return
+        }
+
+        if (!engine.disconnectWhenStalled) {
+            logger.error("Outbound queue is full (${engine.outboundQueueCapacity} messages), dropping message")
+            return
+        }
+
+        // Only the sender that closes the queue disconnects.
+        if (outbound.close()) {
+            logger.error("Outbound queue is full (${engine.outboundQueueCapacity} messages), disconnecting")
+            disconnect(false)
         }
     }
 
+    override fun trySend(data: ByteArray): Boolean {
+        val outbound = outbound ?: return true
+
+        // a closed queue drops the message like send does, only a full one is reported
+        val result = outbound.trySend(data)
+        return result.isSuccess || result.isClosed
+    }
+
     override fun getLocalIP(): InetAddress = InetAddress.getLocalHost()
 
     override fun getCurrentEndPoint(): InetSocketAddress? = endpoint
 
     override fun getProtocolTypes(): ProtocolTypes = ProtocolTypes.WEB_SOCKET
 
+    /**
+     * Sends queued messages one at a time, which keeps them in order.
+     */
+    private fun startWriter(session: WebSocketSession, outbound: Channel<ByteArray>) {
+        launch {
+            try {
+                for (data in outbound) {
+                    session.send(Frame.Binary(true, data))
+                }
+            } catch (e: CancellationException) {
+                logger.debug("Websocket writer cancelling: ${e.message}")
+            } catch (e: Exception) {
+                logger.error("An error occurred while sending data", e)
+                disconnect(false)
+            }
+        }
+    }
+
     /**
      * Rudimentary watchdog
      */
     private fun startConnectionMonitoring() {
         launch {
             while (isActive) {
-                if (client?.isActive == false || session?.isActive == false) {
+                if (!engine.client.isActive || session?.isActive == false) {
                     logger.error("Client or Session is no longer active")
                     disconnect(userInitiated = false)
                 }
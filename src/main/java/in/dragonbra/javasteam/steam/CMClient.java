@@ -24,16 +24,14 @@ import in.dragonbra.javasteam.util.event.EventHandler;
 import in.dragonbra.javasteam.util.event.ScheduledFunction;
 import in.dragonbra.javasteam.util.log.LogManager;
 import in.dragonbra.javasteam.util.log.Logger;
-import in.dragonbra.javasteam.util.stream.BinaryReader;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.Executor;
 
 /**
  * This base client handles the underlying connection to a CM server. This class should not be use directly, but through
@@ -76,7 +74,14 @@ public abstract class CMClient {
 
     private final ScheduledFunction heartBeatFunc;
 
-    private final EventHandler<NetMsgEventArgs> netMsgReceived = (sender, e) -> onClientMsgReceived(getPacketMsg(e.getData()));
+    // decodes and handles incoming messages in order off the connection thread, null to do it on the connection thread
+    @Nullable
+    private final SerialExecutor inbound;
+
+    private final EventHandler<NetMsgEventArgs> netMsgReceived = (sender, e) -> {
+        byte[] data = e.getData();
+        dispatchInbound(() -> onClientMsgReceived(getPacketMsg(data)));
+    };
 
     private final EventHandler<EventArgs> connected = (sender, e) -> {
         logger.debug("EventHandler `connected` called");
@@ -85,12 +90,14 @@ public abstract class CMClient {
 
         isConnected = true;
 
-        try {
-            onClientConnected();
-        } catch (Exception ex) {
-            logger.error("Unhandled exception after connecting: ", ex);
-            disconnect(false);
-        }
+        dispatchInbound(() -> {
+            try {
+                onClientConnected();
+            } catch (Exception ex) {
+                logger.error("Unhandled exception after connecting: ", ex);
+                disconnect(false);
+            }
+        });
     };
 
     private final EventHandler<DisconnectedEventArgs> disconnected = new EventHandler<>() {
@@ -105,17 +112,21 @@ public abstract class CMClient {
                 getServers().tryMark(connection.getCurrentEndPoint(), connection.getProtocolTypes(), ServerQuality.BAD);
             }
 
-            sessionID = null;
-            steamID = null;
-
             connection.getNetMsgReceived().removeEventHandler(netMsgReceived);
             connection.getConnected().removeEventHandler(connected);
             connection.getDisconnected().removeEventHandler(this);
             connection = null;
 
-            heartBeatFunc.stop();
+            // runs after the messages still queued from this connection, which may log on and start heart beating
+            boolean userInitiated = e.isUserInitiated() || expectDisconnection;
+            dispatchInbound(() -> {
+                sessionID = null;
+                steamID = null;
 
-            onClientDisconnected(e.isUserInitiated() || expectDisconnection);
+                heartBeatFunc.stop();
+
+                onClientDisconnected(userInitiated);
+            });
         }
     };
 
@@ -126,11 +137,15 @@ public abstract class CMClient {
 
         this.configuration = configuration;
 
+        Executor inboundExecutor = configuration.getInboundMessageExecutor();
+        inbound = inboundExecutor != null ? new SerialExecutor(inboundExecutor) : null;
+
         heartBeatFunc = new ScheduledFunction(() -> {
             var heartbeat = new ClientMsgProtobuf<CMsgClientHeartBeat.Builder>(
                     CMsgClientHeartBeat.class, EMsg.ClientHeartBeat);
             heartbeat.getBody().setSendReply(true); // Ping Pong
-            send(heartbeat);
+            // runs on the shared scheduler, which must not wait for a stalled connection; a dropped beat is sent again
+            send(heartbeat, false);
         }, 5000);
     }
 
@@ -185,7 +200,7 @@ public abstract class CMClient {
 
                 if (cmServer == null) {
                     logger.error("No CM servers available to connect to");
-                    onClientDisconnected(false);
+                    dispatchInbound(() -> onClientDisconnected(false));
                     return;
                 }
 
@@ -198,7 +213,7 @@ public abstract class CMClient {
                 connection.connect(cmServer.getEndpoint());
             } catch (Exception e) {
                 logger.debug("Failed to connect to Steam network", e);
-                onClientDisconnected(false);
+                dispatchInbound(() -> onClientDisconnected(false));
             }
         }
     }
@@ -227,6 +242,10 @@ public abstract class CMClient {
      * @param msg The client message to send.
      */
     public void send(IClientMsg msg) {
+        send(msg, true);
+    }
+
+    private void send(IClientMsg msg, boolean mayWait) {
         if (msg == null) {
             throw new IllegalArgumentException("A value for 'msg' must be supplied");
         }
@@ -255,8 +274,22 @@ public abstract class CMClient {
         // on the network thread, and that will lead to a disconnect callback
         // down the line
 
+        var connection = this.connection;
+
         if (connection != null) {
-            connection.send(msg.serialize());
+            if (mayWait) {
+                connection.send(msg.serialize());
+            } else if (!connection.trySend(msg.serialize())) {
+                logger.debug("Dropped " + msg.getMsgType() + ", the outbound queue is full");
+            }
+        }
+    }
+
+    private void dispatchInbound(Runnable task) {
+        if (inbound == null) {
+            task.run();
+        } else {
+            inbound.execute(task);
         }
     }
 
@@ -333,12 +366,8 @@ public abstract class CMClient {
             return null;
         }
 
-        int rawEMsg = 0;
-        try (var reader = new BinaryReader(new ByteArrayInputStream(data))) {
-            rawEMsg = reader.readInt();
-        } catch (IOException e) {
-            logger.debug("Exception while getting EMsg code", e);
-        }
+        // little endian EMsg at the start of every message
+        int rawEMsg = (data[0] & 0xFF) | (data[1] & 0xFF) << 8 | (data[2] & 0xFF) << 16 | (data[3] & 0xFF) << 24;
         EMsg eMsg = MsgUtil.getMsg(rawEMsg);
 
         switch (eMsg) {
@@ -372,29 +401,53 @@ public abstract class CMClient {
         }
 
         var msgMulti = new ClientMsgProtobuf<CMsgMulti.Builder>(CMsgMulti.class, packetMsg);
-        var payload = msgMulti.getBody().getMessageBody().toByteArray();
+        var messageBody = msgMulti.getBody().getMessageBody();
+        var sizeUnzipped = msgMulti.getBody().getSizeUnzipped();
 
-        try {
-            InputStream inputStream;
+        var pool = ByteArrayPool.getShared();
+        var payload = pool.rent(messageBody.size());
+        messageBody.copyTo(payload, 0);
 
-            if (msgMulti.getBody().getSizeUnzipped() > 0) {
-                inputStream = new GZIPInputStream(new ByteArrayInputStream(payload));
-            } else {
-                inputStream = new ByteArrayInputStream(payload);
+        var length = messageBody.size();
+        byte[] buffer = payload;
+
+        try {
+            if (sizeUnzipped > 0) {
+                buffer = pool.rent(sizeUnzipped);
+                length = GzipUtil.decompress(payload, 0, messageBody.size(), buffer);
             }
 
-            try (inputStream; var br = new BinaryReader(inputStream)) {
-                while (br.available() > 0) {
-                    var subSize = br.readInt();
-                    var subData = br.readBytes(subSize);
+            var offset = 0;
+            while (offset < length) {
+                if (length - offset < 4) {
+                    logger.debug("HandleMulti got a truncated sub message header");
+                    break;
+                }
+
+                var subSize = (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8 |
+                        (buffer[offset + 2] & 0xFF) << 16 | (buffer[offset + 3] & 0xFF) << 24;
+                offset += 4;
 
-                    if (!onClientMsgReceived(getPacketMsg(subData))) {
-                        break;
-                    }
+                if (subSize < 0 || subSize > length - offset) {
+                    logger.debug("HandleMulti got a sub message of " + subSize + " bytes that exceeds the payload");
+                    break;
+                }
+
+                // the packet may outlive this call (jobs, callbacks), so it gets its own copy of the slice
+                var subData = Arrays.copyOfRange(buffer, offset, offset + subSize);
+                offset += subSize;
+
+                if (!onClientMsgReceived(getPacketMsg(subData))) {
+                    break;
                 }
             }
         } catch (IOException e) {
             logger.error("error in handleMulti()", e);
+        } finally {
+            if (buffer != payload) {
+                pool.release(buffer);
+            }
+            pool.release(payload);
         }
     }
 
@@ -601,6 +654,18 @@ public abstract class CMClient {
         return steamID;
     }
 
+    /**
+     * Gets the queue depth and latencies of decoding and handling incoming messages, when they are handled on the
+     * executor set with {@link in.dragonbra.javasteam.steam.steamclient.configuration.ISteamConfigurationBuilder#withInboundMessageExecutor(Executor)}.
+     * The wait time is how long a message was queued after the connection read it, the run time is how long decoding
+     * and handling it took.
+     *
+     * @return The stats, or <b>null</b> if incoming messages are handled on the connection thread.
+     */
+    public @Nullable SerialExecutorStats getInboundMessageStats() {
+        return inbound != null ? inbound.getStats() : null;
+    }
+
     /**
      * Gets or sets the connection timeout used when connecting to the Steam server.
      *
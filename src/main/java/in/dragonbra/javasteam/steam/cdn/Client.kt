@@ -4,6 +4,7 @@ import `in`.dragonbra.javasteam.steam.handlers.steamcontent.SteamContent
 import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
 import `in`.dragonbra.javasteam.types.ChunkData
 import `in`.dragonbra.javasteam.types.DepotManifest
+import `in`.dragonbra.javasteam.util.ByteArrayPool
 import `in`.dragonbra.javasteam.util.SteamKitWebRequestException
 import `in`.dragonbra.javasteam.util.Strings
 import `in`.dragonbra.javasteam.util.compat.readNBytesCompat
@@ -11,7 +12,6 @@ import `in`.dragonbra.javasteam.util.log.LogManager
 import `in`.dragonbra.javasteam.util.log.Logger
 import `in`.dragonbra.javasteam.util.stream.MemoryStream
 import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.future.future
 import kotlinx.coroutines.withTimeout
 import okhttp3.HttpUrl
@@ -34,7 +34,7 @@ class Client(steamClient: SteamClient) : Closeable {
 
     private val httpClient: OkHttpClient = steamClient.configuration.httpClient
 
-    private val defaultScope = CoroutineScope(Dispatchers.IO)
+    private val defaultScope = CoroutineScope(steamClient.configuration.threading.dispatcher)
 
     companion object {
 
@@ -320,7 +320,7 @@ class Client(steamClient: SteamClient) : Closeable {
             }
 
             // We have to stream into a temporary buffer because a decryption will need to be performed
-            val buffer = ByteArray(contentLength)
+            val buffer = ByteArrayPool.shared.rent(contentLength)
 
             try {
                 val bytesRead = withTimeout(responseBodyTimeout) {
@@ -334,10 +334,12 @@ class Client(steamClient: SteamClient) : Closeable {
                 }
 
                 // process the chunk immediately
-                return DepotChunk.process(chunk, buffer, destination, depotKey)
+                return DepotChunk.processInPlace(chunk, buffer, 0, contentLength, destination, depotKey)
             } catch (ex: Exception) {
                 logger.error("Failed to download a depot chunk ${request.url}", ex)
                 throw ex
+            } finally {
+                ByteArrayPool.shared.release(buffer)
             }
         }
     }
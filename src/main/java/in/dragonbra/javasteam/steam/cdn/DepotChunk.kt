@@ -2,6 +2,7 @@ package `in`.dragonbra.javasteam.steam.cdn
 
 import `in`.dragonbra.javasteam.types.ChunkData
 import `in`.dragonbra.javasteam.util.Adler32
+import `in`.dragonbra.javasteam.util.ByteArrayPool
 import `in`.dragonbra.javasteam.util.Strings
 import `in`.dragonbra.javasteam.util.VZipUtil
 import `in`.dragonbra.javasteam.util.VZstdUtil
@@ -15,9 +16,17 @@ import javax.crypto.spec.SecretKeySpec
 
 /**
  * Provides a helper function to decrypt and decompress a single depot chunk.
+ * The AES ciphers are kept in a small pool and only re-keyed when the depot key changes, so processing a chunk doesn't
+ * look up a cipher provider.
  */
 object DepotChunk {
 
+    private const val IV_LENGTH = 16
+
+    private val MAX_POOLED_CIPHERS = Runtime.getRuntime().availableProcessors()
+
+    private val ciphers = ArrayDeque<ChunkCipher>(MAX_POOLED_CIPHERS)
+
     /**
      * Processes the specified depot key by decrypting the data with the given depot encryption key, and then by decompressing the data.
      * If the chunk has already been processed, this function does nothing.
@@ -25,7 +34,8 @@ object DepotChunk {
      * @param data The encrypted chunk data.
      * @param destination The buffer to receive the decrypted chunk data.
      * @param depotKey The depot decryption key.
-     * @exception IOException Thrown if the processed data does not match the expected checksum given in its chunk information.
+     * @exception IOException Thrown if the data fails to decrypt or decompress, or does not match the expected checksum
+     * given in its chunk information.
      * @exception IllegalArgumentException Thrown if the destination size is too small or the depot key is not 32 bytes long
      */
     @JvmStatic
@@ -34,89 +44,100 @@ object DepotChunk {
         data: ByteArray,
         destination: ByteArray,
         depotKey: ByteArray,
+    ): Int = process(info, data, 0, data.size, destination, depotKey)
+
+    /**
+     * Processes [length] bytes of encrypted chunk data starting at [offset] of [data], see [process].
+     * This lets the data and the destination be larger (e.g. pooled) buffers, the decrypted data is held in a buffer
+     * rented from [ByteArrayPool.shared]. Use [processInPlace] when [data] can be overwritten.
+     * @param info The depot chunk data representing.
+     * @param data The buffer holding the encrypted chunk data.
+     * @param offset The index of the encrypted chunk data in [data].
+     * @param length The length of the encrypted chunk data.
+     * @param destination The buffer to receive the decrypted chunk data.
+     * @param depotKey The depot decryption key.
+     * @return The number of bytes written to [destination].
+     * @exception IOException Thrown if the data fails to decrypt or decompress, or does not match the expected checksum
+     * given in its chunk information.
+     * @exception IllegalArgumentException Thrown if the destination size is too small or the depot key is not 32 bytes long
+     */
+    @JvmStatic
+    fun process(
+        info: ChunkData,
+        data: ByteArray,
+        offset: Int,
+        length: Int,
+        destination: ByteArray,
+        depotKey: ByteArray,
     ): Int {
-        require(destination.size >= info.uncompressedLength) {
-            "The destination buffer must be longer than the chunk ${ChunkData::uncompressedLength.name}."
+        require(offset >= 0 && length >= IV_LENGTH && offset <= data.size - length) {
+            "offset $offset and length $length out of bounds for ${data.size} bytes"
         }
 
-        require(depotKey.size == 32) { "Tried to decrypt depot chunk with non 32 byte key!" }
+        // With CBC and padding, the decrypted size will always be smaller
+        val buffer = ByteArrayPool.shared.rent(length - IV_LENGTH)
 
-        // first 16 bytes of input is the ECB encrypted IV
-        val keySpec = SecretKeySpec(depotKey, "AES")
-        val ecbCipher = Cipher.getInstance("AES/ECB/NoPadding", CryptoHelper.SEC_PROV)
-        ecbCipher.init(Cipher.DECRYPT_MODE, keySpec)
+        try {
+            return process(info, data, offset, length, buffer, 0, destination, depotKey)
+        } finally {
+            ByteArrayPool.shared.release(buffer)
+        }
+    }
+
+    /**
+     * Processes [length] bytes of encrypted chunk data starting at [offset] of [data] like [process], but decrypts the
+     * data in place and decompresses it from there, so no intermediate buffer is needed.
+     * The content of [data] in that range is undefined afterward.
+     * @param info The depot chunk data representing.
+     * @param data The buffer holding the encrypted chunk data, overwritten with the decrypted data.
+     * @param offset The index of the encrypted chunk data in [data].
+     * @param length The length of the encrypted chunk data.
+     * @param destination The buffer to receive the decrypted chunk data.
+     * @param depotKey The depot decryption key.
+     * @return The number of bytes written to [destination].
+     * @exception IOException Thrown if the data fails to decrypt or decompress, or does not match the expected checksum
+     * given in its chunk information.
+     * @exception IllegalArgumentException Thrown if the destination size is too small or the depot key is not 32 bytes long
+     */
+    @JvmStatic
+    fun processInPlace(
+        info: ChunkData,
+        data: ByteArray,
+        offset: Int,
+        length: Int,
+        destination: ByteArray,
+        depotKey: ByteArray,
+    ): Int {
+        require(offset >= 0 && length >= IV_LENGTH && offset <= data.size - length) {
+            "offset $offset and length $length out of bounds for ${data.size} bytes"
+        }
 
-        val iv = ByteArray(16)
-        val ivBytesRead = ecbCipher.doFinal(data, 0, iv.size, iv)
+        return process(info, data, offset, length, data, offset + IV_LENGTH, destination, depotKey)
+    }
 
-        require(iv.size == ivBytesRead) { "Failed to decrypt depot chunk iv (${iv.size} != $ivBytesRead)" }
+    private fun process(
+        info: ChunkData,
+        data: ByteArray,
+        offset: Int,
+        length: Int,
+        buffer: ByteArray,
+        bufferOffset: Int,
+        destination: ByteArray,
+        depotKey: ByteArray,
+    ): Int {
+        require(destination.size >= info.uncompressedLength) {
+            "The destination buffer must be longer than the chunk ${ChunkData::uncompressedLength.name}."
+        }
 
-        // With CBC and padding, the decrypted size will always be smaller
-        val buffer = ByteArray(data.size - iv.size)
-        val cbcCipher = Cipher.getInstance("AES/CBC/PKCS7Padding", CryptoHelper.SEC_PROV)
-        cbcCipher.init(Cipher.DECRYPT_MODE, keySpec, IvParameterSpec(iv))
+        require(depotKey.size == 32) { "Tried to decrypt depot chunk with non 32 byte key!" }
 
         val writtenDecompressed: Int
 
         try {
-            val written = cbcCipher.doFinal(data, iv.size, data.size - iv.size, buffer)
-
-            // Per SK:
-            //  Steam client checks for like 20 bytes for pkzip, and 22 bytes for vzip,
-            //  I'm just being safe and checking for a smaller value.
-            if (buffer.size < 16) {
-                throw IOException("Not enough data in the decrypted depot chunk (was ${buffer.size} bytes).")
-            }
-
-            if (buffer[0] == 'V'.code.toByte() &&
-                buffer[1] == 'S'.code.toByte() &&
-                buffer[2] == 'Z'.code.toByte() &&
-                buffer[3] == 'a'.code.toByte()
-            ) {
-                // Zstd
-                writtenDecompressed = VZstdUtil.decompress(
-                    buffer = buffer.copyOfRange(0, written),
-                    destination = destination,
-                    verifyChecksum = false,
-                )
-            } else if (buffer[0] == 'V'.code.toByte() &&
-                buffer[1] == 'Z'.code.toByte() &&
-                buffer[2] == 'a'.code.toByte()
-            ) {
-                // LZMA
-                MemoryStream(buffer, 0, written).use { decryptedStream ->
-                    writtenDecompressed = VZipUtil.decompress(
-                        ms = decryptedStream,
-                        destination = destination,
-                        verifyChecksum = false
-                    )
-                }
-            } else if (buffer[0] == 'P'.code.toByte() &&
-                buffer[1] == 'K'.code.toByte() &&
-                buffer[2].toInt() == 0x03 &&
-                buffer[3].toInt() == 0x04
-            ) {
-                // Per SK:
-                //  Steam client code performs the same check.
-
-                // PKzip
-                MemoryStream(buffer, 0, written).use { decryptedStream ->
-                    writtenDecompressed = ZipUtil.decompress(
-                        ms = decryptedStream,
-                        destination = destination,
-                        verifyChecksum = false
-                    )
-                }
-            } else {
-                throw IOException(
-                    "Unexpected depot chunk compression " +
-                        "(first four bytes are ${Strings.toHex(buffer.copyOfRange(0, 4))})."
-                )
-            }
+            val written = decrypt(data, offset, length, buffer, bufferOffset, depotKey)
+            writtenDecompressed = decompress(buffer, bufferOffset, written, destination)
         } catch (e: Exception) {
             throw IOException("Failed to decompress chunk ${Strings.toHex(info.chunkID)}: $e\n${e.stackTraceToString()}")
-        } finally {
-            buffer.fill(0)
         }
 
         if (info.uncompressedLength != writtenDecompressed) {
@@ -126,7 +147,7 @@ object DepotChunk {
             )
         }
 
-        val dataCrc = Adler32.calculate(destination.sliceArray(0 until writtenDecompressed))
+        val dataCrc = Adler32.calculate(0, destination, 0, writtenDecompressed)
 
         if (dataCrc != info.checksum) {
             throw IOException("Processed data checksum is incorrect ($dataCrc != ${info.checksum})! Downloaded depot chunk is corrupt or invalid/wrong depot key?")
@@ -134,4 +155,128 @@ object DepotChunk {
 
         return writtenDecompressed
     }
+
+    /**
+     * Decrypts the chunk data into [buffer], which may be [data] itself.
+     * @return The number of decrypted bytes.
+     */
+    private fun decrypt(
+        data: ByteArray,
+        offset: Int,
+        length: Int,
+        buffer: ByteArray,
+        bufferOffset: Int,
+        depotKey: ByteArray,
+    ): Int {
+        // a cipher that threw may be left half way through an operation, so it is only pooled again on success
+        val cipher = rentCipher()
+        cipher.init(depotKey)
+
+        // first 16 bytes of input is the ECB encrypted IV
+        val iv = cipher.iv
+        val ivBytesRead = cipher.ecb.doFinal(data, offset, IV_LENGTH, iv)
+
+        require(iv.size == ivBytesRead) { "Failed to decrypt depot chunk iv (${iv.size} != $ivBytesRead)" }
+
+        cipher.cbc.init(Cipher.DECRYPT_MODE, cipher.keySpec, IvParameterSpec(iv))
+        val written = cipher.cbc.doFinal(data, offset + IV_LENGTH, length - IV_LENGTH, buffer, bufferOffset)
+
+        releaseCipher(cipher)
+
+        return written
+    }
+
+    private fun decompress(buffer: ByteArray, offset: Int, length: Int, destination: ByteArray): Int {
+        // Per SK:
+        //  Steam client checks for like 20 bytes for pkzip, and 22 bytes for vzip,
+        //  I'm just being safe and checking for a smaller value.
+        if (length < 16) {
+            throw IOException("Not enough data in the decrypted depot chunk (was $length bytes).")
+        }
+
+        return if (buffer[offset] == 'V'.code.toByte() &&
+            buffer[offset + 1] == 'S'.code.toByte() &&
+            buffer[offset + 2] == 'Z'.code.toByte() &&
+            buffer[offset + 3] == 'a'.code.toByte()
+        ) {
+            // Zstd
+            VZstdUtil.decompress(
+                buffer = buffer,
+                offset = offset,
+                length = length,
+                destination = destination,
+                verifyChecksum = false,
+            )
+        } else if (buffer[offset] == 'V'.code.toByte() &&
+            buffer[offset + 1] == 'Z'.code.toByte() &&
+            buffer[offset + 2] == 'a'.code.toByte()
+        ) {
+            // LZMA
+            MemoryStream(buffer, offset, length).use { decryptedStream ->
+                VZipUtil.decompress(
+                    ms = decryptedStream,
+                    destination = destination,
+                    verifyChecksum = false
+                )
+            }
+        } else if (buffer[offset] == 'P'.code.toByte() &&
+            buffer[offset + 1] == 'K'.code.toByte() &&
+            buffer[offset + 2].toInt() == 0x03 &&
+            buffer[offset + 3].toInt() == 0x04
+        ) {
+            // Per SK:
+            //  Steam client code performs the same check.
+
+            // PKzip
+            MemoryStream(buffer, offset, length).use { decryptedStream ->
+                ZipUtil.decompress(
+                    ms = decryptedStream,
+                    destination = destination,
+                    verifyChecksum = false
+                )
+            }
+        } else {
+            throw IOException(
+                "Unexpected depot chunk compression " +
+                    "(first four bytes are ${Strings.toHex(buffer.copyOfRange(offset, offset + 4))})."
+            )
+        }
+    }
+
+    private fun rentCipher(): ChunkCipher = synchronized(ciphers) { ciphers.removeLastOrNull() } ?: ChunkCipher()
+
+    private fun releaseCipher(cipher: ChunkCipher) {
+        synchronized(ciphers) {
+            if (ciphers.size < MAX_POOLED_CIPHERS) {
+                ciphers.addLast(cipher)
+            }
+        }
+    }
+
+    /**
+     * The ciphers needed to decrypt a chunk. The ECB cipher keeps the depot key it was initialized with,
+     * the CBC cipher is initialized with the IV of each chunk.
+     */
+    private class ChunkCipher {
+        val ecb: Cipher = Cipher.getInstance("AES/ECB/NoPadding", CryptoHelper.SEC_PROV)
+
+        val cbc: Cipher = Cipher.getInstance("AES/CBC/PKCS7Padding", CryptoHelper.SEC_PROV)
+
+        val iv = ByteArray(IV_LENGTH)
+
+        lateinit var keySpec: SecretKeySpec
+            private set
+
+        private var depotKey: ByteArray? = null
+
+        fun init(depotKey: ByteArray) {
+            if (depotKey.contentEquals(this.depotKey)) {
+                return
+            }
+
+            keySpec = SecretKeySpec(depotKey, "AES")
+            ecb.init(Cipher.DECRYPT_MODE, keySpec)
+            this.depotKey = depotKey.copyOf()
+        }
+    }
 }
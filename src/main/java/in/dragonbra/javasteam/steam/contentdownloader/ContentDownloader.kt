@@ -3,6 +3,7 @@ package `in`.dragonbra.javasteam.steam.contentdownloader
 import `in`.dragonbra.javasteam.enums.EDepotFileFlag
 import `in`.dragonbra.javasteam.enums.EResult
 import `in`.dragonbra.javasteam.steam.cdn.ClientPool
+import `in`.dragonbra.javasteam.steam.cdn.DepotChunk
 import `in`.dragonbra.javasteam.steam.cdn.Server
 import `in`.dragonbra.javasteam.steam.handlers.steamapps.PICSProductInfo
 import `in`.dragonbra.javasteam.steam.handlers.steamapps.PICSRequest
@@ -10,10 +11,13 @@ import `in`.dragonbra.javasteam.steam.handlers.steamapps.SteamApps
 import `in`.dragonbra.javasteam.steam.handlers.steamcontent.SteamContent
 import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
 import `in`.dragonbra.javasteam.types.ChunkData
+import `in`.dragonbra.javasteam.types.ChunkID
 import `in`.dragonbra.javasteam.types.DepotManifest
+import `in`.dragonbra.javasteam.types.DepotManifestDiff
 import `in`.dragonbra.javasteam.types.FileData
 import `in`.dragonbra.javasteam.types.KeyValue
 import `in`.dragonbra.javasteam.util.Adler32
+import `in`.dragonbra.javasteam.util.ByteArrayPool
 import `in`.dragonbra.javasteam.util.SteamKitWebRequestException
 import `in`.dragonbra.javasteam.util.Strings
 import `in`.dragonbra.javasteam.util.Utils
@@ -23,23 +27,32 @@ import `in`.dragonbra.javasteam.util.log.Logger
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Deferred
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
-import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.SendChannel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
 import kotlinx.coroutines.future.future
 import kotlinx.coroutines.isActive
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.sync.Semaphore
-import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
 import java.io.File
 import java.io.FileInputStream
 import java.io.FileOutputStream
+import java.io.InputStream
 import java.io.RandomAccessFile
 import java.nio.ByteBuffer
 import java.nio.file.Paths
 import java.time.Instant
 import java.time.temporal.ChronoUnit
 import java.util.concurrent.CompletableFuture
-import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.coroutines.CoroutineContext
+import kotlin.coroutines.EmptyCoroutineContext
 
 @Suppress("unused", "SpellCheckingInspection")
 class ContentDownloader(val steamClient: SteamClient) {
@@ -53,10 +66,17 @@ class ContentDownloader(val steamClient: SteamClient) {
         internal const val INVALID_APP_ID = Int.MAX_VALUE
         internal const val INVALID_MANIFEST_ID = Long.MAX_VALUE
 
+        // workers of the stages of downloadDepotFiles, besides the maxDownloads workers fetching chunks
+        private const val PLAN_WORKERS = 4
+        private val PROCESS_WORKERS = Runtime.getRuntime().availableProcessors()
+        private const val WRITE_WORKERS = 2
+
         private val logger: Logger = LogManager.getLogger(ContentDownloader::class.java)
     }
 
-    private val defaultScope = CoroutineScope(Dispatchers.IO)
+    private val dispatcher = steamClient.configuration.threading.dispatcher
+
+    private val defaultScope = CoroutineScope(dispatcher)
 
     private fun requestDepotKey(
         appId: Int,
@@ -311,68 +331,127 @@ class ContentDownloader(val steamClient: SteamClient) {
 
         logger.debug("Downloading depot ${depotFilesData.depotDownloadInfo.depotId}")
 
-        val files = depotFilesData.manifest.files.filter { !it.flags.contains(EDepotFileFlag.Directory) }.toTypedArray()
-        val networkChunkQueue = ConcurrentLinkedQueue<Triple<FileStreamData, FileData, ChunkData>>()
+        val files = depotFilesData.manifest.files.filter { !it.flags.contains(EDepotFileFlag.Directory) }
+        val manifestDiff = depotFilesData.manifest.diff(depotFilesData.previousManifest)
+
+        // Planning, fetching, processing and writing run as stages connected by bounded channels, so chunks download
+        // as soon as the first file is planned and the number of chunks in memory doesn't depend on the depot size.
+        val fileQueue = Channel<FileData>(maxDownloads)
+        val networkChunkQueue = Channel<Triple<FileStreamData, FileData, ChunkData>>(maxDownloads * 2)
+        val processQueue = Channel<DownloadedChunk>(maxDownloads)
+        val writeQueue = Channel<DownloadedChunk>(maxDownloads)
 
-        val downloadSemaphore = Semaphore(maxDownloads)
-        files.map { file ->
-            async {
-                downloadSemaphore.withPermit {
-                    downloadDepotFile(depotFilesData, file, networkChunkQueue, onDownloadProgress, parentScope).await()
+        // chunks needed at several places of the depot are downloaded once
+        val sharedChunks = ConcurrentHashMap<ChunkID, SharedChunk>()
+
+        coroutineScope {
+            launch {
+                for (file in files) {
+                    fileQueue.send(file)
                 }
+                fileQueue.close()
             }
-        }.awaitAll()
-
-        networkChunkQueue.map { (fileStreamData, fileData, chunk) ->
-            async {
-                downloadSemaphore.withPermit {
-                    downloadSteam3DepotFileChunk(
-                        cdnPool = cdnPool,
-                        downloadCounter = downloadCounter,
-                        depotFilesData = depotFilesData,
-                        file = fileData,
-                        fileStreamData = fileStreamData,
-                        chunk = chunk,
-                        onDownloadProgress = onDownloadProgress,
-                        parentScope = parentScope
-                    ).await()
+
+            launchStage(PLAN_WORKERS, networkChunkQueue) {
+                for (file in fileQueue) {
+                    downloadDepotFile(depotFilesData, manifestDiff, file, networkChunkQueue, sharedChunks, onDownloadProgress)
                 }
             }
-        }.awaitAll()
+
+            launchStage(maxDownloads, processQueue) {
+                for ((fileStreamData, file, chunk) in networkChunkQueue) {
+                    processQueue.send(fetchDepotFileChunk(cdnPool, depotFilesData, fileStreamData, file, chunk))
+                }
+            }
+
+            // CPU bound, so it gets at most one worker per core of the configured dispatcher
+            launchStage(PROCESS_WORKERS, writeQueue, dispatcher.limitedParallelism(PROCESS_WORKERS)) {
+                for (downloaded in processQueue) {
+                    writeQueue.send(processDepotFileChunk(cdnPool, depotFilesData, downloaded))
+                }
+            }
+
+            launchStage(WRITE_WORKERS, null) {
+                for (processed in writeQueue) {
+                    try {
+                        writeDepotFileChunk(
+                            downloadCounter,
+                            depotFilesData,
+                            sharedChunks,
+                            processed,
+                            onDownloadProgress
+                        )
+                    } finally {
+                        ByteArrayPool.shared.release(processed.data)
+                    }
+                }
+            }
+        }
 
         // Check for deleted files if updating the depot.
-        depotFilesData.previousManifest?.apply {
-            val previousFilteredFiles = files.asSequence().map { it.fileName }.toMutableSet()
+        for (removedFile in manifestDiff.removed) {
+            if (removedFile.flags.contains(EDepotFileFlag.Directory)) {
+                continue
+            }
 
-            // Of the list of files in the previous manifest, remove any file names that exist in the current set of all file names
-            previousFilteredFiles.removeAll(depotFilesData.manifest.files.map { it.fileName }.toSet())
+            val fileFinalPath = Paths.get(depotFilesData.depotDownloadInfo.installDir, removedFile.fileName).toString()
+
+            if (!File(fileFinalPath).exists()) {
+                continue
+            }
 
-            for (existingFileName in previousFilteredFiles) {
-                val fileFinalPath = Paths.get(depotFilesData.depotDownloadInfo.installDir, existingFileName).toString()
+            File(fileFinalPath).delete()
+            logger.debug("Deleted $fileFinalPath")
+        }
+    }
 
-                if (!File(fileFinalPath).exists()) {
-                    continue
+    /**
+     * Starts [workers] coroutines running [block], and closes [output] once all of them are done.
+     * A worker giving up with a [CancellationException] cancels the whole pipeline instead of only itself.
+     */
+    private fun CoroutineScope.launchStage(
+        workers: Int,
+        output: SendChannel<*>?,
+        context: CoroutineContext = EmptyCoroutineContext,
+        block: suspend CoroutineScope.() -> Unit,
+    ) {
+        val pipeline = this
+        val jobs = List(workers) {
+            launch(context) {
+                try {
+                    block()
+                } catch (e: CancellationException) {
+                    pipeline.cancel(e)
+                    throw e
                 }
+            }
+        }
 
-                File(fileFinalPath).delete()
-                logger.debug("Deleted $fileFinalPath")
+        if (output != null) {
+            launch {
+                jobs.joinAll()
+                output.close()
             }
         }
     }
 
-    private fun downloadDepotFile(
+    /**
+     * Plans the chunks [file] needs, queueing to [networkChunkQueue] the ones no other place of the depot downloads.
+     */
+    internal suspend fun downloadDepotFile(
         depotFilesData: DepotFilesData,
+        manifestDiff: DepotManifestDiff,
         file: FileData,
-        networkChunkQueue: ConcurrentLinkedQueue<Triple<FileStreamData, FileData, ChunkData>>,
+        networkChunkQueue: SendChannel<Triple<FileStreamData, FileData, ChunkData>>,
+        sharedChunks: ConcurrentHashMap<ChunkID, SharedChunk>,
         onDownloadProgress: ((Float) -> Unit)? = null,
-        parentScope: CoroutineScope,
-    ) = parentScope.async {
-        if (!isActive) {
-            return@async
+    ) {
+        if (!currentCoroutineContext().isActive) {
+            return
         }
 
         val depotDownloadCounter = depotFilesData.depotCounter
-        val oldManifestFile = depotFilesData.previousManifest?.files?.find { it.fileName == file.fileName }
+        val oldManifestFile = manifestDiff.getPreviousFile(file)
 
         val fileFinalPath = Paths.get(depotFilesData.depotDownloadInfo.installDir, file.fileName).toString()
         val fileStagingPath = Paths.get(depotFilesData.stagingDir, file.fileName).toString()
@@ -401,9 +480,10 @@ class ContentDownloader(val steamClient: SteamClient) {
                     logger.debug("Validating $fileFinalPath")
 
                     val matchingChunks = mutableListOf<ChunkMatch>()
+                    val oldChunks = manifestDiff.getPreviousChunks(file)
 
                     for (chunk in file.chunks) {
-                        val oldChunk = oldManifestFile.chunks.find { it.chunkID.contentEquals(chunk.chunkID) }
+                        val oldChunk = oldChunks[ChunkID.of(chunk)]
                         if (oldChunk != null) {
                             matchingChunks.add(ChunkMatch(oldChunk, chunk))
                         } else {
@@ -419,14 +499,19 @@ class ContentDownloader(val steamClient: SteamClient) {
                         for (match in orderedChunks) {
                             fsOld.channel.position(match.oldChunk.offset)
 
-                            val tmp = ByteArray(match.oldChunk.uncompressedLength)
-                            fsOld.readNBytesCompat(tmp, 0, tmp.size)
+                            val length = match.oldChunk.uncompressedLength
+                            val tmp = ByteArrayPool.shared.rent(length)
+                            try {
+                                readChunk(fsOld, tmp, length)
 
-                            val adler = Adler32.calculate(tmp)
-                            if (adler != match.oldChunk.checksum) {
-                                neededChunks.add(match.newChunk)
-                            } else {
-                                copyChunks.add(match)
+                                val adler = Adler32.calculate(0, tmp, 0, length)
+                                if (adler != match.oldChunk.checksum) {
+                                    neededChunks.add(match.newChunk)
+                                } else {
+                                    copyChunks.add(match)
+                                }
+                            } finally {
+                                ByteArrayPool.shared.release(tmp)
                             }
                         }
                     }
@@ -441,11 +526,16 @@ class ContentDownloader(val steamClient: SteamClient) {
                                 for (match in copyChunks) {
                                     fsOld.channel.position(match.oldChunk.offset)
 
-                                    val tmp = ByteArray(match.oldChunk.uncompressedLength)
-                                    fsOld.readNBytesCompat(tmp, 0, tmp.size)
+                                    val length = match.oldChunk.uncompressedLength
+                                    val tmp = ByteArrayPool.shared.rent(length)
+                                    try {
+                                        readChunk(fsOld, tmp, length)
 
-                                    fs.channel.position(match.newChunk.offset)
-                                    fs.write(tmp)
+                                        fs.channel.position(match.newChunk.offset)
+                                        fs.write(tmp, 0, length)
+                                    } finally {
+                                        ByteArrayPool.shared.release(tmp)
+                                    }
                                 }
                             }
                         }
@@ -479,7 +569,7 @@ class ContentDownloader(val steamClient: SteamClient) {
                     this(totalPercent)
                 }
 
-                return@async
+                return
             }
 
             val sizeOnDisk = file.totalSize - neededChunks.sumOf { it.uncompressedLength.toLong() }
@@ -510,30 +600,43 @@ class ContentDownloader(val steamClient: SteamClient) {
         )
 
         for (chunk in neededChunks) {
-            networkChunkQueue.add(Triple(fileStreamData, file, chunk))
+            val destination = Triple(fileStreamData, file, chunk)
+
+            var isFirst = false
+            val sharedChunk = sharedChunks.computeIfAbsent(ChunkID.of(chunk)) {
+                isFirst = true
+                SharedChunk()
+            }
+
+            if (isFirst) {
+                networkChunkQueue.send(destination)
+                continue
+            }
+
+            val source = sharedChunk.add(destination)
+
+            if (source != null) {
+                copyDepotFileChunk(depotFilesData, source, destination, onDownloadProgress)
+            }
         }
     }
 
-    private fun downloadSteam3DepotFileChunk(
+    /**
+     * Downloads the still encrypted and compressed data of a chunk into a buffer rented from [ByteArrayPool.shared],
+     * trying other servers until one has it.
+     */
+    private suspend fun fetchDepotFileChunk(
         cdnPool: ClientPool,
-        downloadCounter: GlobalDownloadCounter,
         depotFilesData: DepotFilesData,
-        file: FileData,
         fileStreamData: FileStreamData,
+        file: FileData,
         chunk: ChunkData,
-        onDownloadProgress: ((Float) -> Unit)? = null,
-        parentScope: CoroutineScope,
-    ) = parentScope.async {
-        if (!isActive) {
-            return@async
-        }
-
+    ): DownloadedChunk {
         val depot = depotFilesData.depotDownloadInfo
-        val depotDownloadCounter = depotFilesData.depotCounter
 
         val chunkID = Strings.toHex(chunk.chunkID)
 
-        var outputChunkData = ByteArray(chunk.uncompressedLength)
+        val data = ByteArrayPool.shared.rent(chunk.compressedLength)
         var writtenBytes = 0
 
         do {
@@ -542,13 +645,13 @@ class ContentDownloader(val steamClient: SteamClient) {
             try {
                 connection = cdnPool.getConnection().await()
 
-                outputChunkData = ByteArray(chunk.uncompressedLength)
+                // without a depot key the client hands over the data as it was downloaded
                 writtenBytes = cdnPool.cdnClient.downloadDepotChunk(
                     depotId = depot.depotId,
                     chunk = chunk,
                     server = connection!!,
-                    destination = outputChunkData,
-                    depotKey = depot.depotKey,
+                    destination = data,
+                    depotKey = null,
                     proxyServer = cdnPool.proxyServer
                 )
 
@@ -564,32 +667,171 @@ class ContentDownloader(val steamClient: SteamClient) {
 
                     else -> logger.error("Encountered error downloading chunk $chunkID: ${e.statusCode}")
                 }
-            } catch (e: NoClassDefFoundError) {
-                // Zstd is a 'compileOnly' dependency.
-                throw CancellationException(e.message)
             } catch (e: Exception) {
                 cdnPool.returnBrokenConnection(connection)
 
                 logger.error("Encountered unexpected error downloading chunk $chunkID", e)
             }
-        } while (isActive && writtenBytes <= 0)
+        } while (currentCoroutineContext().isActive && writtenBytes <= 0)
 
         if (writtenBytes <= 0) {
+            ByteArrayPool.shared.release(data)
             logger.error("Failed to find any server with chunk $chunkID for depot ${depot.depotId}. Aborting.")
             throw CancellationException("Failed to download chunk")
         }
 
+        return DownloadedChunk(fileStreamData, file, chunk, data, writtenBytes)
+    }
+
+    /**
+     * Decrypts and decompresses a downloaded chunk, downloading it again if the data turns out to be corrupt.
+     * The buffer of the downloaded chunk is released to [ByteArrayPool.shared] once it has been processed.
+     */
+    private suspend fun processDepotFileChunk(
+        cdnPool: ClientPool,
+        depotFilesData: DepotFilesData,
+        downloaded: DownloadedChunk,
+    ): DownloadedChunk {
+        // without a depot key the chunk is stored as downloaded
+        val depotKey = depotFilesData.depotDownloadInfo.depotKey ?: return downloaded
+        val chunk = downloaded.chunk
+
+        var input = downloaded
+
+        while (true) {
+            val outputChunkData = ByteArrayPool.shared.rent(chunk.uncompressedLength)
+
+            try {
+                val writtenBytes = DepotChunk.processInPlace(chunk, input.data, 0, input.length, outputChunkData, depotKey)
+
+                return DownloadedChunk(input.fileStreamData, input.file, chunk, outputChunkData, writtenBytes)
+            } catch (e: NoClassDefFoundError) {
+                ByteArrayPool.shared.release(outputChunkData)
+                // Zstd is a 'compileOnly' dependency.
+                throw CancellationException(e.message)
+            } catch (e: Exception) {
+                ByteArrayPool.shared.release(outputChunkData)
+                logger.error("Failed to process chunk ${Strings.toHex(chunk.chunkID)}, downloading it again", e)
+            } finally {
+                ByteArrayPool.shared.release(input.data)
+            }
+
+            currentCoroutineContext().ensureActive()
+
+            // fetched outside the process stage's parallelism limit, so waiting on the network doesn't hold a worker
+            input = withContext(dispatcher) {
+                fetchDepotFileChunk(cdnPool, depotFilesData, input.fileStreamData, input.file, chunk)
+            }
+        }
+    }
+
+    /**
+     * Writes a processed chunk to the place it was downloaded for and to the places of [sharedChunks] waiting for it.
+     */
+    internal suspend fun writeDepotFileChunk(
+        downloadCounter: GlobalDownloadCounter,
+        depotFilesData: DepotFilesData,
+        sharedChunks: ConcurrentHashMap<ChunkID, SharedChunk>,
+        processed: DownloadedChunk,
+        onDownloadProgress: ((Float) -> Unit)? = null,
+    ) {
+        val depotDownloadCounter = depotFilesData.depotCounter
+        val chunk = processed.chunk
+
+        writeChunkData(
+            depotFilesData,
+            processed.fileStreamData,
+            processed.file,
+            chunk,
+            processed.data,
+            processed.length,
+            onDownloadProgress
+        )
+
+        synchronized(depotDownloadCounter) {
+            depotDownloadCounter.depotBytesCompressed += chunk.compressedLength
+            depotDownloadCounter.depotBytesUncompressed += chunk.uncompressedLength
+        }
+
+        synchronized(downloadCounter) {
+            downloadCounter.totalBytesCompressed += chunk.compressedLength
+            downloadCounter.totalBytesUncompressed += chunk.uncompressedLength
+        }
+
+        // Places planned while the chunk was downloading get it from memory, later ones copy it from the file
+        val sharedChunk = sharedChunks[ChunkID.of(chunk)] ?: return
+        val sourcePath = Paths.get(depotFilesData.depotDownloadInfo.installDir, processed.file.fileName).toString()
+        val destinations = sharedChunk.written(SharedChunk.Source(sourcePath, chunk.offset, chunk.uncompressedLength))
+
+        for ((fileStreamData, file, destinationChunk) in destinations) {
+            writeChunkData(
+                depotFilesData,
+                fileStreamData,
+                file,
+                destinationChunk,
+                processed.data,
+                processed.length,
+                onDownloadProgress
+            )
+        }
+    }
+
+    /**
+     * Copies a chunk that was already written to another place of the depot, instead of downloading it again.
+     */
+    private suspend fun copyDepotFileChunk(
+        depotFilesData: DepotFilesData,
+        source: SharedChunk.Source,
+        destination: Triple<FileStreamData, FileData, ChunkData>,
+        onDownloadProgress: ((Float) -> Unit)? = null,
+    ) {
+        val (fileStreamData, file, chunk) = destination
+
+        val length = source.length
+        val data = ByteArrayPool.shared.rent(length)
+
+        try {
+            RandomAccessFile(source.path, "r").use { fs ->
+                fs.seek(source.offset)
+                fs.readFully(data, 0, length)
+            }
+
+            writeChunkData(depotFilesData, fileStreamData, file, chunk, data, length, onDownloadProgress)
+        } finally {
+            ByteArrayPool.shared.release(data)
+        }
+    }
+
+    /**
+     * Reads [length] bytes of a chunk into a rented [buffer], as zeroes where the file is shorter than the chunk.
+     */
+    private fun readChunk(input: InputStream, buffer: ByteArray, length: Int) {
+        val read = input.readNBytesCompat(buffer, 0, length)
+        buffer.fill(0, read, length)
+    }
+
+    private suspend fun writeChunkData(
+        depotFilesData: DepotFilesData,
+        fileStreamData: FileStreamData,
+        file: FileData,
+        chunk: ChunkData,
+        data: ByteArray,
+        length: Int,
+        onDownloadProgress: ((Float) -> Unit)? = null,
+    ) {
+        val depotDownloadCounter = depotFilesData.depotCounter
+
         try {
             fileStreamData.fileLock.acquire()
 
             if (fileStreamData.fileStream == null) {
-                val fileFinalPath = Paths.get(depot.installDir, file.fileName).toString()
+                val fileFinalPath = Paths.get(depotFilesData.depotDownloadInfo.installDir, file.fileName).toString()
                 val randomAccessFile = RandomAccessFile(fileFinalPath, "rw")
                 fileStreamData.fileStream = randomAccessFile.channel
             }
 
             fileStreamData.fileStream?.position(chunk.offset)
-            fileStreamData.fileStream?.write(ByteBuffer.wrap(outputChunkData, 0, writtenBytes))
+            fileStreamData.fileStream?.write(ByteBuffer.wrap(data, 0, length))
         } finally {
             fileStreamData.fileLock.release()
         }
@@ -601,17 +843,8 @@ class ContentDownloader(val steamClient: SteamClient) {
             fileStreamData.fileStream?.close()
         }
 
-        var sizeDownloaded: Long
         synchronized(depotDownloadCounter) {
-            sizeDownloaded = depotDownloadCounter.sizeDownloaded + outputChunkData.size
-            depotDownloadCounter.sizeDownloaded = sizeDownloaded
-            depotDownloadCounter.depotBytesCompressed += chunk.compressedLength
-            depotDownloadCounter.depotBytesUncompressed += chunk.uncompressedLength
-        }
-
-        synchronized(downloadCounter) {
-            downloadCounter.totalBytesCompressed += chunk.compressedLength
-            downloadCounter.totalBytesUncompressed += chunk.uncompressedLength
+            depotDownloadCounter.sizeDownloaded += chunk.uncompressedLength
         }
 
         onDownloadProgress?.invoke(
@@ -0,0 +1,16 @@
+package `in`.dragonbra.javasteam.steam.contentdownloader
+
+import `in`.dragonbra.javasteam.types.ChunkData
+import `in`.dragonbra.javasteam.types.FileData
+
+/**
+ * A chunk passed between the stages of a depot download, with the first [length] bytes of [data] holding
+ * either the downloaded or the processed chunk.
+ */
+internal class DownloadedChunk(
+    val fileStreamData: FileStreamData,
+    val file: FileData,
+    val chunk: ChunkData,
+    val data: ByteArray,
+    val length: Int,
+)
@@ -0,0 +1,56 @@
+package `in`.dragonbra.javasteam.steam.contentdownloader
+
+import `in`.dragonbra.javasteam.types.ChunkData
+import `in`.dragonbra.javasteam.types.FileData
+
+/**
+ * A chunk of a depot download with all the places it's needed at, so that a chunk used by several files or at several
+ * offsets is only downloaded once. Places added before the chunk is written get the downloaded data, later ones copy
+ * it from where it was written first. Once written, only that location is kept, not the places or the chunk data.
+ */
+internal class SharedChunk {
+
+    // the other places the chunk is needed at, waiting for it to be written
+    private var pending: MutableList<Triple<FileStreamData, FileData, ChunkData>>? = null
+
+    /**
+     * Where the chunk was written first, null until it is.
+     */
+    @get:Synchronized
+    var source: Source? = null
+        private set
+
+    /**
+     * Adds a place the chunk is needed at, besides the one it's downloaded for.
+     * @return where to copy the chunk from if it was already written, otherwise null and the place gets the chunk
+     * when it's written, see [written].
+     */
+    @Synchronized
+    fun add(destination: Triple<FileStreamData, FileData, ChunkData>): Source? {
+        source?.let { return it }
+
+        val pending = pending ?: mutableListOf<Triple<FileStreamData, FileData, ChunkData>>().also { pending = it }
+        pending.add(destination)
+
+        return null
+    }
+
+    /**
+     * Records where the chunk was written.
+     * @return the places that were waiting for the chunk, which the caller has to write it to.
+     */
+    @Synchronized
+    fun written(source: Source): List<Triple<FileStreamData, FileData, ChunkData>> {
+        this.source = source
+
+        return pending.orEmpty().also { pending = null }
+    }
+
+    /**
+     * The location of a written chunk.
+     * @param path The path of the file holding the chunk.
+     * @param offset The offset of the chunk in the file.
+     * @param length The uncompressed length of the chunk.
+     */
+    data class Source(val path: String, val offset: Long, val length: Int)
+}
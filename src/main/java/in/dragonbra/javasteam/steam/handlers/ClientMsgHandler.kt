@@ -1,6 +1,7 @@
 package `in`.dragonbra.javasteam.steam.handlers
 
 import `in`.dragonbra.javasteam.base.IPacketMsg
+import `in`.dragonbra.javasteam.enums.EMsg
 import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
 import `in`.dragonbra.javasteam.steam.steamclient.callbacks.DisconnectedCallback
 
@@ -31,6 +32,14 @@ abstract class ClientMsgHandler {
             client.isExpectDisconnection = expectDisconnection
         }
 
+    /**
+     * Gets the messages this handler consumes. [SteamClient] only passes these messages to [handleMsg],
+     * it reads them once when the handler is added.
+     * If null, the default, the handler is passed every message.
+     */
+    open val handledMessages: Set<EMsg>?
+        get() = null
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
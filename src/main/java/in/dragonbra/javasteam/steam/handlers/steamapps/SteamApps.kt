@@ -40,6 +40,7 @@ import `in`.dragonbra.javasteam.types.AsyncJobSingle
 import `in`.dragonbra.javasteam.types.GameID
 import `in`.dragonbra.javasteam.util.NetHelpers
 import io.ktor.client.request.request
+import java.util.EnumSet
 
 /**
  * This handler is used for interacting with apps and packages on the Steam network.
@@ -438,6 +439,24 @@ class SteamApps : ClientMsgHandler() {
         client.send(request)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientLicenseList,
+        EMsg.ClientRequestFreeLicenseResponse,
+        EMsg.ClientPurchaseResponse,
+        EMsg.ClientRedeemGuestPassResponse,
+        EMsg.ClientGameConnectTokens,
+        EMsg.ClientVACBanStatus,
+        EMsg.ClientGetAppOwnershipTicketResponse,
+        EMsg.ClientGetDepotDecryptionKeyResponse,
+        EMsg.ClientGetLegacyGameKeyResponse,
+        EMsg.ClientPICSAccessTokenResponse,
+        EMsg.ClientPICSChangesSinceResponse,
+        EMsg.ClientPICSProductInfoResponse,
+        EMsg.ClientUpdateGuestPassesList,
+        EMsg.ClientCheckAppBetaPasswordResponse,
+        EMsg.ClientPICSPrivateBetaResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      *
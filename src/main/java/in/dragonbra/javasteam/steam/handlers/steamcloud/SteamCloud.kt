@@ -38,6 +38,7 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.future.future
 import java.util.Date
+import java.util.EnumSet
 import java.util.concurrent.CompletableFuture
 
 /**
@@ -523,6 +524,12 @@ class SteamCloud : ClientMsgHandler() {
         cloudService.externalStorageTransferReport(request.build())
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientUFSGetUGCDetailsResponse,
+        EMsg.ClientUFSGetSingleFileInfoResponse,
+        EMsg.ClientUFSShareFileResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
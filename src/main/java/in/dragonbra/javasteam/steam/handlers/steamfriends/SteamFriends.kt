@@ -713,6 +713,29 @@ class SteamFriends : ClientMsgHandler() {
         return chatID
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientPersonaState,
+        EMsg.ClientFriendsList,
+        EMsg.ClientChatGetFriendMessageHistoryResponse,
+        EMsg.ClientAccountInfo,
+        EMsg.ClientPersonaChangeResponse,
+        EMsg.ClientClanState,
+        EMsg.ClientFriendMsgIncoming,
+        EMsg.ClientFriendMsgEchoToSender,
+        EMsg.ClientAddFriendResponse,
+        EMsg.ClientChatEnter,
+        EMsg.ClientChatMsg,
+        EMsg.ClientChatMemberInfo,
+        EMsg.ClientChatRoomInfo,
+        EMsg.ClientChatActionResult,
+        EMsg.ClientChatInvite,
+        EMsg.ClientSetIgnoreFriendResponse,
+        EMsg.ClientFriendProfileInfoResponse,
+        EMsg.ClientAMGetPersonaNameHistoryResponse,
+        EMsg.ClientPlayerNicknameList,
+        EMsg.AMClientSetPlayerNicknameResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
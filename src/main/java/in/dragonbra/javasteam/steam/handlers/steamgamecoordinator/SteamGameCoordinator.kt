@@ -9,6 +9,7 @@ import `in`.dragonbra.javasteam.protobufs.steamclient.SteammessagesClientserver2
 import `in`.dragonbra.javasteam.steam.handlers.ClientMsgHandler
 import `in`.dragonbra.javasteam.steam.handlers.steamgamecoordinator.callback.MessageCallback
 import `in`.dragonbra.javasteam.util.MsgUtil
+import java.util.EnumSet
 
 /**
  * This handler handles all game coordinator messaging.
@@ -33,6 +34,10 @@ class SteamGameCoordinator : ClientMsgHandler() {
         client.send(clientMsg)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientFromGC,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      *
@@ -23,6 +23,7 @@ import `in`.dragonbra.javasteam.util.HardwareUtils
 import `in`.dragonbra.javasteam.util.NetHelpers
 import `in`.dragonbra.javasteam.util.Utils
 import java.net.Inet6Address
+import java.util.EnumSet
 
 /**
  * This handler is used for interacting with the Steam network as a game server.
@@ -140,6 +141,11 @@ class SteamGameServer : ClientMsgHandler() {
         client.send(status)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.GSStatusReply,
+        EMsg.ClientTicketAuthComplete,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
@@ -9,6 +9,7 @@ import `in`.dragonbra.javasteam.steam.handlers.steammasterserver.callback.QueryC
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
 import `in`.dragonbra.javasteam.types.AsyncJobSingle
 import `in`.dragonbra.javasteam.util.NetHelpers
+import java.util.EnumSet
 
 /**
  * This handler is used for requesting server list details from Steam.
@@ -46,6 +47,10 @@ class SteamMasterServer : ClientMsgHandler() {
         return AsyncJobSingle(this.client, query.sourceJobID)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.GMSClientServerQueryResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
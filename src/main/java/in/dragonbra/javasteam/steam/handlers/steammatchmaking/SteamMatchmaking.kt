@@ -41,6 +41,7 @@ import `in`.dragonbra.javasteam.types.AsyncJobSingle
 import `in`.dragonbra.javasteam.types.JobID
 import `in`.dragonbra.javasteam.types.SteamID
 import `in`.dragonbra.javasteam.util.NetHelpers
+import java.util.EnumSet
 import java.util.concurrent.ConcurrentHashMap
 
 /**
@@ -378,6 +379,18 @@ class SteamMatchmaking : ClientMsgHandler() {
         client.send(msg)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientMMSCreateLobbyResponse,
+        EMsg.ClientMMSSetLobbyDataResponse,
+        EMsg.ClientMMSSetLobbyOwnerResponse,
+        EMsg.ClientMMSLobbyData,
+        EMsg.ClientMMSGetLobbyListResponse,
+        EMsg.ClientMMSJoinLobbyResponse,
+        EMsg.ClientMMSLeaveLobbyResponse,
+        EMsg.ClientMMSUserJoinedLobby,
+        EMsg.ClientMMSUserLeftLobby,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
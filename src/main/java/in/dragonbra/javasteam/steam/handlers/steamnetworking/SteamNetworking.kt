@@ -9,6 +9,7 @@ import `in`.dragonbra.javasteam.steam.handlers.ClientMsgHandler
 import `in`.dragonbra.javasteam.steam.handlers.steamnetworking.callback.NetworkingCertificateCallback
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
 import `in`.dragonbra.javasteam.types.AsyncJobSingle
+import java.util.EnumSet
 
 /**
  * This handler is used for Steam networking sockets
@@ -40,6 +41,10 @@ class SteamNetworking : ClientMsgHandler() {
         return AsyncJobSingle(this.client, msg.sourceJobID)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientNetworkingCertRequestResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
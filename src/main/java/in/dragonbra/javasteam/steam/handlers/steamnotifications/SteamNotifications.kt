@@ -12,6 +12,7 @@ import `in`.dragonbra.javasteam.steam.handlers.steamnotifications.callback.ItemA
 import `in`.dragonbra.javasteam.steam.handlers.steamnotifications.callback.OfflineMessageNotificationCallback
 import `in`.dragonbra.javasteam.steam.handlers.steamnotifications.callback.UserNotificationsCallback
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
+import java.util.EnumSet
 
 /**
  * This handler handles steam notifications.
@@ -51,6 +52,13 @@ class SteamNotifications : ClientMsgHandler() {
         ).also(client::send)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientUserNotifications,
+        EMsg.ClientChatOfflineMessageNotification,
+        EMsg.ClientCommentNotifications,
+        EMsg.ClientItemAnnouncements,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
@@ -10,6 +10,7 @@ import `in`.dragonbra.javasteam.steam.handlers.ClientMsgHandler
 import `in`.dragonbra.javasteam.steam.handlers.steamunifiedmessages.callback.ServiceMethodNotification
 import `in`.dragonbra.javasteam.steam.handlers.steamunifiedmessages.callback.ServiceMethodResponse
 import `in`.dragonbra.javasteam.types.AsyncJobSingle
+import java.util.EnumSet
 import java.util.concurrent.ConcurrentHashMap
 
 /**
@@ -127,6 +128,11 @@ class SteamUnifiedMessages : ClientMsgHandler() {
         client.send(msg)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ServiceMethod,
+        EMsg.ServiceMethodResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
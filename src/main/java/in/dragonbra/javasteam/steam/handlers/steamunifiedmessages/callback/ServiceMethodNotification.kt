@@ -26,13 +26,17 @@ class ServiceMethodNotification<T : GeneratedMessage.Builder<T>>(
     val jobName: String
 
     /**
-     * The protobuf body.
+     * The protobuf message class of [body], available without decoding the body.
      */
-    val body: T
+    val messageClass: Class<out AbstractMessage> = clazz
+
+    /**
+     * The protobuf body. It is decoded from the packet the first time it is accessed.
+     */
+    val body: T by lazy { ClientMsgProtobuf<T>(clazz, packetMsg).body }
 
     init {
         jobID = JobID.INVALID
         jobName = packetMsg.header.proto.targetJobName
-        body = ClientMsgProtobuf<T>(clazz, packetMsg).body
     }
 }
@@ -27,14 +27,18 @@ class ServiceMethodResponse<T : GeneratedMessage.Builder<T>>(
     val result: EResult
 
     /**
-     * The protobuf body.
+     * The protobuf message class of [body], available without decoding the body.
      */
-    val body: T
+    val messageClass: Class<out AbstractMessage> = clazz
+
+    /**
+     * The protobuf body. It is decoded from the packet the first time it is accessed.
+     */
+    val body: T by lazy { ClientMsgProtobuf<T>(clazz, packetMsg).body }
 
     init {
         val protoHeader = packetMsg.header.proto
         jobID = JobID(protoHeader.jobidTarget)
         result = EResult.from(protoHeader.eresult)
-        body = ClientMsgProtobuf<T>(clazz, packetMsg).body
     }
 }
@@ -29,6 +29,7 @@ import `in`.dragonbra.javasteam.steam.steamclient.callbacks.DisconnectedCallback
 import `in`.dragonbra.javasteam.types.SteamID
 import `in`.dragonbra.javasteam.util.HardwareUtils
 import `in`.dragonbra.javasteam.util.NetHelpers
+import java.util.EnumSet
 
 /**
  * This handler handles all user log on/log off related actions and callbacks.
@@ -38,6 +39,19 @@ class SteamUser : ClientMsgHandler() {
     val steamID: SteamID?
         get() = client.steamID
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientLogOnResponse,
+        EMsg.ClientLoggedOff,
+        EMsg.ClientSessionToken,
+        EMsg.ClientAccountInfo,
+        EMsg.ClientEmailAddrInfo,
+        EMsg.ClientWalletInfoUpdate,
+        EMsg.ClientRequestWebAPIAuthenticateUserNonceResponse,
+        EMsg.ClientVanityURLChangedNotification,
+        EMsg.ClientMarketingMessageUpdate2,
+        EMsg.ClientPlayingSessionState,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
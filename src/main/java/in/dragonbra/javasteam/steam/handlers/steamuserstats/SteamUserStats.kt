@@ -18,6 +18,7 @@ import `in`.dragonbra.javasteam.steam.handlers.steamuserstats.callback.UserStats
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
 import `in`.dragonbra.javasteam.types.AsyncJobSingle
 import `in`.dragonbra.javasteam.types.SteamID
+import java.util.EnumSet
 
 /**
  * This handler handles Steam user statistic related actions.
@@ -174,6 +175,13 @@ class SteamUserStats : ClientMsgHandler() {
         return AsyncJobSingle(this.client, msg.sourceJobID)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientGetNumberOfCurrentPlayersDPResponse,
+        EMsg.ClientLBSFindOrCreateLBResponse,
+        EMsg.ClientLBSGetLBEntriesResponse,
+        EMsg.ClientGetUserStatsResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
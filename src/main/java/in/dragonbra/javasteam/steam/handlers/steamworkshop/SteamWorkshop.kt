@@ -8,6 +8,7 @@ import `in`.dragonbra.javasteam.steam.handlers.ClientMsgHandler
 import `in`.dragonbra.javasteam.steam.handlers.steamworkshop.callback.UserActionPublishedFilesCallback
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
 import `in`.dragonbra.javasteam.types.AsyncJobSingle
+import java.util.EnumSet
 
 /**
  * This handler is used for requesting files published on the Steam Workshop.
@@ -39,6 +40,10 @@ class SteamWorkshop : ClientMsgHandler() {
         return AsyncJobSingle(this.client, enumRequest.sourceJobID)
     }
 
+    override val handledMessages: Set<EMsg> = EnumSet.of(
+        EMsg.ClientUCMEnumeratePublishedFilesByUserActionResponse,
+    )
+
     /**
      * Handles a client message. This should not be called directly.
      * @param packetMsg The packet message that contains the data.
@@ -3,32 +3,66 @@ package `in`.dragonbra.javasteam.steam.steamclient
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
 import `in`.dragonbra.javasteam.types.AsyncJob
 import `in`.dragonbra.javasteam.types.JobID
+import `in`.dragonbra.javasteam.util.LongObjectMap
 import `in`.dragonbra.javasteam.util.event.ScheduledFunction
 import `in`.dragonbra.javasteam.util.log.LogManager
-import java.util.concurrent.ConcurrentHashMap
+import java.util.PriorityQueue
 import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.Executor
 
 /**
  * @author Lossy
  * @since 2023-03-17
+ *
+ * @constructor Creates a job manager.
+ * @param completionExecutor Runs the completion of timed out jobs, and with it the continuations of their futures,
+ * so they don't run on the scheduler shared by the timeouts and heartbeats of every client.
  */
-class AsyncJobManager {
+class AsyncJobManager @JvmOverloads constructor(
+    private val completionExecutor: Executor = ClientThreading.DEFAULT.executor,
+) {
 
     companion object {
         private val logger = LogManager.getLogger(AsyncJobManager::class.java)
     }
 
-    val asyncJobs: ConcurrentMap<JobID, AsyncJob> = ConcurrentHashMap()
+    /**
+     * A tracked job with the deadline of its current entry in the deadline queue.
+     */
+    private class TrackedJob(val key: Long, val job: AsyncJob) {
+        var scheduledDeadline: Long = Long.MAX_VALUE
+    }
+
+    private class DeadlineEntry(val time: Long, val tracked: TrackedJob) : Comparable<DeadlineEntry> {
+        override fun compareTo(other: DeadlineEntry): Int = time.compareTo(other.time)
+    }
+
+    private val lock = Any()
+
+    private val jobs = LongObjectMap<TrackedJob>()
+
+    // ordered by deadline. Heartbeats only push a job's deadline out, an entry that comes due early is re-queued.
+    // Entries for jobs that completed or got a closer deadline are skipped when they come due.
+    private val deadlines = PriorityQueue<DeadlineEntry>()
 
     private val jobTimeoutFunc: ScheduledFunction = ScheduledFunction(this::cancelTimedOutJobs, 1000)
 
+    /**
+     * The tracked jobs by [JobID], as a live view of the index. Lookups don't copy anything, iterating works on a
+     * snapshot taken when the iterator is created. Jobs put into the view are tracked like with [startJob], jobs removed
+     * from it are no longer tracked, without being completed.
+     */
+    val asyncJobs: ConcurrentMap<JobID, AsyncJob> = AsyncJobsView()
+
     /**
      * Tracks a job with this manager.
      *
      * @param asyncJob The asynchronous job to track
      */
     fun startJob(asyncJob: AsyncJob) {
-        asyncJobs[asyncJob.jobID] = asyncJob
+        synchronized(lock) {
+            track(asyncJob.jobID.value, asyncJob)
+        }
     }
 
     /**
@@ -37,19 +71,36 @@ class AsyncJobManager {
      *
      * @param jobID    the job.
      * @param callback the callback.
+     * @return true if the callback was passed to a pending job.
+     */
+    fun tryCompleteJob(jobID: JobID, callback: CallbackMsg): Boolean = tryCompleteJob(jobID.value, callback)
+
+    /**
+     * Passes a callback to a pending async job.
+     * If the given callback completes the job, the job is removed from this manager.
+     *
+     * @param jobID    the job id.
+     * @param callback the callback.
+     * @return true if the callback was passed to a pending job.
      */
-    fun tryCompleteJob(jobID: JobID, callback: CallbackMsg) {
+    fun tryCompleteJob(jobID: Long, callback: CallbackMsg): Boolean {
         // if not a job we are tracking ourselves, can ignore it
-        val asyncJob = getJob(jobID) ?: return
+        val tracked = synchronized(lock) { jobs[jobID] } ?: return false
 
         // pass this callback into the job,
         // so it can determine if the job is finished (in the case of multiple responses to a job)
-        val jobFinished: Boolean = asyncJob.addResult(callback)
+        val jobFinished: Boolean = tracked.job.addResult(callback)
 
         if (jobFinished) {
             // if the job is finished, we can stop tracking it
-            asyncJobs.remove(jobID)
+            synchronized(lock) {
+                if (jobs[jobID] === tracked) {
+                    jobs.remove(jobID)
+                }
+            }
         }
+
+        return true
     }
 
     /**
@@ -58,10 +109,19 @@ class AsyncJobManager {
      * @param jobID The job identifier.
      */
     fun heartbeatJob(jobID: JobID) {
+        heartbeatJob(jobID.value)
+    }
+
+    /**
+     * Extends the lifetime of a job.
+     *
+     * @param jobID The job id.
+     */
+    fun heartbeatJob(jobID: Long) {
         // ignore heartbeats for jobs we're not tracking
-        val asyncJob: AsyncJob = getJob(jobID) ?: return
+        val tracked = synchronized(lock) { jobs[jobID] } ?: return
 
-        asyncJob.heartbeat()
+        tracked.job.heartbeat()
     }
 
     /**
@@ -70,23 +130,37 @@ class AsyncJobManager {
      * @param jobID The job identifier.
      */
     fun failJob(jobID: JobID) {
+        failJob(jobID.value)
+    }
+
+    /**
+     * Marks a certain job as remotely failed.
+     *
+     * @param jobID The job id.
+     */
+    fun failJob(jobID: Long) {
         logger.debug("Failing job id: $jobID")
 
         // ignore remote failures for jobs we're not tracking
-        val asyncJob: AsyncJob = getJob(jobID, true) ?: return
+        val tracked = synchronized(lock) { jobs.remove(jobID) } ?: return
 
-        asyncJob.setFailed(true)
+        tracked.job.setFailed(true)
     }
 
     /**
      * Cancels and clears all jobs being tracked.
      */
     fun cancelPendingJobs() {
-        asyncJobs.values.forEach { job ->
-            job.setFailed(false)
+        val pending = synchronized(lock) {
+            val values = jobs.values()
+            jobs.clear()
+            deadlines.clear()
+            values
         }
 
-        asyncJobs.clear()
+        pending.forEach { tracked ->
+            tracked.job.setFailed(false)
+        }
     }
 
     /**
@@ -102,37 +176,167 @@ class AsyncJobManager {
         }
     }
 
+    /**
+     * Called when the timeout of a tracked job changes. Only a closer deadline needs a new queue entry,
+     * a later one is picked up when the current entry comes due.
+     */
+    internal fun onDeadlineChanged(asyncJob: AsyncJob) {
+        synchronized(lock) {
+            val tracked = jobs[asyncJob.jobID.value]
+            if (tracked != null && tracked.job === asyncJob) {
+                val deadline = asyncJob.deadline
+                if (deadline < tracked.scheduledDeadline) {
+                    schedule(tracked, deadline)
+                }
+            }
+        }
+    }
+
     /**
      * This is called periodically to cancel and clear out any jobs that have timed out (no response from Steam).
+     * Only the queue entries that are due are looked at.
      */
-    private fun cancelTimedOutJobs() {
-        asyncJobs.values.forEach { job ->
-            if (job.isTimedOut) {
-                job.setFailed(false)
-                asyncJobs.remove(job.jobID)
+    internal fun cancelTimedOutJobs() {
+        val now = AsyncJob.currentTimeMillis()
+        var timedOut: MutableList<AsyncJob>? = null
+
+        synchronized(lock) {
+            while (true) {
+                val entry = deadlines.peek()
+                if (entry == null || entry.time > now) {
+                    break
+                }
+
+                deadlines.poll()
+
+                val tracked = entry.tracked
+                if (tracked.scheduledDeadline != entry.time || jobs[tracked.key] !== tracked) {
+                    // superseded by a closer deadline, or the job is no longer tracked
+                    continue
+                }
+
+                val deadline = tracked.job.deadline
+                if (deadline <= now) {
+                    jobs.remove(tracked.key)
+                    (timedOut ?: mutableListOf<AsyncJob>().also { timedOut = it }).add(tracked.job)
+                } else {
+                    schedule(tracked, deadline)
+                }
+            }
+        }
+
+        timedOut?.let { expired ->
+            completionExecutor.execute {
+                expired.forEach { job -> job.setFailed(false) }
             }
         }
     }
 
     /**
-     * Retrieves a job from this manager, and optionally removes it from tracking.
-     *
-     * @param jobID     the job id.
-     * @param andRemove If set to <c>true</c>, this job is removed from tracking.
-     * @return .
+     * The number of entries in the deadline queue, including the ones that will be skipped.
      */
-    private fun getJob(jobID: JobID, andRemove: Boolean = false): AsyncJob? {
-        val asyncJob: AsyncJob?
-        val foundJob: Boolean
+    internal val scheduledDeadlines: Int
+        get() = synchronized(lock) { deadlines.size }
 
-        if (andRemove) {
-            asyncJob = asyncJobs[jobID]
-            foundJob = asyncJobs.remove(jobID, asyncJobs[jobID])
-        } else {
-            asyncJob = asyncJobs[jobID]
-            foundJob = asyncJob != null
+    // must hold lock
+    private fun track(key: Long, asyncJob: AsyncJob): AsyncJob? {
+        val tracked = TrackedJob(key, asyncJob)
+        asyncJob.manager = this
+
+        val previous = jobs.put(key, tracked)
+        schedule(tracked, asyncJob.deadline)
+
+        return previous?.job
+    }
+
+    private fun schedule(tracked: TrackedJob, deadline: Long) {
+        tracked.scheduledDeadline = deadline
+        deadlines.add(DeadlineEntry(deadline, tracked))
+    }
+
+    private inner class AsyncJobsView : AbstractMutableMap<JobID, AsyncJob>(), ConcurrentMap<JobID, AsyncJob> {
+
+        override val size: Int
+            get() = synchronized(lock) { jobs.size }
+
+        override fun isEmpty(): Boolean = size == 0
+
+        override fun containsKey(key: JobID): Boolean = get(key) != null
+
+        override fun get(key: JobID): AsyncJob? = synchronized(lock) { jobs[key.value]?.job }
+
+        override fun put(key: JobID, value: AsyncJob): AsyncJob? = synchronized(lock) { track(key.value, value) }
+
+        override fun remove(key: JobID): AsyncJob? = synchronized(lock) { jobs.remove(key.value)?.job }
+
+        override fun clear() {
+            synchronized(lock) {
+                jobs.clear()
+                deadlines.clear()
+            }
+        }
+
+        override fun putIfAbsent(key: JobID, value: AsyncJob): AsyncJob? = synchronized(lock) {
+            jobs[key.value]?.job ?: track(key.value, value)
+        }
+
+        override fun remove(key: JobID, value: AsyncJob): Boolean = synchronized(lock) {
+            val tracked = jobs[key.value]
+            if (tracked != null && tracked.job == value) {
+                jobs.remove(key.value)
+                true
+            } else {
+                false
+            }
+        }
+
+        override fun replace(key: JobID, oldValue: AsyncJob, newValue: AsyncJob): Boolean = synchronized(lock) {
+            if (jobs[key.value]?.job == oldValue) {
+                track(key.value, newValue)
+                true
+            } else {
+                false
+            }
         }
 
-        return if (foundJob) asyncJob else null
+        override fun replace(key: JobID, value: AsyncJob): AsyncJob? = synchronized(lock) {
+            if (jobs[key.value] != null) track(key.value, value) else null
+        }
+
+        override val entries: MutableSet<MutableMap.MutableEntry<JobID, AsyncJob>> =
+            object : AbstractMutableSet<MutableMap.MutableEntry<JobID, AsyncJob>>() {
+                override val size: Int
+                    get() = this@AsyncJobsView.size
+
+                override fun add(element: MutableMap.MutableEntry<JobID, AsyncJob>): Boolean =
+                    throw UnsupportedOperationException()
+
+                override fun iterator(): MutableIterator<MutableMap.MutableEntry<JobID, AsyncJob>> {
+                    val snapshot = synchronized(lock) { jobs.values() }.iterator()
+
+                    return object : MutableIterator<MutableMap.MutableEntry<JobID, AsyncJob>> {
+                        private var last: TrackedJob? = null
+
+                        override fun hasNext(): Boolean = snapshot.hasNext()
+
+                        override fun next(): MutableMap.MutableEntry<JobID, AsyncJob> {
+                            val tracked = snapshot.next()
+                            last = tracked
+                            return java.util.AbstractMap.SimpleEntry(JobID(tracked.key), tracked.job)
+                        }
+
+                        override fun remove() {
+                            val tracked = checkNotNull(last) { "next() was not called" }
+                            last = null
+
+                            synchronized(lock) {
+                                if (jobs[tracked.key] === tracked) {
+                                    jobs.remove(tracked.key)
+                                }
+                            }
+                        }
+                    }
+                }
+            }
     }
 }
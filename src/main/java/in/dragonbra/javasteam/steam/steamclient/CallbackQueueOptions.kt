@@ -0,0 +1,51 @@
+package `in`.dragonbra.javasteam.steam.steamclient
+
+import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
+
+/**
+ * Limits of the queue [SteamClient] posts callbacks to.
+ * The default is unbounded, which lets the queue grow without limit when nobody runs the callbacks.
+ *
+ * @param capacity The number of callbacks the queue holds, or [UNBOUNDED].
+ * @param overflow What happens to a callback posted while the queue is full.
+ * @param droppableTypes Callback types, including subclasses, that are dropped instead of applying [overflow]
+ * when the queue is full. Useful for floods of callbacks such as persona state changes.
+ * @param queueJobCallbacks Whether callbacks that complete or update a pending [in.dragonbra.javasteam.types.AsyncJob]
+ * are queued as well. Clients that only await jobs can turn this off.
+ * @param flowBufferCapacity The number of callbacks [SteamClient.callbacks] buffers for slow collectors.
+ * @param flowOverflow What [SteamClient.callbacks] does when a collector falls behind by more than
+ * [flowBufferCapacity]. The default drops the oldest callbacks the slow collector hasn't received yet, so a collector
+ * never holds up the network. [CallbackQueueOverflow.BLOCK] is opt-in: it blocks the thread posting the callback,
+ * usually the network thread of the connection or the event loop shared by many connections, until the collector
+ * catches up, and deadlocks if the collector runs on that thread. Dropping requires a positive [flowBufferCapacity].
+ */
+class CallbackQueueOptions @JvmOverloads constructor(
+    val capacity: Int = UNBOUNDED,
+    val overflow: CallbackQueueOverflow = CallbackQueueOverflow.BLOCK,
+    val droppableTypes: Set<Class<out CallbackMsg>> = emptySet(),
+    val queueJobCallbacks: Boolean = true,
+    val flowBufferCapacity: Int = DEFAULT_FLOW_BUFFER_CAPACITY,
+    val flowOverflow: CallbackQueueOverflow = CallbackQueueOverflow.DROP_OLDEST,
+) {
+
+    companion object {
+        const val UNBOUNDED: Int = Int.MAX_VALUE
+
+        const val DEFAULT_FLOW_BUFFER_CAPACITY: Int = 64
+
+        @JvmField
+        val DEFAULT: CallbackQueueOptions = CallbackQueueOptions()
+    }
+
+    init {
+        require(capacity > 0) { "capacity must be positive" }
+        require(flowBufferCapacity >= 0) { "flowBufferCapacity must not be negative" }
+        require(flowBufferCapacity > 0 || flowOverflow == CallbackQueueOverflow.BLOCK) {
+            "flowBufferCapacity must be positive when flowOverflow drops callbacks"
+        }
+    }
+
+    override fun toString(): String =
+        "CallbackQueueOptions(capacity=$capacity, overflow=$overflow, droppableTypes=$droppableTypes, " +
+            "queueJobCallbacks=$queueJobCallbacks, flowBufferCapacity=$flowBufferCapacity, flowOverflow=$flowOverflow)"
+}
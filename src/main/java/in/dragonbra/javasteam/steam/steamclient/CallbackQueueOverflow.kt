@@ -0,0 +1,31 @@
+package `in`.dragonbra.javasteam.steam.steamclient
+
+import kotlinx.coroutines.channels.BufferOverflow
+
+/**
+ * What [SteamClient.postCallback] does with a callback when the callback queue is full.
+ */
+enum class CallbackQueueOverflow {
+    /**
+     * Wait until the consumer makes room. This blocks the thread posting the callback, usually the network thread,
+     * so the queue must be drained from another thread.
+     */
+    BLOCK,
+
+    /**
+     * Drop the oldest queued callback to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drop the callback being posted.
+     */
+    DROP_NEWEST,
+    ;
+
+    internal fun toBufferOverflow(): BufferOverflow = when (this) {
+        BLOCK -> BufferOverflow.SUSPEND
+        DROP_OLDEST -> BufferOverflow.DROP_OLDEST
+        DROP_NEWEST -> BufferOverflow.DROP_LATEST
+    }
+}
@@ -0,0 +1,141 @@
+package `in`.dragonbra.javasteam.steam.steamclient
+
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.asExecutor
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Decides which threads a client runs its blocking work on: the read loops of its connections, and the coroutines of
+ * [SteamClient], [in.dragonbra.javasteam.steam.contentdownloader.ContentDownloader] and
+ * [in.dragonbra.javasteam.steam.cdn.Client].
+ *
+ * [DEFAULT] uses a platform thread per connection and [Dispatchers.IO]. On Java 21 and newer, [virtualThreads] uses a
+ * virtual thread per connection and per coroutine task, so an idle client costs some heap instead of a thread stack,
+ * and blocking socket and HTTP calls don't hold on to a carrier thread.
+ */
+class ClientThreading private constructor(
+    private val threadFactory: (String, Runnable) -> Thread,
+    /**
+     * The dispatcher the coroutines of clients run on.
+     */
+    val dispatcher: CoroutineDispatcher,
+    /**
+     * Whether connections run on virtual threads.
+     */
+    val isVirtual: Boolean,
+) {
+
+    /**
+     * Runs short blocking tasks on [dispatcher], such as flushing the outbound queue of a connection. Unlike a cached
+     * thread pool, this doesn't create a thread per slow connection: [Dispatchers.IO] is bounded, and with
+     * [virtualThreads] every task gets a virtual thread.
+     */
+    val executor: Executor = dispatcher.asExecutor()
+
+    companion object {
+        private val platformThreads: (String, Runnable) -> Thread = { name, task -> Thread(task, name) }
+
+        /**
+         * A platform thread per connection, coroutines on [Dispatchers.IO].
+         */
+        @JvmField
+        val DEFAULT: ClientThreading = ClientThreading(platformThreads, Dispatchers.IO, false)
+
+        /**
+         * A platform thread per connection, coroutines on the given executor.
+         *
+         * @param executor The executor coroutines run on, shared by all clients using this strategy.
+         * @return The threading strategy.
+         */
+        @JvmStatic
+        fun fromExecutor(executor: Executor): ClientThreading =
+            ClientThreading(platformThreads, executor.asCoroutineDispatcher(), false)
+
+        /**
+         * A virtual thread per connection and per coroutine task.
+         *
+         * @return The threading strategy.
+         * @throws UnsupportedOperationException If the runtime doesn't support virtual threads, see
+         * [isVirtualThreadsSupported].
+         */
+        @JvmStatic
+        fun virtualThreads(): ClientThreading {
+            val executor = VirtualThreads.executor
+                ?: throw UnsupportedOperationException("Virtual threads require Java 21 or newer")
+
+            return ClientThreading(VirtualThreads::newThread, executor.asCoroutineDispatcher(), true)
+        }
+
+        /**
+         * @return true if the runtime supports virtual threads, so [virtualThreads] can be used.
+         */
+        @JvmStatic
+        fun isVirtualThreadsSupported(): Boolean = VirtualThreads.executor != null
+    }
+
+    /**
+     * Creates an unstarted thread for a long running task, such as the read loop of a connection.
+     *
+     * @param name The name of the thread.
+     * @param task The task the thread runs.
+     * @return The thread.
+     */
+    fun newThread(name: String, task: Runnable): Thread = threadFactory(name, task)
+
+    override fun toString(): String = "ClientThreading(dispatcher=$dispatcher, isVirtual=$isVirtual)"
+
+    /**
+     * Thread.ofVirtual() and Executors.newVirtualThreadPerTaskExecutor() are looked up reflectively,
+     * the library targets Java 11 and Android.
+     */
+    private object VirtualThreads {
+        private val ofVirtual: Method?
+
+        private val name: Method?
+
+        private val unstarted: Method?
+
+        val executor: ExecutorService?
+
+        init {
+            var ofVirtual: Method? = null
+            var name: Method? = null
+            var unstarted: Method? = null
+            var executor: ExecutorService? = null
+
+            try {
+                val builderClass = Class.forName("java.lang.Thread\$Builder")
+                ofVirtual = Thread::class.java.getMethod("ofVirtual")
+                name = builderClass.getMethod("name", String::class.java)
+                unstarted = builderClass.getMethod("unstarted", Runnable::class.java)
+
+                // fails on Java 19 and 20 unless preview features are enabled
+                ofVirtual.invoke(null)
+
+                executor = Executors::class.java
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null) as ExecutorService
+            } catch (e: ReflectiveOperationException) {
+                executor = null
+            }
+
+            this.ofVirtual = ofVirtual
+            this.name = name
+            this.unstarted = unstarted
+            this.executor = executor
+        }
+
+        fun newThread(threadName: String, task: Runnable): Thread = try {
+            val builder = name!!.invoke(ofVirtual!!.invoke(null), threadName)
+            unstarted!!.invoke(builder, task) as Thread
+        } catch (e: InvocationTargetException) {
+            throw e.targetException
+        }
+    }
+}
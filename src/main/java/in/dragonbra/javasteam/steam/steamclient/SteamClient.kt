@@ -22,6 +22,7 @@ import `in`.dragonbra.javasteam.steam.handlers.steamuser.SteamUser
 import `in`.dragonbra.javasteam.steam.handlers.steamuserstats.SteamUserStats
 import `in`.dragonbra.javasteam.steam.handlers.steamworkshop.SteamWorkshop
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
+import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackTypes
 import `in`.dragonbra.javasteam.steam.steamclient.callbacks.ConnectedCallback
 import `in`.dragonbra.javasteam.steam.steamclient.callbacks.DisconnectedCallback
 import `in`.dragonbra.javasteam.steam.steamclient.configuration.SteamConfiguration
@@ -33,10 +34,19 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.filterIsInstance
 import kotlinx.coroutines.runBlocking
-import kotlinx.coroutines.withTimeoutOrNull
 import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import java.util.function.Consumer
+import kotlin.concurrent.withLock
 
 /**
  * Represents a single client that connects to the Steam3 network.
@@ -48,19 +58,68 @@ import java.util.concurrent.atomic.AtomicLong
 @Suppress("unused")
 class SteamClient @JvmOverloads constructor(
     configuration: SteamConfiguration? = SteamConfiguration.createDefault(),
-    internal val defaultScope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+    internal val defaultScope: CoroutineScope = CoroutineScope(
+        (configuration?.threading?.dispatcher ?: Dispatchers.IO) + SupervisorJob()
+    ),
 ) : CMClient(configuration) {
 
-    private val handlers = HashMap<Class<out ClientMsgHandler>, ClientMsgHandler>(HANDLERS_COUNT)
+    // registration order is dispatch order
+    private val handlers = LinkedHashMap<Class<out ClientMsgHandler>, ClientMsgHandler>(HANDLERS_COUNT)
+
+    // handlers interested in each message, indexed by EMsg ordinal, rebuilt whenever handlers change
+    @Volatile
+    private var messageRoutes: Array<Array<ClientMsgHandler>> = emptyArray()
 
     private val currentJobId = AtomicLong(0L)
 
     private val processStartTime: Date
 
-    private val callbackQueue = Channel<CallbackMsg>(Channel.UNLIMITED)
+    private val callbackQueueOptions = getConfiguration().callbackQueueOptions
+
+    // UNBOUNDED is Channel.UNLIMITED
+    private val callbackQueue = Channel<CallbackMsg>(callbackQueueOptions.capacity)
+
+    private val callbackQueueSize = AtomicInteger(0)
+
+    private val droppedCallbackCount = AtomicLong(0L)
+
+    // threads blocked waiting for callbacks park on this condition instead of running an event loop each
+    private val callbackLock = ReentrantLock()
+
+    private val callbackPosted = callbackLock.newCondition()
+
+    private val parkedCallbackWaiters = AtomicInteger(0)
+
+    /**
+     * The number of callbacks currently waiting in the queue.
+     */
+    val callbackQueueDepth: Int
+        get() = callbackQueueSize.get()
+
+    /**
+     * The number of callbacks dropped because the queue was full, see [CallbackQueueOptions].
+     */
+    val droppedCallbacks: Long
+        get() = droppedCallbackCount.get()
 
     internal val jobManager: AsyncJobManager // What does this even do now?
 
+    private val callbackFlow = MutableSharedFlow<CallbackMsg>(
+        extraBufferCapacity = callbackQueueOptions.flowBufferCapacity,
+        onBufferOverflow = callbackQueueOptions.flowOverflow.toBufferOverflow()
+    )
+
+    /**
+     * A hot flow of the callbacks posted to this client, shared by all of its collectors.
+     * Callbacks are broadcast to the flow in addition to being queued, so collectors and a
+     * [in.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackManager] each receive the callbacks. Clients that
+     * only collect the flow should bound the queue with [CallbackQueueOptions], since nothing drains it.
+     * A collector more than [CallbackQueueOptions.flowBufferCapacity] callbacks behind misses the oldest ones, unless
+     * [CallbackQueueOptions.flowOverflow] is set to block the network instead. Callbacks posted while nothing collects
+     * the flow are not replayed.
+     */
+    val callbacks: SharedFlow<CallbackMsg> = callbackFlow.asSharedFlow()
+
     /**
      * Handler used for authenticating on Steam.
      */
@@ -90,9 +149,11 @@ class SteamClient @JvmOverloads constructor(
             logger.error("Handlers size didnt match handlers count (${handlers.size}) when initializing")
         }
 
+        rebuildMessageRoutes()
+
         processStartTime = Date()
 
-        jobManager = AsyncJobManager()
+        jobManager = AsyncJobManager(getConfiguration().threading.executor)
     }
 
     //region Handlers
@@ -107,6 +168,7 @@ class SteamClient @JvmOverloads constructor(
         }
 
         addHandlerCore(handler)
+        rebuildMessageRoutes()
     }
 
     private fun addHandlerCore(handler: ClientMsgHandler) {
@@ -119,7 +181,9 @@ class SteamClient @JvmOverloads constructor(
      * @param handler The handler name to remove.
      */
     fun removeHandler(handler: Class<out ClientMsgHandler>) {
-        handlers.remove(handler)
+        if (handlers.remove(handler) != null) {
+            rebuildMessageRoutes()
+        }
     }
 
     /**
@@ -148,43 +212,141 @@ class SteamClient @JvmOverloads constructor(
      * @return A registered handler on success, or null if the handler could not be found.
      */
     inline fun <reified T : ClientMsgHandler> getHandler(): T? = getHandler(T::class.java)
+
+    private fun rebuildMessageRoutes() {
+        val registered = handlers.values.map { it to it.handledMessages }
+
+        val catchAll = registered.filter { it.second == null }.map { it.first }.toTypedArray()
+
+        // messages nobody declared share the array of catch-all handlers
+        val routes = Array(EMsg.entries.size) { catchAll }
+        registered.flatMapTo(EnumSet.noneOf(EMsg::class.java)) { it.second.orEmpty() }.forEach { msg ->
+            routes[msg.ordinal] = registered
+                .filter { (_, messages) -> messages == null || msg in messages }
+                .map { it.first }
+                .toTypedArray()
+        }
+
+        messageRoutes = routes
+    }
     //endregion
 
     //region Callbacks
 
+    /**
+     * Returns the callbacks of a type posted to this client, see [callbacks].
+     *
+     * @param type The type of the callbacks, including subclasses.
+     * @param T The type of the callbacks.
+     * @return A flow of the matching callbacks.
+     */
+    fun <T : CallbackMsg> callbacksOf(type: Class<T>): Flow<T> = callbacks.filterIsInstance(type.kotlin)
+
+    /**
+     * Kotlin Helper:
+     * Returns the callbacks of a type posted to this client, see [callbacks].
+     *
+     * @param T The type of the callbacks, including subclasses.
+     * @return A flow of the matching callbacks.
+     */
+    inline fun <reified T : CallbackMsg> callbacksOf(): Flow<T> = callbacksOf(T::class.java)
+
     /**
      * Gets the next callback object in the queue, and removes it.
      * @return The next callback in the queue, or null if no callback is waiting.
      */
-    fun getCallback(): CallbackMsg? = callbackQueue.tryReceive().getOrNull()
+    fun getCallback(): CallbackMsg? =
+        callbackQueue.tryReceive().getOrNull()?.also { callbackQueueSize.decrementAndGet() }
 
     /**
      * Blocks the calling thread until a callback object is posted to the queue, and removes it.
      * @return The callback object from the queue.
      */
-    fun waitForCallback(): CallbackMsg = runBlocking(Dispatchers.Default) {
-        callbackQueue.receive()
+    fun waitForCallback(): CallbackMsg {
+        while (true) {
+            getCallback()?.let { return it }
+            awaitCallback(Long.MAX_VALUE)
+        }
     }
 
     /**
      * Asynchronously awaits until a callback object is posted to the queue, and removes it.
      * @return The callback object from the queue.
      */
-    suspend fun waitForCallbackAsync(): CallbackMsg = callbackQueue.receive()
+    suspend fun waitForCallbackAsync(): CallbackMsg = receiveCallback()
 
     /**
      * Blocks the calling thread until a callback object is posted to the queue, or null after the timeout has elapsed.
      * @param timeout The length of time to block in ms.
      * @return A callback object from the queue if a callback has been posted, or null if the timeout has elapsed.
      */
-    fun waitForCallback(timeout: Long): CallbackMsg? = runBlocking {
-        withTimeoutOrNull(timeout) {
-            callbackQueue.receive()
+    fun waitForCallback(timeout: Long): CallbackMsg? {
+        var callback: CallbackMsg? = null
+        drainCallbacks(1, timeout) { callback = it }
+        return callback
+    }
+
+    /**
+     * Removes up to [maxCallbacks] queued callbacks and passes them to the sink, in order.
+     * If no callback is queued, blocks the calling thread until one is posted or the timeout has elapsed.
+     * Meant for threads pumping callbacks in a loop, a call costs at most one park regardless of how many
+     * callbacks it hands over.
+     *
+     * @param maxCallbacks The maximum number of callbacks to pass to the sink.
+     * @param timeout The length of time to block in ms.
+     * @param sink Receives the callbacks. If it throws, the callbacks not yet passed stay queued.
+     * @return The number of callbacks passed to the sink, 0 if the timeout has elapsed.
+     */
+    fun drainCallbacks(maxCallbacks: Int, timeout: Long, sink: Consumer<CallbackMsg>): Int {
+        require(maxCallbacks > 0) { "maxCallbacks must be positive" }
+
+        var remaining = TimeUnit.MILLISECONDS.toNanos(timeout)
+        while (true) {
+            var drained = 0
+            while (drained < maxCallbacks) {
+                val callback = getCallback() ?: break
+                sink.accept(callback)
+                drained++
+            }
+
+            if (drained > 0 || remaining <= 0L) {
+                return drained
+            }
+
+            val start = System.nanoTime()
+            awaitCallback(remaining)
+            remaining -= System.nanoTime() - start
+        }
+    }
+
+    /**
+     * Parks the calling thread until the queue isn't empty or the timeout has elapsed.
+     */
+    private fun awaitCallback(timeoutNanos: Long) {
+        if (callbackQueueSize.get() > 0) {
+            return
+        }
+
+        callbackLock.withLock {
+            // announce the waiter before checking the queue, so a posting thread either sees it or we see the post
+            parkedCallbackWaiters.incrementAndGet()
+            try {
+                var nanos = timeoutNanos
+                while (callbackQueueSize.get() <= 0 && nanos > 0L) {
+                    nanos = callbackPosted.awaitNanos(nanos)
+                }
+            } finally {
+                parkedCallbackWaiters.decrementAndGet()
+            }
         }
     }
 
+    private suspend fun receiveCallback(): CallbackMsg =
+        callbackQueue.receive().also { callbackQueueSize.decrementAndGet() }
+
     /**
      * Posts a callback to the queue. This is normally used directly by client message handlers.
+     * If the queue is full, the callback is handled according to the configured [CallbackQueueOptions].
      * @param msg The message.
      */
     fun postCallback(msg: CallbackMsg?) {
@@ -192,8 +354,68 @@ class SteamClient @JvmOverloads constructor(
             return
         }
 
-        callbackQueue.trySend(msg)
-        jobManager.tryCompleteJob(msg.jobID, msg)
+        if (callbackQueueOptions.queueJobCallbacks) {
+            enqueueCallback(msg)
+            jobManager.tryCompleteJob(msg.jobID.value, msg)
+        } else if (!jobManager.tryCompleteJob(msg.jobID.value, msg)) {
+            // callbacks taken by a pending job aren't queued
+            enqueueCallback(msg)
+        }
+    }
+
+    private fun enqueueCallback(msg: CallbackMsg) {
+        offerCallback(msg)
+        emitCallback(msg)
+
+        // only take the lock when someone is parked in awaitCallback
+        if (parkedCallbackWaiters.get() > 0) {
+            callbackLock.withLock { callbackPosted.signalAll() }
+        }
+    }
+
+    private fun offerCallback(msg: CallbackMsg) {
+        // count before sending, so a consumer never sees the depth drop below zero
+        callbackQueueSize.incrementAndGet()
+
+        if (callbackQueue.trySend(msg).isSuccess) {
+            return
+        }
+
+        if (isDroppable(msg)) {
+            dropCallback(msg)
+            return
+        }
+
+        when (callbackQueueOptions.overflow) {
+            CallbackQueueOverflow.BLOCK -> runBlocking { callbackQueue.send(msg) }
+
+            CallbackQueueOverflow.DROP_NEWEST -> dropCallback(msg)
+
+            CallbackQueueOverflow.DROP_OLDEST -> {
+                while (!callbackQueue.trySend(msg).isSuccess) {
+                    callbackQueue.tryReceive().getOrNull()?.let(::dropCallback)
+                }
+            }
+        }
+    }
+
+    private fun emitCallback(msg: CallbackMsg) {
+        // only fails with the opt-in CallbackQueueOverflow.BLOCK, when a collector is a whole buffer behind,
+        // which then holds up the posting thread as documented on CallbackQueueOptions.flowOverflow
+        if (!callbackFlow.tryEmit(msg)) {
+            runBlocking { callbackFlow.emit(msg) }
+        }
+    }
+
+    private fun isDroppable(msg: CallbackMsg): Boolean {
+        val droppableTypes = callbackQueueOptions.droppableTypes
+        return droppableTypes.isNotEmpty() && CallbackTypes.supertypesOf(msg.javaClass).any { it in droppableTypes }
+    }
+
+    private fun dropCallback(msg: CallbackMsg) {
+        callbackQueueSize.decrementAndGet()
+        droppedCallbackCount.incrementAndGet()
+        logger.debug("Callback queue is full, dropped ${msg.javaClass.simpleName}")
     }
 //endregion
 
@@ -237,12 +459,12 @@ class SteamClient @JvmOverloads constructor(
             else -> Unit
         }
 
-        // pass along the clientMsg to all registered handlers
-        handlers.forEach { (key, value) ->
+        // pass along the clientMsg to the registered handlers interested in it
+        for (handler in messageRoutes[packetMsg.getMsgType().ordinal]) {
             try {
-                value.handleMsg(packetMsg)
+                handler.handleMsg(packetMsg)
             } catch (e: Exception) {
-                logger.debug("Unhandled exception from ${key.name} handlers", e)
+                logger.debug("Unhandled exception from ${handler.javaClass.name} handlers", e)
                 disconnect()
                 return false
             }
@@ -283,11 +505,11 @@ class SteamClient @JvmOverloads constructor(
     }
 
     private fun handleJobHeartbeat(packetMsg: IPacketMsg) {
-        JobID(packetMsg.getTargetJobID()).let(jobManager::heartbeatJob)
+        jobManager.heartbeatJob(packetMsg.getTargetJobID())
     }
 
     private fun handleJobFailed(packetMsg: IPacketMsg) {
-        JobID(packetMsg.getTargetJobID()).let(jobManager::failJob)
+        jobManager.failJob(packetMsg.getTargetJobID())
     }
 
     companion object {
@@ -22,7 +22,8 @@ import java.util.concurrent.*
  */
 class CallbackManager(private val steamClient: SteamClient) {
 
-    private val registeredCallbacks: MutableSet<CallbackBase> = Collections.newSetFromMap(ConcurrentHashMap())
+    // subscriptions by the callback type they were registered for
+    private val registeredCallbacks: ConcurrentMap<Class<*>, Subscriptions> = ConcurrentHashMap()
 
     private val steamUnifiedMessages: SteamUnifiedMessages = steamClient.getHandler(SteamUnifiedMessages::class.java)!!
 
@@ -62,13 +63,7 @@ class CallbackManager(private val steamClient: SteamClient) {
      * @param timeout The length of time to block.
      */
     fun runWaitAllCallbacks(timeout: Long) {
-        if (!runWaitCallbacks(timeout)) {
-            return
-        }
-
-        while (runCallbacks()) {
-            //
-        }
+        steamClient.drainCallbacks(Int.MAX_VALUE, timeout, ::handle)
     }
 
     /**
@@ -159,8 +154,9 @@ class CallbackManager(private val steamClient: SteamClient) {
 
         // wrappedCallback checks that the notification body matches the expected type
         // before passing it to callbackFunc, preventing ClassCastException due to type erasure.
+        // The builder is nested in its message class, so the check doesn't need to decode the body.
         val wrappedCallback = Consumer<ServiceMethodNotification<TNotification>> { notification ->
-            if (notification.body::class.java == notificationClass) {
+            if (notification.messageClass == notificationClass.declaringClass) {
                 callbackFunc.accept(notification as ServiceMethodNotification<TNotification>)
             }
         }
@@ -220,8 +216,9 @@ class CallbackManager(private val steamClient: SteamClient) {
 
         // wrappedCallback checks that the notification body matches the expected type
         // before passing it to callbackFunc, preventing ClassCastException due to type erasure.
+        // The builder is nested in its message class, so the check doesn't need to decode the body.
         val wrappedCallback = Consumer<ServiceMethodResponse<TNotification>> { notification ->
-            if (notification.body::class.java == notificationClass) {
+            if (notification.messageClass == notificationClass.declaringClass) {
                 callbackFunc.accept(notification as ServiceMethodResponse<TNotification>)
             }
         }
@@ -262,26 +259,63 @@ class CallbackManager(private val steamClient: SteamClient) {
     //endregion
 
     internal fun register(callback: CallbackBase) {
-        if (registeredCallbacks.contains(callback)) {
-            return
-        }
+        val jobID = (callback as? Callback<*>)?.jobID ?: JobID.INVALID
+        val subscriptions = registeredCallbacks.computeIfAbsent(callback.callbackType) { Subscriptions() }
 
-        registeredCallbacks.add(callback)
+        if (jobID == JobID.INVALID) {
+            subscriptions.all.add(callback)
+        } else {
+            subscriptions.byJob.compute(jobID) { _, callbacks ->
+                (callbacks ?: newCallbackSet()).apply { add(callback) }
+            }
+        }
     }
 
     internal fun unregister(callback: CallbackBase) {
-        registeredCallbacks.remove(callback)
+        val jobID = (callback as? Callback<*>)?.jobID ?: JobID.INVALID
+        val subscriptions = registeredCallbacks[callback.callbackType] ?: return
+
+        if (jobID == JobID.INVALID) {
+            subscriptions.all.remove(callback)
+        } else {
+            // drop the job's entry with its last subscription, job ids aren't reused
+            subscriptions.byJob.computeIfPresent(jobID) { _, callbacks ->
+                callbacks.remove(callback)
+                callbacks.ifEmpty { null }
+            }
+        }
     }
 
     private fun handle(call: CallbackMsg) {
-        val callbacks = registeredCallbacks
-        val type = call.javaClass
+        val jobID = call.jobID
+
+        // find handlers interested in this callback: those subscribed to its class or any of its supertypes,
+        // either for all jobs or for the callback's job
+        for (type in CallbackTypes.supertypesOf(call.javaClass)) {
+            val subscriptions = registeredCallbacks[type] ?: continue
 
-        // find handlers interested in this callback
-        callbacks.forEach { callback ->
-            if (callback.callbackType.isAssignableFrom(type)) {
+            subscriptions.all.forEach { callback ->
                 callback.run(call)
             }
+
+            if (jobID != JobID.INVALID) {
+                subscriptions.byJob[jobID]?.forEach { callback ->
+                    callback.run(call)
+                }
+            }
         }
     }
+
+    /**
+     * The callbacks subscribed to one callback type.
+     */
+    private class Subscriptions {
+        val all: MutableSet<CallbackBase> = newCallbackSet()
+
+        val byJob: ConcurrentMap<JobID, MutableSet<CallbackBase>> = ConcurrentHashMap()
+    }
+
+    private companion object {
+        fun newCallbackSet(): MutableSet<CallbackBase> = Collections.newSetFromMap(ConcurrentHashMap())
+    }
 }
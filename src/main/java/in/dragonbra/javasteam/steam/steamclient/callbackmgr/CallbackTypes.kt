@@ -0,0 +1,41 @@
+package `in`.dragonbra.javasteam.steam.steamclient.callbackmgr
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Caches the supertypes of posted callback classes, so dispatch is a few map lookups per callback
+ * instead of an [Class.isAssignableFrom] check per subscription.
+ */
+internal object CallbackTypes {
+
+    private val supertypes = ConcurrentHashMap<Class<*>, Array<Class<*>>>()
+
+    /**
+     * @param type The callback class.
+     * @return The class itself followed by its superclasses and all the interfaces it implements.
+     */
+    fun supertypesOf(type: Class<*>): Array<Class<*>> = supertypes.computeIfAbsent(type, ::collectSupertypes)
+
+    private fun collectSupertypes(type: Class<*>): Array<Class<*>> {
+        val result = LinkedHashSet<Class<*>>()
+
+        var current: Class<*>? = type
+        while (current != null) {
+            result.add(current)
+            current = current.superclass
+        }
+
+        // interfaces last, they are rarely subscribed to
+        result.toList().forEach { collectInterfaces(it, result) }
+
+        return result.toTypedArray()
+    }
+
+    private fun collectInterfaces(type: Class<*>, result: MutableSet<Class<*>>) {
+        for (iface in type.interfaces) {
+            if (result.add(iface)) {
+                collectInterfaces(iface, result)
+            }
+        }
+    }
+}
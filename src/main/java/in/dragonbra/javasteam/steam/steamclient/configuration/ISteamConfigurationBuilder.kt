@@ -4,10 +4,16 @@ import `in`.dragonbra.javasteam.enums.EClientPersonaStateFlag
 import `in`.dragonbra.javasteam.enums.EUniverse
 import `in`.dragonbra.javasteam.networking.steam3.IConnectionFactory
 import `in`.dragonbra.javasteam.networking.steam3.ProtocolTypes
+import `in`.dragonbra.javasteam.networking.steam3.TcpEventLoopGroup
+import `in`.dragonbra.javasteam.networking.steam3.TcpSocketOptions
+import `in`.dragonbra.javasteam.networking.steam3.WebSocketClientEngine
 import `in`.dragonbra.javasteam.steam.contentdownloader.IManifestProvider
 import `in`.dragonbra.javasteam.steam.discovery.IServerListProvider
+import `in`.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions
+import `in`.dragonbra.javasteam.steam.steamclient.ClientThreading
 import okhttp3.OkHttpClient
 import java.util.*
+import java.util.concurrent.Executor
 
 /**
  * Interface to configure a [SteamConfiguration] before it is created.
@@ -96,6 +102,25 @@ interface ISteamConfigurationBuilder {
      */
     fun withServerListProvider(provider: IServerListProvider): ISteamConfigurationBuilder
 
+    /**
+     * Configures TCP connections of this [SteamConfiguration] to be multiplexed on a shared [TcpEventLoopGroup]
+     * instead of using one polling thread per connection. Use [TcpEventLoopGroup.getDefault] to share one group
+     * across the whole process.
+     *
+     * @param eventLoopGroup The event loop group to use, or null to use a dedicated thread per connection.
+     * @return A builder with modified configuration.
+     */
+    fun withTcpEventLoopGroup(eventLoopGroup: TcpEventLoopGroup?): ISteamConfigurationBuilder
+
+    /**
+     * Configures the socket options of TCP connections made with this [SteamConfiguration],
+     * such as TCP_NODELAY and the socket buffer sizes.
+     *
+     * @param socketOptions The socket options to apply.
+     * @return A builder with modified configuration.
+     */
+    fun withTcpSocketOptions(socketOptions: TcpSocketOptions): ISteamConfigurationBuilder
+
     /**
      * Configures the depot manifest provider for this [SteamConfiguration].
      *
@@ -127,4 +152,44 @@ interface ISteamConfigurationBuilder {
      * @return A builder with modified configuration.
      */
     fun withWebAPIKey(webApiKey: String): ISteamConfigurationBuilder
+
+    /**
+     * Configures the [WebSocketClientEngine] web socket connections of this [SteamConfiguration] are opened with.
+     * By default all configurations share [WebSocketClientEngine.default].
+     *
+     * @param engine The web socket client engine to use.
+     * @return A builder with modified configuration.
+     */
+    fun withWebSocketClientEngine(engine: WebSocketClientEngine): ISteamConfigurationBuilder
+
+    /**
+     * Configures the capacity and overflow policy of the callback queue of clients using this [SteamConfiguration].
+     * By default the queue is unbounded.
+     *
+     * @param options The callback queue options to use.
+     * @return A builder with modified configuration.
+     */
+    fun withCallbackQueueOptions(options: CallbackQueueOptions): ISteamConfigurationBuilder
+
+    /**
+     * Configures the threads connections and client coroutines of this [SteamConfiguration] run on,
+     * such as a virtual thread per connection on Java 21 and newer.
+     * By default connections use platform threads and coroutines run on [kotlinx.coroutines.Dispatchers.IO].
+     *
+     * @param threading The threading strategy to use.
+     * @return A builder with modified configuration.
+     */
+    fun withThreading(threading: ClientThreading): ISteamConfigurationBuilder
+
+    /**
+     * Configures the executor clients of this [SteamConfiguration] decode and handle incoming messages on.
+     * The connection thread then only reads and decrypts packets, so a slow handler or a large message doesn't hold
+     * up reading from the connection. Messages of each client are still handled one at a time and in order, several
+     * clients can share one executor.
+     * By default messages are handled on the connection thread.
+     *
+     * @param executor The executor to handle incoming messages on, or null to handle them on the connection thread.
+     * @return A builder with modified configuration.
+     */
+    fun withInboundMessageExecutor(executor: Executor?): ISteamConfigurationBuilder
 }
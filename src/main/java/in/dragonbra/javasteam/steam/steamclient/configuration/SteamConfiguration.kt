@@ -4,14 +4,20 @@ import `in`.dragonbra.javasteam.enums.EClientPersonaStateFlag
 import `in`.dragonbra.javasteam.enums.EUniverse
 import `in`.dragonbra.javasteam.networking.steam3.IConnectionFactory
 import `in`.dragonbra.javasteam.networking.steam3.ProtocolTypes
+import `in`.dragonbra.javasteam.networking.steam3.TcpEventLoopGroup
+import `in`.dragonbra.javasteam.networking.steam3.TcpSocketOptions
+import `in`.dragonbra.javasteam.networking.steam3.WebSocketClientEngine
 import `in`.dragonbra.javasteam.steam.contentdownloader.IManifestProvider
 import `in`.dragonbra.javasteam.steam.discovery.IServerListProvider
+import `in`.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions
+import `in`.dragonbra.javasteam.steam.steamclient.ClientThreading
 import `in`.dragonbra.javasteam.steam.discovery.SmartCMServerList
 import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
 import `in`.dragonbra.javasteam.steam.webapi.WebAPI
 import `in`.dragonbra.javasteam.util.compat.Consumer
 import okhttp3.OkHttpClient
 import java.util.*
+import java.util.concurrent.Executor
 
 /**
  * Configuration object to use.
@@ -79,6 +85,18 @@ class SteamConfiguration internal constructor(private val state: SteamConfigurat
     val serverListProvider: IServerListProvider
         get() = state.serverListProvider
 
+    /**
+     * The event loop group TCP connections are multiplexed on, or null if each connection uses its own thread.
+     */
+    val tcpEventLoopGroup: TcpEventLoopGroup?
+        get() = state.tcpEventLoopGroup
+
+    /**
+     * The socket options applied to TCP connections.
+     */
+    val tcpSocketOptions: TcpSocketOptions
+        get() = state.tcpSocketOptions
+
     /**
      * The depot manifest provider to use.
      */
@@ -103,6 +121,30 @@ class SteamConfiguration internal constructor(private val state: SteamConfigurat
     val webAPIKey: String?
         get() = state.webAPIKey
 
+    /**
+     * The client engine web socket connections are opened with.
+     */
+    val webSocketClientEngine: WebSocketClientEngine
+        get() = state.webSocketClientEngine
+
+    /**
+     * The capacity and overflow policy of the callback queue.
+     */
+    val callbackQueueOptions: CallbackQueueOptions
+        get() = state.callbackQueueOptions
+
+    /**
+     * The threads connections and client coroutines run on.
+     */
+    val threading: ClientThreading
+        get() = state.threading
+
+    /**
+     * The executor incoming messages are decoded and handled on, or null if they are handled on the connection thread.
+     */
+    val inboundMessageExecutor: Executor?
+        get() = state.inboundMessageExecutor
+
     /**
      * The server list provider to use.
      */
@@ -4,13 +4,19 @@ import `in`.dragonbra.javasteam.enums.EClientPersonaStateFlag
 import `in`.dragonbra.javasteam.enums.EUniverse
 import `in`.dragonbra.javasteam.networking.steam3.IConnectionFactory
 import `in`.dragonbra.javasteam.networking.steam3.ProtocolTypes
+import `in`.dragonbra.javasteam.networking.steam3.TcpEventLoopGroup
+import `in`.dragonbra.javasteam.networking.steam3.TcpSocketOptions
+import `in`.dragonbra.javasteam.networking.steam3.WebSocketClientEngine
 import `in`.dragonbra.javasteam.steam.contentdownloader.IManifestProvider
 import `in`.dragonbra.javasteam.steam.contentdownloader.MemoryManifestProvider
 import `in`.dragonbra.javasteam.steam.discovery.IServerListProvider
+import `in`.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions
+import `in`.dragonbra.javasteam.steam.steamclient.ClientThreading
 import `in`.dragonbra.javasteam.steam.discovery.MemoryServerListProvider
 import `in`.dragonbra.javasteam.steam.webapi.WebAPI
 import okhttp3.OkHttpClient
 import java.util.*
+import java.util.concurrent.Executor
 
 /**
  * @author lngtr
@@ -72,6 +78,16 @@ class SteamConfigurationBuilder : ISteamConfigurationBuilder {
         return this
     }
 
+    override fun withTcpEventLoopGroup(eventLoopGroup: TcpEventLoopGroup?): ISteamConfigurationBuilder {
+        state.tcpEventLoopGroup = eventLoopGroup
+        return this
+    }
+
+    override fun withTcpSocketOptions(socketOptions: TcpSocketOptions): ISteamConfigurationBuilder {
+        state.tcpSocketOptions = socketOptions
+        return this
+    }
+
     override fun withManifestProvider(provider: IManifestProvider): ISteamConfigurationBuilder {
         state.depotManifestProvider = provider
         return this
@@ -92,6 +108,26 @@ class SteamConfigurationBuilder : ISteamConfigurationBuilder {
         return this
     }
 
+    override fun withWebSocketClientEngine(engine: WebSocketClientEngine): ISteamConfigurationBuilder {
+        state.webSocketClientEngine = engine
+        return this
+    }
+
+    override fun withCallbackQueueOptions(options: CallbackQueueOptions): ISteamConfigurationBuilder {
+        state.callbackQueueOptions = options
+        return this
+    }
+
+    override fun withThreading(threading: ClientThreading): ISteamConfigurationBuilder {
+        state.threading = threading
+        return this
+    }
+
+    override fun withInboundMessageExecutor(executor: Executor?): ISteamConfigurationBuilder {
+        state.inboundMessageExecutor = executor
+        return this
+    }
+
     companion object {
         @JvmStatic
         fun createDefaultState(): SteamConfigurationState = SteamConfigurationState(
@@ -108,11 +144,17 @@ class SteamConfigurationBuilder : ISteamConfigurationBuilder {
             httpClient = OkHttpClient(),
             protocolTypes = EnumSet.of(ProtocolTypes.TCP, ProtocolTypes.WEB_SOCKET),
             serverListProvider = MemoryServerListProvider(),
+            tcpEventLoopGroup = null,
+            tcpSocketOptions = TcpSocketOptions.DEFAULT,
             depotManifestProvider = MemoryManifestProvider(),
             universe = EUniverse.Public,
             webAPIBaseAddress = WebAPI.DEFAULT_BASE_ADDRESS,
             cellID = 0,
             webAPIKey = null,
+            webSocketClientEngine = WebSocketClientEngine.default,
+            callbackQueueOptions = CallbackQueueOptions.DEFAULT,
+            threading = ClientThreading.DEFAULT,
+            inboundMessageExecutor = null,
         )
     }
 }
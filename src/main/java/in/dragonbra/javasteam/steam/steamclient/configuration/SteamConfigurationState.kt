@@ -4,10 +4,16 @@ import `in`.dragonbra.javasteam.enums.EClientPersonaStateFlag
 import `in`.dragonbra.javasteam.enums.EUniverse
 import `in`.dragonbra.javasteam.networking.steam3.IConnectionFactory
 import `in`.dragonbra.javasteam.networking.steam3.ProtocolTypes
+import `in`.dragonbra.javasteam.networking.steam3.TcpEventLoopGroup
+import `in`.dragonbra.javasteam.networking.steam3.TcpSocketOptions
+import `in`.dragonbra.javasteam.networking.steam3.WebSocketClientEngine
 import `in`.dragonbra.javasteam.steam.contentdownloader.IManifestProvider
 import `in`.dragonbra.javasteam.steam.discovery.IServerListProvider
+import `in`.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions
+import `in`.dragonbra.javasteam.steam.steamclient.ClientThreading
 import okhttp3.OkHttpClient
 import java.util.*
+import java.util.concurrent.Executor
 
 /**
  * @author lngtr
@@ -22,8 +28,14 @@ data class SteamConfigurationState(
     var httpClient: OkHttpClient,
     var protocolTypes: EnumSet<ProtocolTypes>,
     var serverListProvider: IServerListProvider,
+    var tcpEventLoopGroup: TcpEventLoopGroup?,
+    var tcpSocketOptions: TcpSocketOptions,
     var depotManifestProvider: IManifestProvider,
     var universe: EUniverse,
     var webAPIBaseAddress: String,
     var webAPIKey: String?,
+    var webSocketClientEngine: WebSocketClientEngine,
+    var callbackQueueOptions: CallbackQueueOptions,
+    var threading: ClientThreading,
+    var inboundMessageExecutor: Executor?,
 )
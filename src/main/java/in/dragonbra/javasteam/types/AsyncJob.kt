@@ -1,8 +1,8 @@
 package `in`.dragonbra.javasteam.types
 
+import `in`.dragonbra.javasteam.steam.steamclient.AsyncJobManager
 import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
 import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
-import java.time.Instant
 
 /**
  * The base class for awaitable versions of a [JobID].
@@ -13,12 +13,33 @@ import java.time.Instant
  */
 abstract class AsyncJob(val client: SteamClient, val jobID: JobID) {
 
-    private var jobStart = Instant.now()
+    internal companion object {
+        /**
+         * Monotonic clock the job deadlines are measured in.
+         */
+        fun currentTimeMillis(): Long = System.nanoTime() / 1_000_000L
+    }
+
+    private val jobStart = currentTimeMillis()
 
+    /**
+     * The manager tracking this job, told when the deadline moves closer.
+     */
+    @Volatile
+    internal var manager: AsyncJobManager? = null
+
+    @Volatile
     var timeout: Long = 10000 // 10 Seconds
+        set(value) {
+            field = value
+            manager?.onDeadlineChanged(this)
+        }
+
+    internal val deadline: Long
+        get() = jobStart + timeout
 
     val isTimedOut: Boolean
-        get() = Instant.now() >= jobStart.plusMillis(timeout)
+        get() = currentTimeMillis() >= deadline
 
     protected fun registerJob(client: SteamClient) {
         client.startJob(this)
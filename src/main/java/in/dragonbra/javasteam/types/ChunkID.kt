@@ -0,0 +1,72 @@
+package `in`.dragonbra.javasteam.types
+
+import `in`.dragonbra.javasteam.util.Strings
+
+/**
+ * The SHA-1 id of a depot chunk as a value that compares by content, for use as a hash key.
+ * The 20 bytes are kept in three fields instead of an array.
+ */
+class ChunkID private constructor(
+    private val high: Long,
+    private val middle: Long,
+    private val low: Int,
+) {
+
+    companion object {
+        /**
+         * The length of a chunk id in bytes.
+         */
+        const val SIZE: Int = 20
+
+        /**
+         * @param id The 20 byte chunk id.
+         * @return The chunk id value.
+         * @throws IllegalArgumentException If the id isn't 20 bytes long.
+         */
+        @JvmStatic
+        fun of(id: ByteArray): ChunkID {
+            require(id.size == SIZE) { "A chunk id must be $SIZE bytes long, was ${id.size}" }
+
+            return ChunkID(readLong(id, 0), readLong(id, 8), readLong(id, 16, 4).toInt())
+        }
+
+        /**
+         * @param chunk The chunk.
+         * @return The id of the chunk as a value.
+         * @throws IllegalArgumentException If the chunk has no id or it isn't 20 bytes long.
+         */
+        @JvmStatic
+        fun of(chunk: ChunkData): ChunkID = of(requireNotNull(chunk.chunkID) { "Chunk must have a ChunkID." })
+
+        private fun readLong(bytes: ByteArray, offset: Int, length: Int = 8): Long {
+            var value = 0L
+            for (i in offset until offset + length) {
+                value = (value shl 8) or (bytes[i].toLong() and 0xFF)
+            }
+            return value
+        }
+    }
+
+    /**
+     * @return The 20 byte chunk id.
+     */
+    fun toByteArray(): ByteArray {
+        val bytes = ByteArray(SIZE)
+        for (i in 0 until 8) {
+            bytes[i] = (high ushr (56 - i * 8)).toByte()
+            bytes[i + 8] = (middle ushr (56 - i * 8)).toByte()
+        }
+        for (i in 0 until 4) {
+            bytes[i + 16] = (low ushr (24 - i * 8)).toByte()
+        }
+        return bytes
+    }
+
+    override fun equals(other: Any?): Boolean =
+        other is ChunkID && high == other.high && middle == other.middle && low == other.low
+
+    // the id is a hash already, any part of it is evenly distributed
+    override fun hashCode(): Int = (high ushr 32).toInt()
+
+    override fun toString(): String = Strings.toHex(toByteArray())
+}
@@ -247,6 +247,13 @@ class DepotManifest {
         return true
     }
 
+    /**
+     * Compares this manifest to a previous version of the same depot.
+     * @param previous The previous manifest, or **null** if there is none and every file is new.
+     * @return The added, removed, changed and unchanged files, and the chunks that can be reused.
+     */
+    fun diff(previous: DepotManifest?): DepotManifestDiff = DepotManifestDiff(this, previous)
+
     /**
      * Serializes depot manifest and saves the output to a file.
      * @param filename Output file name.
@@ -0,0 +1,114 @@
+package `in`.dragonbra.javasteam.types
+
+/**
+ * The differences between a [DepotManifest] and a previous version of the same depot, see [DepotManifest.diff].
+ * Files are matched by name and chunks by [ChunkID], through hash indexes, so building the diff and each lookup take
+ * time linear in the size of the manifests and of the looked up file.
+ *
+ * @constructor Compares [manifest] to [previous].
+ */
+class DepotManifestDiff internal constructor(
+    private val manifest: DepotManifest,
+    private val previous: DepotManifest?,
+) {
+
+    /**
+     * Files of the manifest that aren't in the previous manifest.
+     */
+    val added: List<FileData>
+
+    /**
+     * Files of the previous manifest that aren't in the manifest anymore.
+     */
+    val removed: List<FileData>
+
+    /**
+     * Files of the manifest whose content changed since the previous manifest.
+     */
+    val changed: List<FileData>
+
+    /**
+     * Files of the manifest whose content is the same as in the previous manifest.
+     */
+    val unchanged: List<FileData>
+
+    private val previousFiles: Map<String, FileData>
+
+    init {
+        val previousFileList = previous?.files.orEmpty()
+
+        val previousFiles = HashMap<String, FileData>(previousFileList.size * 4 / 3 + 1)
+        for (file in previousFileList) {
+            previousFiles.putIfAbsent(file.fileName, file)
+        }
+
+        val added = ArrayList<FileData>()
+        val changed = ArrayList<FileData>()
+        val unchanged = ArrayList<FileData>()
+        val currentNames = HashSet<String>(manifest.files.size * 4 / 3 + 1)
+
+        for (file in manifest.files) {
+            currentNames.add(file.fileName)
+
+            val previousFile = previousFiles[file.fileName]
+            when {
+                previousFile == null -> added.add(file)
+                previousFile.fileHash.contentEquals(file.fileHash) -> unchanged.add(file)
+                else -> changed.add(file)
+            }
+        }
+
+        this.previousFiles = previousFiles
+        this.added = added
+        this.changed = changed
+        this.unchanged = unchanged
+        removed = previousFileList.filter { it.fileName !in currentNames }
+    }
+
+    /**
+     * Ids of the chunks of the manifest that are also used by the previous manifest, in any file.
+     */
+    val reusableChunks: Set<ChunkID> by lazy {
+        val previousChunks = HashSet<ChunkID>()
+        previous?.files?.forEach { file ->
+            file.chunks.forEach { previousChunks.add(ChunkID.of(it)) }
+        }
+
+        val reusable = HashSet<ChunkID>()
+        if (previousChunks.isNotEmpty()) {
+            manifest.files.forEach { file ->
+                file.chunks.forEach { chunk ->
+                    val id = ChunkID.of(chunk)
+                    if (id in previousChunks) {
+                        reusable.add(id)
+                    }
+                }
+            }
+        }
+
+        reusable
+    }
+
+    /**
+     * @param file A file of the manifest.
+     * @return The previous version of the file, or null if the file was added.
+     */
+    fun getPreviousFile(file: FileData): FileData? = previousFiles[file.fileName]
+
+    /**
+     * Indexes the chunks of the previous version of a file by id, to find which chunks of the file can be copied from
+     * its previous version. If a chunk is used several times by the previous version, the first one is indexed.
+     *
+     * @param file A file of the manifest.
+     * @return The chunks of the previous version of the file, empty if the file was added.
+     */
+    fun getPreviousChunks(file: FileData): Map<ChunkID, ChunkData> {
+        val previousFile = getPreviousFile(file) ?: return emptyMap()
+
+        val chunks = HashMap<ChunkID, ChunkData>(previousFile.chunks.size * 4 / 3 + 1)
+        for (chunk in previousFile.chunks) {
+            chunks.putIfAbsent(ChunkID.of(chunk), chunk)
+        }
+        return chunks
+    }
+}
@@ -26,63 +26,79 @@ object Adler32 {
      * @return The updated Adler-32 checksum
      */
     @JvmStatic
-    fun calculate(adler: Int, buffer: ByteArray): Int {
+    fun calculate(adler: Int, buffer: ByteArray): Int = calculate(adler, buffer, 0, buffer.size)
+
+    /**
+     * Calculates the Adler32 checksum with [length] bytes of the [ByteArray] starting at [offset],
+     * so a checksum can be taken over part of a larger (e.g. pooled) buffer without copying it.
+     * @param adler The input Adler32 value. (use 1 for initial calculation)
+     * @param buffer The byte array to process
+     * @param offset The index of the first byte to process
+     * @param length The number of bytes to process
+     * @return The updated Adler-32 checksum
+     */
+    @JvmStatic
+    fun calculate(adler: Int, buffer: ByteArray, offset: Int, length: Int): Int {
+        if (offset < 0 || length < 0 || offset > buffer.size - length) {
+            throw IndexOutOfBoundsException("offset $offset and length $length out of bounds for ${buffer.size} bytes")
+        }
+
         var s1 = (adler and 0xFFFF).toLong()
         var s2 = ((adler ushr 16) and 0xFFFF).toLong()
 
-        var offset = 0
-        val length = buffer.size
+        var position = offset
+        val end = position + length
 
-        while (offset < length) {
-            val k = minOf(length - offset, NMAX)
-            val chunkEnd = offset + k
+        while (position < end) {
+            val k = minOf(end - position, NMAX)
+            val chunkEnd = position + k
             var remaining = k
 
             // Unroll by 16 bytes for maximum performance
             while (remaining >= 16) {
-                s1 += (buffer[offset].toInt() and 0xFF).toLong()
+                s1 += (buffer[position].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 1].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 1].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 2].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 2].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 3].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 3].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 4].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 4].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 5].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 5].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 6].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 6].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 7].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 7].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 8].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 8].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 9].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 9].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 10].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 10].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 11].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 11].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 12].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 12].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 13].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 13].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 14].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 14].toInt() and 0xFF).toLong()
                 s2 += s1
-                s1 += (buffer[offset + 15].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + 15].toInt() and 0xFF).toLong()
                 s2 += s1
 
-                offset += 16
+                position += 16
                 remaining -= 16
             }
 
             for (i in 0 until remaining) {
-                s1 += (buffer[offset + i].toInt() and 0xFF).toLong()
+                s1 += (buffer[position + i].toInt() and 0xFF).toLong()
                 s2 += s1
             }
 
-            offset = chunkEnd
+            position = chunkEnd
 
             s1 %= BASE
             s2 %= BASE
@@ -0,0 +1,95 @@
+package `in`.dragonbra.javasteam.util
+
+/**
+ * A size-classed pool of byte arrays, similar to .NET's `ArrayPool<byte>`.
+ * Arrays are grouped in power-of-two buckets, so a rented array may be larger than requested.
+ * Requests above [maxArrayLength] are allocated directly and not retained when released.
+ *
+ * @param maxArrayLength The largest array size that is pooled.
+ * @param maxArraysPerBucket How many arrays each bucket retains at most.
+ */
+class ByteArrayPool @JvmOverloads constructor(
+    val maxArrayLength: Int = DEFAULT_MAX_ARRAY_LENGTH,
+    private val maxArraysPerBucket: Int = DEFAULT_MAX_ARRAYS_PER_BUCKET,
+) {
+
+    companion object {
+        private const val MIN_ARRAY_LENGTH = 16
+
+        const val DEFAULT_MAX_ARRAY_LENGTH = 16 * 1024 * 1024
+
+        const val DEFAULT_MAX_ARRAYS_PER_BUCKET = 32
+
+        /**
+         * A process-wide pool instance.
+         */
+        @JvmStatic
+        val shared: ByteArrayPool = ByteArrayPool()
+
+        private fun bucketIndex(length: Int): Int {
+            val size = maxOf(length, MIN_ARRAY_LENGTH)
+            // index of the smallest power of two >= size, relative to MIN_ARRAY_LENGTH
+            return (32 - Integer.numberOfLeadingZeros(size - 1)) - 4
+        }
+
+        private fun bucketSize(index: Int): Int = MIN_ARRAY_LENGTH shl index
+    }
+
+    private val buckets: Array<Bucket> = Array(bucketIndex(maxArrayLength) + 1) { Bucket(maxArraysPerBucket) }
+
+    /**
+     * Rents an array of at least [minimumLength] bytes. The contents of the array are undefined.
+     *
+     * @param minimumLength The minimum length of the array.
+     * @return An array whose size is at least [minimumLength].
+     */
+    fun rent(minimumLength: Int): ByteArray {
+        require(minimumLength >= 0) { "minimumLength must not be negative" }
+
+        if (minimumLength > maxArrayLength) {
+            return ByteArray(minimumLength)
+        }
+
+        val index = bucketIndex(minimumLength)
+        return buckets[index].poll() ?: ByteArray(bucketSize(index))
+    }
+
+    /**
+     * Returns an array previously obtained from [rent] to the pool. The caller must not use the array afterward.
+     * Arrays that were not rented from this pool are ignored.
+     *
+     * @param array The array to return.
+     */
+    fun release(array: ByteArray) {
+        val length = array.size
+        if (length < MIN_ARRAY_LENGTH || length > maxArrayLength || Integer.bitCount(length) != 1) {
+            return
+        }
+
+        buckets[bucketIndex(length)].offer(array)
+    }
+
+    private class Bucket(capacity: Int) {
+        private val arrays = arrayOfNulls<ByteArray>(capacity)
+
+        private var count = 0
+
+        @Synchronized
+        fun poll(): ByteArray? {
+            if (count == 0) {
+                return null
+            }
+
+            val array = arrays[--count]
+            arrays[count] = null
+            return array
+        }
+
+        @Synchronized
+        fun offer(array: ByteArray) {
+            if (count < arrays.size) {
+                arrays[count++] = array
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package `in`.dragonbra.javasteam.util
+
+import java.io.IOException
+import java.util.zip.CRC32
+import java.util.zip.DataFormatException
+import java.util.zip.Deflater
+import java.util.zip.Inflater
+import java.util.zip.ZipException
+
+/**
+ * Decompresses gzip members straight into a caller provided array.
+ * Unlike [java.util.zip.GZIPInputStream], no stream or native [Inflater] is created per call: inflaters are reset and
+ * kept in a small pool, which matters for message bursts such as `CMsgMulti`.
+ */
+object GzipUtil {
+
+    private const val MAX_POOLED_INFLATERS = 4
+
+    private const val HEADER_SIZE = 10
+
+    private const val TRAILER_SIZE = 8
+
+    private const val FHCRC = 2
+    private const val FEXTRA = 4
+    private const val FNAME = 8
+    private const val FCOMMENT = 16
+
+    private val inflaters = ArrayDeque<Inflater>(MAX_POOLED_INFLATERS)
+
+    /**
+     * Decompresses a single gzip member into [destination] and verifies its CRC32 and size.
+     *
+     * @param input The array holding the compressed data.
+     * @param offset The offset of the gzip member in [input].
+     * @param length The length of the gzip member.
+     * @param destination The array that receives the decompressed bytes, starting at index 0.
+     * @return The number of decompressed bytes.
+     * @throws IOException if the data is not valid gzip or does not fit in [destination].
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun decompress(input: ByteArray, offset: Int, length: Int, destination: ByteArray): Int {
+        require(offset >= 0 && length >= 0 && offset + length <= input.size) { "offset and length out of range" }
+
+        val end = offset + length
+        val dataOffset = skipHeader(input, offset, end)
+
+        val inflater = rentInflater()
+        try {
+            inflater.setInput(input, dataOffset, end - dataOffset)
+
+            var written = 0
+            while (!inflater.finished()) {
+                val n = if (written < destination.size) {
+                    inflater.inflate(destination, written, destination.size - written)
+                } else {
+                    // the destination is full, the stream may still have to consume its end of block marker
+                    if (inflater.inflate(ByteArray(1)) > 0) {
+                        throw ZipException("Decompressed data is larger than the destination buffer")
+                    }
+                    0
+                }
+
+                if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw ZipException("Unexpected end of gzip data")
+                }
+
+                written += n
+            }
+
+            val trailer = end - inflater.remaining
+            if (end - trailer < TRAILER_SIZE) {
+                throw ZipException("Missing gzip trailer")
+            }
+
+            val crc = CRC32()
+            crc.update(destination, 0, written)
+
+            if (readIntLE(input, trailer).toLong() and 0xFFFFFFFFL != crc.value) {
+                throw ZipException("Corrupt gzip data: CRC32 mismatch")
+            }
+            if (readIntLE(input, trailer + 4) != written) {
+                throw ZipException("Corrupt gzip data: size mismatch")
+            }
+
+            return written
+        } catch (e: DataFormatException) {
+            throw ZipException(e.message ?: "Invalid deflate data")
+        } finally {
+            releaseInflater(inflater)
+        }
+    }
+
+    private fun skipHeader(input: ByteArray, offset: Int, end: Int): Int {
+        if (end - offset < HEADER_SIZE) {
+            throw ZipException("Not in gzip format")
+        }
+
+        if (input[offset] != 0x1F.toByte() || input[offset + 1] != 0x8B.toByte()) {
+            throw ZipException("Not in gzip format")
+        }
+
+        if (input[offset + 2].toInt() != Deflater.DEFLATED) {
+            throw ZipException("Unsupported gzip compression method")
+        }
+
+        val flags = input[offset + 3].toInt()
+        var pos = offset + HEADER_SIZE
+
+        if (flags and FEXTRA != 0) {
+            if (end - pos < 2) {
+                throw ZipException("Truncated gzip header")
+            }
+            pos += 2 + ((input[pos].toInt() and 0xFF) or ((input[pos + 1].toInt() and 0xFF) shl 8))
+        }
+        if (flags and FNAME != 0) {
+            pos = skipZeroTerminated(input, pos, end)
+        }
+        if (flags and FCOMMENT != 0) {
+            pos = skipZeroTerminated(input, pos, end)
+        }
+        if (flags and FHCRC != 0) {
+            pos += 2
+        }
+
+        if (pos > end) {
+            throw ZipException("Truncated gzip header")
+        }
+
+        return pos
+    }
+
+    private fun skipZeroTerminated(input: ByteArray, offset: Int, end: Int): Int {
+        var pos = offset
+        while (pos < end) {
+            if (input[pos++].toInt() == 0) {
+                return pos
+            }
+        }
+        throw ZipException("Truncated gzip header")
+    }
+
+    private fun readIntLE(input: ByteArray, offset: Int): Int =
+        (input[offset].toInt() and 0xFF) or
+            ((input[offset + 1].toInt() and 0xFF) shl 8) or
+            ((input[offset + 2].toInt() and 0xFF) shl 16) or
+            ((input[offset + 3].toInt() and 0xFF) shl 24)
+
+    private fun rentInflater(): Inflater = synchronized(inflaters) { inflaters.removeLastOrNull() } ?: Inflater(true)
+
+    private fun releaseInflater(inflater: Inflater) {
+        inflater.reset()
+
+        val pooled = synchronized(inflaters) {
+            if (inflaters.size < MAX_POOLED_INFLATERS) {
+                inflaters.addLast(inflater)
+                true
+            } else {
+                false
+            }
+        }
+
+        if (!pooled) {
+            inflater.end()
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package in.dragonbra.javasteam.util;
+
+import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decodes bit masks into sets of flag enum constants. A constant is part of the set when all of its bits are set in
+ * the mask. Decoded sets are cached per mask, a lookup returns a copy of the cached set so callers may modify it.
+ * Used by the generated {@code from(code)} methods of the steam language flag enums.
+ *
+ * @param <E> the enum type
+ */
+public final class IntEnumFlags<E extends Enum<E>> {
+
+    /**
+     * Masks seen beyond this many are decoded every time instead of being cached.
+     */
+    private static final int MAX_CACHED_MASKS = 1024;
+
+    private final Class<E> enumClass;
+
+    private final E[] constants;
+
+    private final int[] codes;
+
+    private final ConcurrentHashMap<Integer, EnumSet<E>> cache = new ConcurrentHashMap<>();
+
+    private IntEnumFlags(Class<E> enumClass, ToIntFunction<E> code) {
+        this.enumClass = enumClass;
+        this.constants = enumClass.getEnumConstants();
+        this.codes = new int[constants.length];
+
+        for (int i = 0; i < constants.length; i++) {
+            codes[i] = code.applyAsInt(constants[i]);
+        }
+    }
+
+    /**
+     * Creates a decoder over all constants of the enum.
+     *
+     * @param enumClass the enum type
+     * @param code      returns the code of a constant
+     * @param <E>       the enum type
+     * @return the decoder
+     */
+    public static <E extends Enum<E>> IntEnumFlags<E> of(Class<E> enumClass, ToIntFunction<E> code) {
+        return new IntEnumFlags<>(enumClass, code);
+    }
+
+    /**
+     * Decodes a bit mask.
+     *
+     * @param code the bit mask
+     * @return a new set holding the constants whose bits are all set in the mask
+     */
+    public EnumSet<E> decode(int code) {
+        EnumSet<E> cached = cache.get(code);
+
+        if (cached == null) {
+            cached = EnumSet.noneOf(enumClass);
+            for (int i = 0; i < constants.length; i++) {
+                if ((codes[i] & code) == codes[i]) {
+                    cached.add(constants[i]);
+                }
+            }
+
+            if (cache.size() < MAX_CACHED_MASKS) {
+                cache.putIfAbsent(code, cached);
+            }
+        }
+
+        return cached.clone();
+    }
+
+    /**
+     * Encodes a set of flags into a bit mask.
+     *
+     * @param flags the flags
+     * @return the bits of all flags combined
+     */
+    public int encode(EnumSet<E> flags) {
+        int code = 0;
+        for (E flag : flags) {
+            code |= codes[flag.ordinal()];
+        }
+        return code;
+    }
+}
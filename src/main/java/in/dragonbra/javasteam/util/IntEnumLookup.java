@@ -0,0 +1,118 @@
+package in.dragonbra.javasteam.util;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Maps the numeric codes of an enum back to its constants in constant time.
+ * Codes spanning a small range are looked up in an array indexed by the code, sparse codes in an open addressing
+ * hash table keyed by the primitive code, so neither path boxes or copies {@code values()}.
+ * If several constants share a code, the one declared first wins.
+ * Used by the generated {@code from(code)} methods of the steam language enums.
+ *
+ * @param <E> the enum type
+ */
+public final class IntEnumLookup<E extends Enum<E>> {
+
+    private static final int MIN_DENSE_RANGE = 256;
+
+    private static final int MAX_DENSE_RANGE_PER_CONSTANT = 4;
+
+    private final int min;
+
+    private final Object[] dense;
+
+    private final int[] keys;
+
+    private final Object[] values;
+
+    private final int mask;
+
+    private IntEnumLookup(E[] constants, ToIntFunction<E> code) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (E constant : constants) {
+            int c = code.applyAsInt(constant);
+            min = Math.min(min, c);
+            max = Math.max(max, c);
+        }
+
+        long range = constants.length == 0 ? 0 : (long) max - min + 1;
+        long maxDenseRange = Math.max(MIN_DENSE_RANGE, (long) constants.length * MAX_DENSE_RANGE_PER_CONSTANT);
+
+        if (range <= maxDenseRange) {
+            this.min = min;
+            this.dense = new Object[(int) range];
+            this.keys = null;
+            this.values = null;
+            this.mask = 0;
+
+            for (E constant : constants) {
+                int index = code.applyAsInt(constant) - min;
+                if (dense[index] == null) {
+                    dense[index] = constant;
+                }
+            }
+        } else {
+            int capacity = Integer.highestOneBit(constants.length * 2 - 1) << 1;
+
+            this.min = 0;
+            this.dense = null;
+            this.keys = new int[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+
+            for (E constant : constants) {
+                int c = code.applyAsInt(constant);
+                int index = hash(c) & mask;
+                while (values[index] != null && keys[index] != c) {
+                    index = (index + 1) & mask;
+                }
+                if (values[index] == null) {
+                    keys[index] = c;
+                    values[index] = constant;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a lookup over all constants of the enum.
+     *
+     * @param enumClass the enum type
+     * @param code      returns the code of a constant
+     * @param <E>       the enum type
+     * @return the lookup
+     */
+    public static <E extends Enum<E>> IntEnumLookup<E> of(Class<E> enumClass, ToIntFunction<E> code) {
+        return new IntEnumLookup<>(enumClass.getEnumConstants(), code);
+    }
+
+    /**
+     * Gets the constant with the given code.
+     *
+     * @param code the code
+     * @return the first declared constant with the code, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int code) {
+        if (dense != null) {
+            int index = code - min;
+            return index >= 0 && index < dense.length ? (E) dense[index] : null;
+        }
+
+        int index = hash(code) & mask;
+        Object value;
+        while ((value = values[index]) != null) {
+            if (keys[index] == code) {
+                return (E) value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int hash(int code) {
+        int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
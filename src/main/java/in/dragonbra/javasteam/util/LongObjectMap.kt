@@ -0,0 +1,167 @@
+package `in`.dragonbra.javasteam.util
+
+/**
+ * A hash map keyed by primitive longs, so lookups don't box the key or allocate an id object.
+ * Uses open addressing with linear probing and backward shift deletion. Not thread safe.
+ *
+ * @param V The value type.
+ * @param initialCapacity The number of entries the map holds before it grows.
+ */
+class LongObjectMap<V : Any> @JvmOverloads constructor(initialCapacity: Int = 16) {
+
+    companion object {
+        private const val MIN_CAPACITY = 8
+
+        private fun capacityFor(entries: Int): Int {
+            // keep the load factor at or below 0.75
+            val needed = maxOf(MIN_CAPACITY, (entries.toLong() * 4 / 3 + 1).toInt())
+            return Integer.highestOneBit(needed - 1) shl 1
+        }
+
+        private fun hash(key: Long): Int {
+            val h = key * -0x61c8864680b583ebL
+            return (h xor (h ushr 32)).toInt()
+        }
+    }
+
+    private var keys: LongArray
+
+    private var values: Array<Any?>
+
+    private var mask: Int
+
+    private var threshold: Int
+
+    /**
+     * The number of entries in the map.
+     */
+    var size: Int = 0
+        private set
+
+    init {
+        require(initialCapacity >= 0) { "initialCapacity must not be negative" }
+
+        val capacity = capacityFor(initialCapacity)
+        keys = LongArray(capacity)
+        values = arrayOfNulls(capacity)
+        mask = capacity - 1
+        threshold = capacity / 4 * 3
+    }
+
+    fun isEmpty(): Boolean = size == 0
+
+    operator fun get(key: Long): V? {
+        var index = hash(key) and mask
+        while (true) {
+            val value = values[index] ?: return null
+            if (keys[index] == key) {
+                @Suppress("UNCHECKED_CAST")
+                return value as V
+            }
+            index = (index + 1) and mask
+        }
+    }
+
+    fun containsKey(key: Long): Boolean = get(key) != null
+
+    /**
+     * Associates the value with the key.
+     *
+     * @return The previous value for the key, or null if there was none.
+     */
+    fun put(key: Long, value: V): V? {
+        var index = hash(key) and mask
+        while (true) {
+            val existing = values[index]
+            if (existing == null) {
+                keys[index] = key
+                values[index] = value
+                if (++size > threshold) {
+                    resize(values.size * 2)
+                }
+                return null
+            }
+            if (keys[index] == key) {
+                values[index] = value
+                @Suppress("UNCHECKED_CAST")
+                return existing as V
+            }
+            index = (index + 1) and mask
+        }
+    }
+
+    /**
+     * Removes the entry for the key.
+     *
+     * @return The removed value, or null if the key wasn't present.
+     */
+    fun remove(key: Long): V? {
+        var index = hash(key) and mask
+        while (true) {
+            val value = values[index] ?: return null
+            if (keys[index] == key) {
+                deleteAt(index)
+                @Suppress("UNCHECKED_CAST")
+                return value as V
+            }
+            index = (index + 1) and mask
+        }
+    }
+
+    fun clear() {
+        values.fill(null)
+        size = 0
+    }
+
+    /**
+     * @return A snapshot of the values in the map.
+     */
+    fun values(): List<V> {
+        val result = ArrayList<V>(size)
+        for (value in values) {
+            if (value != null) {
+                @Suppress("UNCHECKED_CAST")
+                result.add(value as V)
+            }
+        }
+        return result
+    }
+
+    private fun deleteAt(slot: Int) {
+        // shift following entries of the probe sequence back, so lookups don't stop early at the hole
+        var hole = slot
+        var index = (slot + 1) and mask
+        while (values[index] != null) {
+            val home = hash(keys[index]) and mask
+            // move the entry if its home isn't cyclically within (hole, index]
+            if (((index - home) and mask) >= ((index - hole) and mask)) {
+                keys[hole] = keys[index]
+                values[hole] = values[index]
+                hole = index
+            }
+            index = (index + 1) and mask
+        }
+        values[hole] = null
+        size--
+    }
+
+    private fun resize(capacity: Int) {
+        val oldKeys = keys
+        val oldValues = values
+
+        keys = LongArray(capacity)
+        values = arrayOfNulls(capacity)
+        mask = capacity - 1
+        threshold = capacity / 4 * 3
+
+        for (i in oldValues.indices) {
+            val value = oldValues[i] ?: continue
+            var index = hash(oldKeys[i]) and mask
+            while (values[index] != null) {
+                index = (index + 1) and mask
+            }
+            keys[index] = oldKeys[i]
+            values[index] = value
+        }
+    }
+}
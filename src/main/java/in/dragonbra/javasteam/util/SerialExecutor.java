@@ -0,0 +1,151 @@
+package in.dragonbra.javasteam.util;
+
+import in.dragonbra.javasteam.util.log.LogManager;
+import in.dragonbra.javasteam.util.log.Logger;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on a shared executor. Many serial executors can share
+ * one pool while each keeps its own ordering, so a slow task delays only the tasks submitted to the same serial
+ * executor. After a batch of tasks the drain is resubmitted to the pool, so a busy serial executor doesn't hold on to
+ * a worker thread while others wait.
+ */
+public final class SerialExecutor implements Executor {
+
+    private static final Logger logger = LogManager.getLogger(SerialExecutor.class);
+
+    private static final int MAX_BATCH = 64;
+
+    private final Executor executor;
+
+    private final Runnable drain = this::drain;
+
+    // guarded by tasks
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+
+    private boolean running;
+
+    private long completedTasks;
+
+    private long totalWaitNanos;
+
+    private long maxWaitNanos;
+
+    private long totalRunNanos;
+
+    private long maxRunNanos;
+
+    /**
+     * @param executor the executor the tasks run on
+     */
+    public SerialExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a task to run after all previously submitted tasks have finished. Exceptions thrown by the task are
+     * logged and don't stop the tasks after it. If the underlying executor rejects the drain, e.g. because it is
+     * shutting down, the queue is run on the calling thread instead, so no task is lost.
+     *
+     * @param command the task
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command is null");
+        }
+
+        synchronized (tasks) {
+            tasks.add(new Task(command, System.nanoTime()));
+
+            if (running) {
+                return;
+            }
+
+            running = true;
+        }
+
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException e) {
+            // the pool is shutting down, finish the queue on this thread instead of losing it
+            drain();
+        }
+    }
+
+    /**
+     * @return a snapshot of the queue depth and the time tasks spent waiting and running.
+     */
+    public SerialExecutorStats getStats() {
+        synchronized (tasks) {
+            return new SerialExecutorStats(tasks.size(), completedTasks, totalWaitNanos, maxWaitNanos,
+                    totalRunNanos, maxRunNanos);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                Task task;
+
+                synchronized (tasks) {
+                    task = tasks.poll();
+
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+
+                runTask(task);
+            }
+
+            try {
+                executor.execute(drain);
+                return;
+            } catch (RejectedExecutionException e) {
+                // the pool is shutting down, finish the queue on this thread instead of losing it
+            }
+        }
+    }
+
+    private void runTask(Task task) {
+        long startTime = System.nanoTime();
+
+        try {
+            task.command.run();
+        } catch (Exception e) {
+            logger.error("serial task failed", e);
+        }
+
+        long endTime = System.nanoTime();
+        long waitNanos = startTime - task.submitTime;
+        long runNanos = endTime - startTime;
+
+        synchronized (tasks) {
+            completedTasks++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            totalRunNanos += runNanos;
+            maxRunNanos = Math.max(maxRunNanos, runNanos);
+        }
+    }
+
+    private static final class Task {
+        private final Runnable command;
+
+        private final long submitTime;
+
+        private Task(Runnable command, long submitTime) {
+            this.command = command;
+            this.submitTime = submitTime;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package in.dragonbra.javasteam.util;
+
+/**
+ * Snapshot of the queue and timings of a {@link SerialExecutor}.
+ */
+public final class SerialExecutorStats {
+
+    private final int queuedTasks;
+
+    private final long completedTasks;
+
+    private final long totalWaitNanos;
+
+    private final long maxWaitNanos;
+
+    private final long totalRunNanos;
+
+    private final long maxRunNanos;
+
+    SerialExecutorStats(int queuedTasks, long completedTasks, long totalWaitNanos, long maxWaitNanos,
+                        long totalRunNanos, long maxRunNanos) {
+        this.queuedTasks = queuedTasks;
+        this.completedTasks = completedTasks;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.totalRunNanos = totalRunNanos;
+        this.maxRunNanos = maxRunNanos;
+    }
+
+    /**
+     * @return The number of tasks waiting to run, not counting a task that is running.
+     */
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    /**
+     * @return The number of tasks that finished running.
+     */
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * @return The average time in nanoseconds a finished task waited between being submitted and starting,
+     * or 0 if no task finished yet.
+     */
+    public long getAverageWaitNanos() {
+        return completedTasks == 0 ? 0 : totalWaitNanos / completedTasks;
+    }
+
+    /**
+     * @return The longest time in nanoseconds a finished task waited before starting.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * @return The average time in nanoseconds a finished task ran, or 0 if no task finished yet.
+     */
+    public long getAverageRunNanos() {
+        return completedTasks == 0 ? 0 : totalRunNanos / completedTasks;
+    }
+
+    /**
+     * @return The longest time in nanoseconds a finished task ran.
+     */
+    public long getMaxRunNanos() {
+        return maxRunNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SerialExecutorStats{" +
+                "queuedTasks=" + queuedTasks +
+                ", completedTasks=" + completedTasks +
+                ", averageWaitNanos=" + getAverageWaitNanos() +
+                ", maxWaitNanos=" + maxWaitNanos +
+                ", averageRunNanos=" + getAverageRunNanos() +
+                ", maxRunNanos=" + maxRunNanos +
+                '}';
+    }
+}
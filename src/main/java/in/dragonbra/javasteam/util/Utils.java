@@ -189,8 +189,20 @@ public class Utils {
      * @return long value of the CRC32
      */
     public static long crc32(byte[] bytes) {
+        return crc32(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Convenience method for calculating the CRC32 checksum of a range of a byte array.
+     *
+     * @param bytes  the byte array
+     * @param offset the index of the first byte
+     * @param length the number of bytes
+     * @return long value of the CRC32
+     */
+    public static long crc32(byte[] bytes, int offset, int length) {
         Checksum checksum = new CRC32();
-        checksum.update(bytes, 0, bytes.length);
+        checksum.update(bytes, offset, length);
         return checksum.getValue();
     }
 
@@ -209,21 +221,33 @@ public class Utils {
         List<ChunkData> neededChunks = new ArrayList<>();
         int read;
 
+        ByteArrayPool pool = ByteArrayPool.getShared();
+
         for (ChunkData data : chunkData) {
-            byte[] chunk = new byte[data.getUncompressedLength()];
-            fs.getChannel().position(data.getOffset());
-            read = fs.read(chunk, 0, data.getUncompressedLength());
-
-            byte[] tempChunk;
-            if (read > 0 && read < data.getUncompressedLength()) {
-                tempChunk = Arrays.copyOf(chunk, read);
-            } else {
-                tempChunk = chunk;
-            }
+            byte[] chunk = pool.rent(data.getUncompressedLength());
+
+            try {
+                fs.getChannel().position(data.getOffset());
+                read = fs.read(chunk, 0, data.getUncompressedLength());
+
+                int length;
+                if (read > 0 && read < data.getUncompressedLength()) {
+                    length = read;
+                } else {
+                    length = data.getUncompressedLength();
+                }
 
-            int adler = Adler32.calculate(tempChunk);
-            if (adler != data.getChecksum()) {
-                neededChunks.add(data);
+                if (read <= 0) {
+                    // nothing could be read, the rented array holds stale data where the chunk is missing
+                    Arrays.fill(chunk, 0, length, (byte) 0);
+                }
+
+                int adler = Adler32.calculate(0, chunk, 0, length);
+                if (adler != data.getChecksum()) {
+                    neededChunks.add(data);
+                }
+            } finally {
+                pool.release(chunk);
             }
         }
 
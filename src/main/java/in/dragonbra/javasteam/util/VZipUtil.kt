@@ -7,12 +7,12 @@ import `in`.dragonbra.javasteam.util.stream.BinaryReader
 import `in`.dragonbra.javasteam.util.stream.BinaryWriter
 import `in`.dragonbra.javasteam.util.stream.MemoryStream
 import `in`.dragonbra.javasteam.util.stream.SeekOrigin
+import org.tukaani.xz.BasicArrayCache
 import org.tukaani.xz.LZMA2Options
 import org.tukaani.xz.LZMAInputStream
 import org.tukaani.xz.LZMAOutputStream
 import java.io.ByteArrayOutputStream
 import java.util.zip.DataFormatException
-import kotlin.math.max
 
 @Suppress("SpellCheckingInspection", "unused")
 object VZipUtil {
@@ -65,20 +65,19 @@ object VZipUtil {
                 // jump back to the beginning of the compressed data
                 ms.position = compressedBytesOffset
 
-                // If the value of dictionary size in properties is smaller than (1 << 12),
-                // the LZMA decoder must set the dictionary size variable to (1 << 12).
-                val windowBuffer = ByteArray(max(1 shl 12, dictionarySize))
+                // The LZ window is taken from a cache instead of being allocated for every chunk.
                 val bytesRead = LZMAInputStream(
                     ms,
                     sizeDecompressed.toLong(),
                     propertyBits,
                     dictionarySize,
-                    windowBuffer
+                    null,
+                    BasicArrayCache.getInstance()
                 ).use { lzmaInput ->
                     lzmaInput.readNBytesCompat(destination, 0, sizeDecompressed)
                 }
 
-                if (verifyChecksum && Utils.crc32(destination).toInt() != outputCrc) {
+                if (verifyChecksum && Utils.crc32(destination, 0, sizeDecompressed).toInt() != outputCrc) {
                     throw DataFormatException("CRC does not match decompressed data. VZip data may be corrupted.")
                 }
 
@@ -10,32 +10,66 @@ import java.util.zip.CRC32
 object VZstdUtil {
 
     private const val VZSTD_HEADER: Int = 0x615A5356
+    private const val HEADER_LENGTH = 8 // magic + crc
+    private const val FOOTER_LENGTH = 15 // crc + decompressed size + 4 unknown bytes + magic
 
     private val logger = LogManager.getLogger(VZstdUtil::class.java)
 
     @Throws(IOException::class, IllegalArgumentException::class)
     @JvmStatic
     @JvmOverloads
-    fun decompress(buffer: ByteArray, destination: ByteArray, verifyChecksum: Boolean = false): Int {
+    fun decompress(buffer: ByteArray, destination: ByteArray, verifyChecksum: Boolean = false): Int =
+        decompress(buffer, 0, buffer.size, destination, verifyChecksum)
+
+    /**
+     * Decompresses the VZstd data in [length] bytes of [buffer] starting at [offset] into [destination].
+     * The compressed frame is read in place, so [buffer] may be a larger (e.g. pooled) array.
+     *
+     * @param buffer The array holding the VZstd data.
+     * @param offset The index of the VZstd header in [buffer].
+     * @param length The length of the VZstd data, including header and footer.
+     * @param destination The buffer to receive the decompressed data.
+     * @param verifyChecksum Whether to check the CRC32 of the decompressed data.
+     * @return The number of bytes written to [destination].
+     */
+    @Throws(IOException::class, IllegalArgumentException::class)
+    @JvmStatic
+    @JvmOverloads
+    fun decompress(
+        buffer: ByteArray,
+        offset: Int,
+        length: Int,
+        destination: ByteArray,
+        verifyChecksum: Boolean = false,
+    ): Int {
+        if (offset < 0 || length < 0 || offset > buffer.size - length) {
+            throw IndexOutOfBoundsException("offset $offset and length $length out of bounds for ${buffer.size} bytes")
+        }
+
+        if (length < HEADER_LENGTH + FOOTER_LENGTH) {
+            throw IOException("VZstd data is too short ($length bytes)")
+        }
+
         val byteBuffer = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN) // Convert the buffer.
+        val end = offset + length
 
-        val header = byteBuffer.getInt(0)
+        val header = byteBuffer.getInt(offset)
         if (header != VZSTD_HEADER) {
             throw IOException("Expecting VZstdHeader at start of stream")
         }
 
-        val crc32 = byteBuffer.getInt(4)
-        val crc32Footer = byteBuffer.getInt(buffer.size - 15)
-        val sizeDecompressed = byteBuffer.getInt(buffer.size - 11)
+        val crc32 = byteBuffer.getInt(offset + 4)
+        val crc32Footer = byteBuffer.getInt(end - 15)
+        val sizeDecompressed = byteBuffer.getInt(end - 11)
 
         if (crc32 == crc32Footer) {
             // They write CRC32 twice?
             logger.debug("CRC32 appears to be written twice in the data")
         }
 
-        if (buffer[buffer.size - 3] != 'z'.code.toByte() ||
-            buffer[buffer.size - 2] != 's'.code.toByte() ||
-            buffer[buffer.size - 1] != 'v'.code.toByte()
+        if (buffer[end - 3] != 'z'.code.toByte() ||
+            buffer[end - 2] != 's'.code.toByte() ||
+            buffer[end - 1] != 'v'.code.toByte()
         ) {
             throw IOException("Expecting VZstdFooter at end of stream")
         }
@@ -44,10 +78,15 @@ object VZstdUtil {
             throw IllegalArgumentException("The destination buffer is smaller than the decompressed data size.")
         }
 
-        val compressedData = buffer.copyOfRange(8, buffer.size - 15)
-
         try {
-            val bytesDecompressed = Zstd.decompress(destination, compressedData)
+            val bytesDecompressed = Zstd.decompressByteArray(
+                destination,
+                0,
+                destination.size,
+                buffer,
+                offset + HEADER_LENGTH,
+                length - HEADER_LENGTH - FOOTER_LENGTH
+            )
 
             if (bytesDecompressed != sizeDecompressed.toLong()) {
                 throw IOException("Failed to decompress Zstd (expected $sizeDecompressed bytes, got $bytesDecompressed).")
@@ -0,0 +1,195 @@
+package in.dragonbra.javasteam.util.crypto;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+
+/**
+ * One direction of the symmetric scheme used by {@link CryptoHelper#symmetricEncryptWithIV(byte[], byte[], byte[])}
+ * and {@link CryptoHelper#symmetricDecrypt(byte[], byte[])}: an AES/ECB encrypted IV followed by the AES/CBC/PKCS7
+ * ciphertext. The ciphers are looked up and keyed once for the lifetime of the session key instead of on every
+ * message. Instances are not thread safe.
+ */
+public final class SessionCipher {
+
+    public static final int IV_LENGTH = 16;
+
+    private final int mode;
+
+    private final SecretKeySpec key;
+
+    private final Cipher ivCipher;
+
+    private final Cipher cbcCipher;
+
+    private final byte[] iv = new byte[IV_LENGTH];
+
+    private SessionCipher(int mode, byte[] key) throws CryptoException {
+        if (key == null) {
+            throw new IllegalArgumentException("key is null");
+        }
+
+        this.mode = mode;
+        this.key = new SecretKeySpec(key, "AES");
+
+        try {
+            ivCipher = Cipher.getInstance("AES/ECB/NoPadding", CryptoHelper.SEC_PROV);
+            ivCipher.init(mode, this.key);
+
+            cbcCipher = Cipher.getInstance("AES/CBC/PKCS7Padding", CryptoHelper.SEC_PROV);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | NoSuchProviderException | InvalidKeyException e) {
+            throw new CryptoException("failed to create session cipher", e);
+        }
+    }
+
+    /**
+     * Creates a cipher that encrypts messages with the key.
+     *
+     * @param key encryption key
+     * @return the cipher
+     * @throws CryptoException if the cipher can't be created
+     */
+    public static SessionCipher forEncryption(byte[] key) throws CryptoException {
+        return new SessionCipher(Cipher.ENCRYPT_MODE, key);
+    }
+
+    /**
+     * Creates a cipher that decrypts messages with the key.
+     *
+     * @param key encryption key
+     * @return the cipher
+     * @throws CryptoException if the cipher can't be created
+     */
+    public static SessionCipher forDecryption(byte[] key) throws CryptoException {
+        return new SessionCipher(Cipher.DECRYPT_MODE, key);
+    }
+
+    /**
+     * @param inputLength the length of the plaintext
+     * @return the length of the encrypted message, including the IV
+     */
+    public static int getEncryptedLength(int inputLength) {
+        return IV_LENGTH + (inputLength / IV_LENGTH + 1) * IV_LENGTH;
+    }
+
+    /**
+     * Encrypts the input with the IV into a new array.
+     *
+     * @param input array to encrypt
+     * @param iv    the plaintext IV
+     * @return encrypted message
+     * @throws CryptoException exception while encrypting
+     */
+    public byte[] encrypt(byte[] input, byte[] iv) throws CryptoException {
+        byte[] output = new byte[getEncryptedLength(input.length)];
+        encrypt(ByteBuffer.wrap(input), iv, ByteBuffer.wrap(output));
+        return output;
+    }
+
+    /**
+     * Encrypts the remaining bytes of the input with the IV into the output buffer.
+     *
+     * @param input  buffer to encrypt, consumed
+     * @param iv     the plaintext IV
+     * @param output buffer that receives the encrypted message, at least {@link #getEncryptedLength(int)} long
+     * @return the number of bytes written
+     * @throws CryptoException exception while encrypting
+     */
+    public int encrypt(ByteBuffer input, byte[] iv, ByteBuffer output) throws CryptoException {
+        checkMode(Cipher.ENCRYPT_MODE);
+
+        if (iv == null || iv.length != IV_LENGTH) {
+            throw new IllegalArgumentException("iv must be " + IV_LENGTH + " bytes");
+        }
+
+        try {
+            int written = ivCipher.doFinal(ByteBuffer.wrap(iv), output);
+
+            cbcCipher.init(mode, key, new IvParameterSpec(iv));
+            written += cbcCipher.doFinal(input, output);
+
+            return written;
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                 BadPaddingException | ShortBufferException e) {
+            throw new CryptoException("failed to symmetric encrypt", e);
+        }
+    }
+
+    /**
+     * Decrypts the message into a new array.
+     *
+     * @param input array to decrypt
+     * @return decrypted message
+     * @throws CryptoException exception while decrypting
+     */
+    public byte[] decrypt(byte[] input) throws CryptoException {
+        checkMode(Cipher.DECRYPT_MODE);
+
+        if (input.length < IV_LENGTH) {
+            throw new CryptoException("failed to symmetric decrypt: message is shorter than the IV");
+        }
+
+        try {
+            ivCipher.doFinal(input, 0, IV_LENGTH, iv, 0);
+
+            cbcCipher.init(mode, key, new IvParameterSpec(iv));
+            return cbcCipher.doFinal(input, IV_LENGTH, input.length - IV_LENGTH);
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                 BadPaddingException | ShortBufferException e) {
+            throw new CryptoException("failed to symmetric decrypt", e);
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of the input into the output buffer.
+     *
+     * @param input  buffer to decrypt, consumed
+     * @param output buffer that receives the plaintext, at least as long as the ciphertext
+     * @return the number of bytes written
+     * @throws CryptoException exception while decrypting
+     */
+    public int decrypt(ByteBuffer input, ByteBuffer output) throws CryptoException {
+        checkMode(Cipher.DECRYPT_MODE);
+
+        if (input.remaining() < IV_LENGTH) {
+            throw new CryptoException("failed to symmetric decrypt: message is shorter than the IV");
+        }
+
+        try {
+            int limit = input.limit();
+            input.limit(input.position() + IV_LENGTH);
+            ivCipher.doFinal(input, ByteBuffer.wrap(iv));
+            input.limit(limit);
+
+            cbcCipher.init(mode, key, new IvParameterSpec(iv));
+            return cbcCipher.doFinal(input, output);
+        } catch (InvalidKeyException | InvalidAlgorithmParameterException | IllegalBlockSizeException |
+                 BadPaddingException | ShortBufferException e) {
+            throw new CryptoException("failed to symmetric decrypt", e);
+        }
+    }
+
+    /**
+     * Gets the IV of the last decrypted message. The array is reused by the next call to decrypt.
+     *
+     * @return the plaintext IV
+     */
+    public byte[] getLastIV() {
+        return iv;
+    }
+
+    private void checkMode(int expected) {
+        if (mode != expected) {
+            throw new IllegalStateException(mode == Cipher.ENCRYPT_MODE ? "cipher is for encryption" : "cipher is for decryption");
+        }
+    }
+}
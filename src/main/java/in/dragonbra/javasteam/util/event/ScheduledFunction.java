@@ -1,55 +1,143 @@
 package in.dragonbra.javasteam.util.event;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import in.dragonbra.javasteam.util.log.LogManager;
+import in.dragonbra.javasteam.util.log.Logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Runs a function periodically. All instances share one small scheduler by default, so the number of timer threads
+ * doesn't grow with the number of clients. Starting, stopping and changing the delay only add or cancel a task
+ * on the scheduler.
+ *
  * @author lngtr
  * @since 2018-02-20
  */
 public class ScheduledFunction {
 
+    private static final Logger logger = LogManager.getLogger(ScheduledFunction.class);
+
     private long delay;
 
     private final Runnable func;
 
-    private Timer timer;
+    private final ScheduledExecutorService scheduler;
 
-    private boolean bStarted = false;
+    private ScheduledFuture<?> future;
 
     public ScheduledFunction(Runnable func, long delay) {
+        this(func, delay, getSharedScheduler());
+    }
+
+    /**
+     * @param func      the function to run
+     * @param delay     the period in milliseconds
+     * @param scheduler the scheduler that runs the function, its threads should not block for long
+     */
+    public ScheduledFunction(Runnable func, long delay, ScheduledExecutorService scheduler) {
+        if (scheduler == null) {
+            throw new IllegalArgumentException("scheduler is null");
+        }
+
         this.delay = delay;
         this.func = func;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Gets the process-wide scheduler used by functions that don't specify one. Its threads are daemon threads.
+     *
+     * @return the shared scheduler
+     */
+    public static ScheduledExecutorService getSharedScheduler() {
+        return SharedScheduler.INSTANCE;
     }
 
-    public void start() {
-        if (!bStarted) {
-            timer = new Timer();
-            timer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    if (func != null) {
-                        func.run();
-                    }
-                }
-            }, 0, delay);
-            bStarted = true;
+    /**
+     * Runs the function right away and then every delay milliseconds, unless it is already started.
+     */
+    public synchronized void start() {
+        if (future == null) {
+            future = schedule(0L);
         }
     }
 
-    public void stop() {
-        if (bStarted) {
-            timer.cancel();
-            timer = null;
-            bStarted = false;
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
         }
     }
 
-    public long getDelay() {
+    public synchronized boolean isStarted() {
+        return future != null;
+    }
+
+    public synchronized long getDelay() {
         return delay;
     }
 
-    public void setDelay(long delay) {
+    /**
+     * Sets the period. A started function is rescheduled to run next after the new delay.
+     *
+     * @param delay the period in milliseconds
+     */
+    public synchronized void setDelay(long delay) {
+        if (this.delay == delay) {
+            return;
+        }
+
         this.delay = delay;
+
+        if (future != null) {
+            future.cancel(false);
+            future = schedule(delay);
+        }
+    }
+
+    private ScheduledFuture<?> schedule(long initialDelay) {
+        return scheduler.scheduleAtFixedRate(this::run, initialDelay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        if (func == null) {
+            return;
+        }
+
+        try {
+            func.run();
+        } catch (Exception e) {
+            // an exception would silently cancel the periodic task
+            logger.error("scheduled function failed", e);
+        }
+    }
+
+    private static final class SharedScheduler {
+        private static final int THREADS = 2;
+
+        private static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            var executor = new ScheduledThreadPoolExecutor(THREADS, new SchedulerThreadFactory());
+            // heartbeats and job timeouts are stopped and restarted a lot, don't keep cancelled tasks queued
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    private static class SchedulerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ScheduledFunction " + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
@@ -15,6 +15,13 @@ public class Logger {
         this.clazz = clazz;
     }
 
+    /**
+     * @return whether any log listener is registered. Use it to skip building messages on hot paths.
+     */
+    public boolean isEnabled() {
+        return !LogManager.LOG_LISTENERS.isEmpty();
+    }
+
     public void debug(Throwable throwable) {
         debug(null, throwable);
     }
@@ -0,0 +1,100 @@
+package in.dragonbra.javasteam.base;
+
+import com.google.protobuf.AbstractMessage;
+import in.dragonbra.javasteam.enums.EMsg;
+import in.dragonbra.javasteam.protobufs.steamclient.SteammessagesClientserverLogin.CMsgClientLoggedOff;
+import in.dragonbra.javasteam.steam.CMClient;
+import in.dragonbra.javasteam.types.JobID;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ClientMsgProtobufTest {
+
+    private static byte[] createLoggedOff() {
+        var msg = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, EMsg.ClientLoggedOff);
+        msg.setSourceJobID(new JobID(1234L));
+        msg.setTargetJobID(new JobID(5678L));
+        msg.getBody().setEresult(5);
+        return msg.serialize();
+    }
+
+    @Test
+    public void packetDecodesHeaderOnce() {
+        var packetMsg = CMClient.getPacketMsg(createLoggedOff());
+
+        var packetProto = assertInstanceOf(PacketClientMsgProtobuf.class, packetMsg);
+        assertEquals(EMsg.ClientLoggedOff, packetProto.getMsgType());
+        assertEquals(1234L, packetProto.getSourceJobID());
+        assertEquals(5678L, packetProto.getTargetJobID());
+
+        var msg = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, packetMsg);
+
+        assertEquals(5, msg.getBody().getEresult());
+        assertEquals(1234L, msg.getSourceJobID().getValue());
+    }
+
+    @Test
+    public void messagesFromOnePacketGetIndependentHeaders() {
+        var packetMsg = (PacketClientMsgProtobuf) CMClient.getPacketMsg(createLoggedOff());
+
+        var first = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, packetMsg);
+        var second = new AClientMsgProtobuf(packetMsg);
+
+        assertNotSame(packetMsg.getHeader(), first.getHeader());
+        assertNotSame(first.getHeader().getProto(), second.getHeader().getProto());
+
+        first.setTargetJobID(new JobID(1L));
+        first.getProtoHeader().setJobName("changed");
+
+        assertEquals(5678L, packetMsg.getTargetJobID());
+        assertEquals(5678L, second.getTargetJobID().getValue());
+        assertEquals("", second.getProtoHeader().getJobName());
+        assertEquals(EMsg.ClientLoggedOff, second.getMsgType());
+        assertEquals(1234L, second.getSourceJobID().getValue());
+    }
+
+    @Test
+    public void bodyIsViewOfPacketData() {
+        byte[] data = createLoggedOff();
+        var packetMsg = (PacketClientMsgProtobuf) CMClient.getPacketMsg(data);
+
+        byte[] expected = CMsgClientLoggedOff.newBuilder().setEresult(5).build().toByteArray();
+
+        assertEquals(data.length - expected.length, packetMsg.getBodyOffset());
+        assertArrayEquals(expected, packetMsg.getBody().toByteArray());
+    }
+
+    @Test
+    public void deserializeParsesRawData() {
+        var msg = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, EMsg.ClientLoggedOff);
+        msg.deserialize(createLoggedOff());
+
+        assertEquals(EMsg.ClientLoggedOff, msg.getMsgType());
+        assertEquals(5678L, msg.getTargetJobID().getValue());
+        assertEquals(5, msg.getBody().getEresult());
+    }
+
+    @Test
+    public void newMessagesGetIndependentBodies() {
+        var first = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, EMsg.ClientLoggedOff);
+        var second = new ClientMsgProtobuf<CMsgClientLoggedOff.Builder>(CMsgClientLoggedOff.class, EMsg.ClientLoggedOff);
+
+        first.getBody().setEresult(5);
+
+        assertNotSame(first.getBody(), second.getBody());
+        assertFalse(second.getBody().hasEresult());
+        assertSame(CMsgClientLoggedOff.getDefaultInstance(), MessageBuilders.getDefaultInstance(CMsgClientLoggedOff.class));
+    }
+
+    @Test
+    public void nonProtobufClassIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MessageBuilders.newBuilder(AbstractMessage.class));
+    }
+}
@@ -0,0 +1,97 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import in.dragonbra.javasteam.TestBase;
+import in.dragonbra.javasteam.util.Passable;
+import in.dragonbra.javasteam.util.crypto.CryptoException;
+import in.dragonbra.javasteam.util.crypto.CryptoHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class NetFilterEncryptionTest extends TestBase {
+
+    private static final byte[] KEY = CryptoHelper.generateRandomBlock(32);
+
+    @Test
+    public void hmacFilterDecryptsServerPacket() {
+        // response to logon request with 'testuser' and 'testpassword'
+
+        byte[] data = new byte[]{
+                (byte) 0x65, (byte) 0x32, (byte) 0x7D, (byte) 0x36, (byte) 0x68, (byte) 0xA1, (byte) 0x3C, (byte) 0xF6,
+                (byte) 0x69, (byte) 0xD5, (byte) 0x0, (byte) 0xC2, (byte) 0xA1, (byte) 0x36, (byte) 0xA6, (byte) 0xBE,
+                (byte) 0x4C, (byte) 0x5D, (byte) 0x53, (byte) 0x89, (byte) 0x8C, (byte) 0xCF, (byte) 0xB4, (byte) 0xCF,
+                (byte) 0x4C, (byte) 0xAD, (byte) 0x52, (byte) 0xA8, (byte) 0x50, (byte) 0x8F, (byte) 0x20, (byte) 0x9E,
+                (byte) 0x77, (byte) 0x4F, (byte) 0x3F, (byte) 0xDF, (byte) 0x40, (byte) 0x43, (byte) 0xEC, (byte) 0x58,
+                (byte) 0x59, (byte) 0x59, (byte) 0x67, (byte) 0xE6, (byte) 0x97, (byte) 0x7D, (byte) 0xC9, (byte) 0xFE,
+                (byte) 0xA3, (byte) 0x35, (byte) 0x4A, (byte) 0x5F, (byte) 0x4E, (byte) 0xCC, (byte) 0xC5, (byte) 0x68,
+                (byte) 0x93, (byte) 0x64, (byte) 0x41, (byte) 0xFE, (byte) 0x1F, (byte) 0x55, (byte) 0xBC, (byte) 0xE3,
+                (byte) 0x6A, (byte) 0x69, (byte) 0x98, (byte) 0x65, (byte) 0x53, (byte) 0x9D, (byte) 0x41, (byte) 0xD8,
+                (byte) 0xD0, (byte) 0xE2, (byte) 0x80, (byte) 0x43, (byte) 0x76, (byte) 0xE2, (byte) 0x46, (byte) 0x35
+        };
+
+        byte[] key = new byte[]{
+                (byte) 0x4C, (byte) 0x4C, (byte) 0xDF, (byte) 0xB2, (byte) 0xC0, (byte) 0x4C, (byte) 0x3, (byte) 0xA,
+                (byte) 0xE9, (byte) 0x48, (byte) 0xB6, (byte) 0x5F, (byte) 0x20, (byte) 0x9F, (byte) 0x82, (byte) 0xEE,
+                (byte) 0xFE, (byte) 0x45, (byte) 0x5D, (byte) 0xF9, (byte) 0xB9, (byte) 0x29, (byte) 0x30, (byte) 0xE4,
+                (byte) 0xF, (byte) 0x5A, (byte) 0x1E, (byte) 0x13, (byte) 0x2E, (byte) 0xAF, (byte) 0x69, (byte) 0x78
+        };
+
+        byte[] expected = new byte[]{
+                (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x80, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                (byte) 0x12, (byte) 0xaf, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x00, (byte) 0x2b, (byte) 0x00,
+                (byte) 0x00, (byte) 0x00, (byte) 0xef, (byte) 0x02, (byte) 0x00, (byte) 0x80, (byte) 0x0f, (byte) 0x00,
+                (byte) 0x00, (byte) 0x00, (byte) 0x09, (byte) 0x69, (byte) 0x83, (byte) 0xbc, (byte) 0x01, (byte) 0x01,
+                (byte) 0x00, (byte) 0x10, (byte) 0x01, (byte) 0x10, (byte) 0xfe, (byte) 0xc3, (byte) 0xc5, (byte) 0xe7,
+                (byte) 0x02, (byte) 0x08, (byte) 0x05, (byte) 0x50, (byte) 0x05, (byte) 0xa1, (byte) 0x01, (byte) 0x69,
+                (byte) 0x83, (byte) 0xbc, (byte) 0x01, (byte) 0x01, (byte) 0x00, (byte) 0x10, (byte) 0x01, (byte) 0xc0,
+                (byte) 0x01, (byte) 0x00, (byte) 0xc8, (byte) 0x01, (byte) 0x00
+        };
+
+        var filter = new NetFilterEncryptionWithHMAC(key);
+
+        Assertions.assertArrayEquals(expected, filter.processIncoming(data));
+        // the ciphers are reused, a second packet decrypts the same way
+        Assertions.assertArrayEquals(expected, filter.processIncoming(data));
+    }
+
+    @Test
+    public void hmacFilterRoundTrip() throws CryptoException {
+        var filter = new NetFilterEncryptionWithHMAC(KEY);
+        byte[] hmacSecret = new byte[16];
+        System.arraycopy(KEY, 0, hmacSecret, 0, hmacSecret.length);
+
+        for (int length : new int[]{0, 1, 15, 16, 17, 1000}) {
+            byte[] data = CryptoHelper.generateRandomBlock(length);
+
+            byte[] encrypted = filter.processOutgoing(data);
+
+            Assertions.assertArrayEquals(data, filter.processIncoming(encrypted));
+            Assertions.assertArrayEquals(data, CryptoHelper.symmetricDecryptHMACIV(encrypted, KEY, hmacSecret));
+        }
+    }
+
+    @Test
+    public void hmacFilterRejectsTamperedPacket() {
+        var filter = new NetFilterEncryptionWithHMAC(KEY);
+        byte[] encrypted = filter.processOutgoing(new byte[]{1, 2, 3, 4});
+
+        encrypted[encrypted.length - 1] ^= 1;
+
+        Assertions.assertThrows(IllegalStateException.class, () -> filter.processIncoming(encrypted));
+    }
+
+    @Test
+    public void filterRoundTrip() throws CryptoException {
+        var filter = new NetFilterEncryption(KEY);
+
+        for (int length : new int[]{0, 1, 15, 16, 17, 1000}) {
+            byte[] data = CryptoHelper.generateRandomBlock(length);
+
+            byte[] encrypted = filter.processOutgoing(data);
+
+            Assertions.assertArrayEquals(data, filter.processIncoming(encrypted));
+            var iv = new Passable<byte[]>();
+            Assertions.assertArrayEquals(data, CryptoHelper.symmetricDecrypt(encrypted, KEY, iv));
+            Assertions.assertArrayEquals(encrypted, CryptoHelper.symmetricEncryptWithIV(data, KEY, iv.getValue()));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class NioTcpConnectionTest {
+
+    private static final int MAGIC = 0x31305456;
+
+    private TcpEventLoopGroup group;
+
+    private ServerSocket server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        group = new TcpEventLoopGroup(1);
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+        group.close();
+    }
+
+    @Test
+    public void receivesFramesSplitAcrossWrites() throws Exception {
+        var connection = new NioTcpConnection(group);
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        connection.getNetMsgReceived().addEventHandler((sender, e) -> received.add(e.getData()));
+
+        connection.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+
+        try (Socket peer = server.accept()) {
+            byte[] first = frame(new byte[]{1, 2, 3});
+            byte[] second = frame(new byte[]{4, 5});
+
+            OutputStream out = peer.getOutputStream();
+            out.write(first, 0, 5);
+            out.flush();
+            Thread.sleep(50);
+            out.write(first, 5, first.length - 5);
+            out.write(second);
+            out.flush();
+
+            Assertions.assertArrayEquals(new byte[]{1, 2, 3}, received.poll(5, TimeUnit.SECONDS));
+            Assertions.assertArrayEquals(new byte[]{4, 5}, received.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void sendsFramedData() throws Exception {
+        var connection = new NioTcpConnection(group);
+        connection.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+
+        try (Socket peer = server.accept()) {
+            connection.send(new byte[]{9, 8, 7});
+
+            var in = new DataInputStream(peer.getInputStream());
+            byte[] header = new byte[8];
+            in.readFully(header);
+
+            var buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+            Assertions.assertEquals(3, buffer.getInt());
+            Assertions.assertEquals(MAGIC, buffer.getInt());
+
+            byte[] payload = new byte[3];
+            in.readFully(payload);
+            Assertions.assertArrayEquals(new byte[]{9, 8, 7}, payload);
+        }
+    }
+
+    @Test
+    public void disconnectNotifiesOnce() throws Exception {
+        var connection = new NioTcpConnection(group);
+        var disconnected = new CountDownLatch(1);
+        var userInitiated = new boolean[1];
+        connection.getDisconnected().addEventHandler((sender, e) -> {
+            userInitiated[0] = e.isUserInitiated();
+            disconnected.countDown();
+        });
+
+        connection.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+
+        try (Socket ignored = server.accept()) {
+            connection.disconnect(true);
+
+            Assertions.assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(userInitiated[0]);
+            Assertions.assertEquals(0, group.getConnectionCount());
+        }
+    }
+
+    @Test
+    public void oversizedFrameOnlyDisconnectsItsConnection() throws Exception {
+        var hostile = new NioTcpConnection(group);
+        var disconnected = new CountDownLatch(1);
+        hostile.getDisconnected().addEventHandler((sender, e) -> disconnected.countDown());
+
+        hostile.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+
+        try (Socket peer = server.accept()) {
+            var header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(Integer.MAX_VALUE);
+            header.putInt(MAGIC);
+            peer.getOutputStream().write(header.array());
+            peer.getOutputStream().flush();
+
+            Assertions.assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+        }
+
+        // the event loop shared with the dropped connection still serves the others
+        var connection = new NioTcpConnection(group);
+        BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        connection.getNetMsgReceived().addEventHandler((sender, e) -> received.add(e.getData()));
+
+        connection.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+
+        try (Socket peer = server.accept()) {
+            peer.getOutputStream().write(frame(new byte[]{1, 2}));
+            peer.getOutputStream().flush();
+
+            Assertions.assertArrayEquals(new byte[]{1, 2}, received.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static byte[] frame(byte[] data) {
+        var buffer = ByteBuffer.allocate(8 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(data.length);
+        buffer.putInt(MAGIC);
+        buffer.put(data);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,71 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class TcpOutboundQueueTest {
+
+    @Test
+    public void onlyFirstOfferSchedulesWriter() {
+        var queue = new TcpOutboundQueue();
+
+        Assertions.assertTrue(queue.offer(new byte[]{1}));
+        Assertions.assertFalse(queue.offer(new byte[]{2}));
+
+        queue.beginDrain();
+        Assertions.assertTrue(queue.offer(new byte[]{3}));
+    }
+
+    @Test
+    public void drainWritesFramesInOrder() throws IOException {
+        var queue = new TcpOutboundQueue();
+        queue.offer(new byte[]{1, 2, 3});
+        queue.offer(new byte[]{4});
+
+        var out = new CountingOutputStream();
+        queue.drainTo(out);
+
+        Assertions.assertTrue(queue.isEmpty());
+        Assertions.assertEquals(1, out.writes);
+
+        var buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        Assertions.assertEquals(20, buffer.remaining());
+
+        Assertions.assertEquals(3, buffer.getInt());
+        Assertions.assertEquals(TcpOutboundQueue.MAGIC, buffer.getInt());
+        Assertions.assertEquals(1, buffer.get());
+        Assertions.assertEquals(2, buffer.get());
+        Assertions.assertEquals(3, buffer.get());
+
+        Assertions.assertEquals(1, buffer.getInt());
+        Assertions.assertEquals(TcpOutboundQueue.MAGIC, buffer.getInt());
+        Assertions.assertEquals(4, buffer.get());
+    }
+
+    @Test
+    public void clearDropsPendingFrames() throws IOException {
+        var queue = new TcpOutboundQueue();
+        queue.offer(new byte[]{1, 2, 3});
+        queue.clear();
+
+        var out = new CountingOutputStream();
+        queue.drainTo(out);
+
+        Assertions.assertEquals(0, out.size());
+    }
+
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+        int writes;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes++;
+            super.write(b, off, len);
+        }
+    }
+}
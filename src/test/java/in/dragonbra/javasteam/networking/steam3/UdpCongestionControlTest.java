@@ -0,0 +1,107 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UdpCongestionControlTest {
+
+    @Test
+    public void startsWithSteamWindowAndTimeout() {
+        var congestion = new UdpCongestionControl();
+
+        Assertions.assertEquals(UdpCongestionControl.INITIAL_WINDOW, congestion.getWindow());
+        Assertions.assertEquals(UdpCongestionControl.INITIAL_RTO, congestion.getRto());
+        Assertions.assertEquals(-1L, congestion.getStats().getSmoothedRtt());
+    }
+
+    @Test
+    public void rtoFollowsRoundTripSamples() {
+        var congestion = new UdpCongestionControl();
+
+        congestion.onRttSample(100);
+        // srtt = 100, rttvar = 50
+        Assertions.assertEquals(300, congestion.getRto());
+
+        congestion.onRttSample(200);
+        // rttvar = 0.75 * 50 + 0.25 * 100 = 62.5, srtt = 0.875 * 100 + 0.125 * 200 = 112.5
+        Assertions.assertEquals(363, congestion.getRto());
+        Assertions.assertEquals(113, congestion.getStats().getSmoothedRtt());
+
+        congestion.onRttSample(0);
+        Assertions.assertTrue(congestion.getRto() >= UdpCongestionControl.MIN_RTO);
+    }
+
+    @Test
+    public void slowStartThenLinearGrowth() {
+        var congestion = new UdpCongestionControl();
+
+        congestion.onAck(3, 3);
+        Assertions.assertEquals(6, congestion.getWindow());
+
+        congestion.onTimeout();
+        Assertions.assertEquals(UdpCongestionControl.INITIAL_WINDOW, congestion.getWindow());
+        Assertions.assertEquals(3, congestion.getStats().getSlowStartThreshold());
+
+        congestion.onAck(3, 6);
+        // past the threshold the window grows by about one packet per window of acks
+        Assertions.assertEquals(4, congestion.getWindow());
+    }
+
+    @Test
+    public void windowIsCapped() {
+        var congestion = new UdpCongestionControl();
+
+        for (int i = 0; i < 100; i++) {
+            congestion.onAck(10, i * 10);
+        }
+
+        Assertions.assertEquals(UdpCongestionControl.MAX_WINDOW, congestion.getWindow());
+    }
+
+    @Test
+    public void duplicateAcksTriggerSingleFastRetransmit() {
+        var congestion = new UdpCongestionControl();
+        congestion.onAck(5, 5);
+        Assertions.assertEquals(8, congestion.getWindow());
+
+        Assertions.assertFalse(congestion.onDuplicateAck(13));
+        Assertions.assertFalse(congestion.onDuplicateAck(13));
+        Assertions.assertTrue(congestion.onDuplicateAck(13));
+        Assertions.assertEquals(4, congestion.getWindow());
+
+        // further duplicates during recovery don't retransmit again
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertFalse(congestion.onDuplicateAck(13));
+        }
+
+        congestion.onAck(8, 13);
+        Assertions.assertEquals(4, congestion.getWindow());
+        Assertions.assertEquals(1, congestion.getStats().getFastRetransmits());
+    }
+
+    @Test
+    public void timeoutBacksOff() {
+        var congestion = new UdpCongestionControl();
+        congestion.onRttSample(100);
+
+        congestion.onTimeout();
+        Assertions.assertEquals(600, congestion.getRto());
+
+        for (int i = 0; i < 10; i++) {
+            congestion.onTimeout();
+        }
+        Assertions.assertEquals(UdpCongestionControl.MAX_RTO, congestion.getRto());
+        Assertions.assertEquals(11, congestion.getStats().getTimeouts());
+    }
+
+    @Test
+    public void countsRetransmissions() {
+        var congestion = new UdpCongestionControl();
+        congestion.onPacketSent(false);
+        congestion.onPacketSent(true);
+
+        var stats = congestion.getStats();
+        Assertions.assertEquals(2, stats.getPacketsSent());
+        Assertions.assertEquals(1, stats.getPacketsRetransmitted());
+    }
+}
@@ -0,0 +1,75 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UdpPacketRingTest {
+
+    @Test
+    public void claimReusesSlotStorage() {
+        var ring = new UdpPacketRing(4);
+
+        byte[] first = ring.claim(1);
+        ring.setLength(1, 10);
+        ring.remove(1);
+
+        Assertions.assertFalse(ring.contains(1));
+        Assertions.assertSame(first, ring.claim(5));
+        Assertions.assertTrue(ring.contains(5));
+        Assertions.assertFalse(ring.contains(1));
+    }
+
+    @Test
+    public void removeIgnoresStaleSequence() {
+        var ring = new UdpPacketRing(4);
+
+        ring.claim(6);
+        ring.remove(2);
+
+        Assertions.assertTrue(ring.contains(6));
+    }
+
+    @Test
+    public void growKeepsPackets() {
+        var ring = new UdpPacketRing(2);
+
+        for (int seq = 3; seq <= 4; seq++) {
+            byte[] packet = ring.claim(seq);
+            packet[0] = (byte) seq;
+            ring.setLength(seq, seq);
+        }
+
+        ring.grow();
+
+        Assertions.assertEquals(4, ring.capacity());
+        for (int seq = 3; seq <= 4; seq++) {
+            Assertions.assertTrue(ring.contains(seq));
+            Assertions.assertEquals(seq, ring.get(seq)[0]);
+            Assertions.assertEquals(seq, ring.length(seq));
+        }
+
+        ring.claim(5);
+        ring.claim(6);
+        Assertions.assertTrue(ring.contains(3));
+        Assertions.assertTrue(ring.contains(6));
+    }
+
+    @Test
+    public void tracksTransmissions() {
+        var ring = new UdpPacketRing(4);
+
+        ring.claim(1);
+        Assertions.assertEquals(1, ring.markSent(1, 100L));
+        Assertions.assertEquals(2, ring.markSent(1, 250L));
+        Assertions.assertEquals(250L, ring.sentTime(1));
+
+        ring.remove(1);
+        ring.claim(5);
+        Assertions.assertEquals(0, ring.transmissions(5));
+    }
+
+    @Test
+    public void rejectsCapacityThatIsNotPowerOfTwo() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UdpPacketRing(3));
+    }
+}
@@ -0,0 +1,94 @@
+package in.dragonbra.javasteam.networking.steam3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends to a server that never answers the handshake, so nothing leaves the outbound queue.
+ */
+public class WebSocketConnectionTest {
+
+    private ServerSocket server;
+
+    private WebSocketClientEngine engine;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    @Test
+    public void sendWaitsForRoomBeforeDroppingWhenNotDisconnecting() throws Exception {
+        engine = new WebSocketClientEngine(0L, 2, 100L, false);
+        var connection = new WebSocketConnection(engine);
+        var disconnected = new CountDownLatch(1);
+        connection.getDisconnected().addEventHandler((sender, e) -> disconnected.countDown());
+
+        connect(connection);
+
+        connection.send(new byte[]{1});
+        connection.send(new byte[]{2});
+
+        long start = System.nanoTime();
+        connection.send(new byte[]{3});
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assertions.assertTrue(waited >= 100, "send should wait for the writer, waited " + waited + "ms");
+        Assertions.assertFalse(disconnected.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void trySendDropsWithoutWaiting() throws Exception {
+        engine = new WebSocketClientEngine(0L, 1, 10_000L, true);
+        var connection = new WebSocketConnection(engine);
+        var disconnected = new CountDownLatch(1);
+        connection.getDisconnected().addEventHandler((sender, e) -> disconnected.countDown());
+
+        connect(connection);
+
+        Assertions.assertTrue(connection.trySend(new byte[]{1}));
+
+        long start = System.nanoTime();
+        Assertions.assertFalse(connection.trySend(new byte[]{2}));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+
+        Assertions.assertFalse(disconnected.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void stalledConnectionIsDisconnected() throws Exception {
+        engine = new WebSocketClientEngine(0L, 1, 0L, true);
+        var connection = new WebSocketConnection(engine);
+        var disconnected = new CountDownLatch(1);
+        connection.getDisconnected().addEventHandler((sender, e) -> disconnected.countDown());
+
+        connect(connection);
+
+        connection.send(new byte[]{1});
+        connection.send(new byte[]{2});
+
+        Assertions.assertTrue(disconnected.await(5, TimeUnit.SECONDS));
+    }
+
+    private void connect(WebSocketConnection connection) {
+        connection.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()));
+    }
+}
@@ -11,6 +11,7 @@ import org.apache.commons.codec.binary.Hex;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 public class DepotChunkTest extends TestBase {
 
@@ -130,4 +131,134 @@ public class DepotChunkTest extends TestBase {
 
         Assertions.assertEquals("9E72678E305540630A665B93E1463BC3983EB55A", hash);
     }
+
+    @Test
+    public void decryptsAndDecompressesDepotChunkFromLargerBuffers() throws IOException, NoSuchAlgorithmException {
+        var stream = getClass().getClassLoader()
+                .getResourceAsStream("depot/depot_3441461_chunk_9e72678e305540630a665b93e1463bc3983eb55a.bin");
+
+        var ms = new MemoryStream();
+        IOUtils.copy(stream, ms.asOutputStream());
+
+        var chunkData = ms.toByteArray();
+
+        var chunk = new ChunkData(
+                new byte[0], // id is not needed here
+                Integer.parseUnsignedInt("3753325726"),
+                0,
+                176,
+                156
+        );
+
+        // the chunk sits in the middle of a pooled-like buffer, followed by garbage
+        var offset = 7;
+        var data = new byte[offset + chunkData.length + 64];
+        Arrays.fill(data, (byte) 0x5A);
+        System.arraycopy(chunkData, 0, data, offset, chunkData.length);
+
+        var destination = new byte[256];
+        Arrays.fill(destination, (byte) 0x5A);
+
+        var writtenLength = DepotChunk.process(
+                chunk,
+                data,
+                offset,
+                chunkData.length,
+                destination,
+                new byte[]{
+                        (byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04, (byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08,
+                        (byte) 0x09, (byte) 0x0A, (byte) 0x0B, (byte) 0x0C, (byte) 0x0D, (byte) 0x0E, (byte) 0x0F, (byte) 0x10,
+                        (byte) 0x11, (byte) 0x12, (byte) 0x13, (byte) 0x14, (byte) 0x15, (byte) 0x16, (byte) 0x17, (byte) 0x18,
+                        (byte) 0x19, (byte) 0x1A, (byte) 0x1B, (byte) 0x1C, (byte) 0x1D, (byte) 0x1E, (byte) 0x1F, (byte) 0x20
+                }
+        );
+
+        Assertions.assertEquals(chunk.getUncompressedLength(), writtenLength);
+
+        var sha1 = MessageDigest.getInstance("SHA-1");
+        sha1.update(destination, 0, writtenLength);
+        var hash = Hex.encodeHexString(sha1.digest(), false);
+
+        Assertions.assertEquals("9E72678E305540630A665B93E1463BC3983EB55A", hash);
+    }
+
+    @Test
+    public void decryptsAndDecompressesDepotChunkInPlace() throws IOException, NoSuchAlgorithmException {
+        var stream = getClass().getClassLoader()
+                .getResourceAsStream("depot/depot_440_chunk_bac8e2657470b2eb70d6ddcd6c07004be8738697.bin");
+
+        var ms = new MemoryStream();
+        IOUtils.copy(stream, ms.asOutputStream());
+
+        var chunkData = ms.toByteArray();
+
+        var chunk = new ChunkData(
+                new byte[0], // id is not needed here
+                2130218374,
+                0,
+                320,
+                544
+        );
+
+        var offset = 5;
+        var data = new byte[offset + chunkData.length + 11];
+        System.arraycopy(chunkData, 0, data, offset, chunkData.length);
+
+        var destination = new byte[chunk.getUncompressedLength()];
+        var writtenLength = DepotChunk.processInPlace(
+                chunk,
+                data,
+                offset,
+                chunkData.length,
+                destination,
+                new byte[]{
+                        (byte) 0x44, (byte) 0xCE, (byte) 0x5C, (byte) 0x52, (byte) 0x97, (byte) 0xA4, (byte) 0x15, (byte) 0xA1,
+                        (byte) 0xA6, (byte) 0xF6, (byte) 0x9C, (byte) 0x85, (byte) 0x60, (byte) 0x37, (byte) 0xA5, (byte) 0xA2,
+                        (byte) 0xFD, (byte) 0xD8, (byte) 0x2C, (byte) 0xD4, (byte) 0x74, (byte) 0xFA, (byte) 0x65, (byte) 0x9E,
+                        (byte) 0xDF, (byte) 0xB4, (byte) 0xD5, (byte) 0x9B, (byte) 0x2A, (byte) 0xBC, (byte) 0x55, (byte) 0xFC
+                }
+        );
+
+        Assertions.assertEquals(chunk.getUncompressedLength(), writtenLength);
+
+        var hash = Hex.encodeHexString(MessageDigest.getInstance("SHA-1").digest(destination), false);
+
+        Assertions.assertEquals("BAC8E2657470B2EB70D6DDCD6C07004BE8738697", hash);
+    }
+
+    @Test
+    public void switchesBetweenDepotKeys() throws IOException {
+        var first = readChunk("depot/depot_440_chunk_bac8e2657470b2eb70d6ddcd6c07004be8738697.bin");
+        var firstChunk = new ChunkData(new byte[0], 2130218374, 0, 320, 544);
+        var firstKey = new byte[]{
+                (byte) 0x44, (byte) 0xCE, (byte) 0x5C, (byte) 0x52, (byte) 0x97, (byte) 0xA4, (byte) 0x15, (byte) 0xA1,
+                (byte) 0xA6, (byte) 0xF6, (byte) 0x9C, (byte) 0x85, (byte) 0x60, (byte) 0x37, (byte) 0xA5, (byte) 0xA2,
+                (byte) 0xFD, (byte) 0xD8, (byte) 0x2C, (byte) 0xD4, (byte) 0x74, (byte) 0xFA, (byte) 0x65, (byte) 0x9E,
+                (byte) 0xDF, (byte) 0xB4, (byte) 0xD5, (byte) 0x9B, (byte) 0x2A, (byte) 0xBC, (byte) 0x55, (byte) 0xFC
+        };
+
+        var second = readChunk("depot/depot_3441461_chunk_9e72678e305540630a665b93e1463bc3983eb55a.bin");
+        var secondChunk = new ChunkData(new byte[0], Integer.parseUnsignedInt("3753325726"), 0, 176, 156);
+        var secondKey = new byte[]{
+                (byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04, (byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08,
+                (byte) 0x09, (byte) 0x0A, (byte) 0x0B, (byte) 0x0C, (byte) 0x0D, (byte) 0x0E, (byte) 0x0F, (byte) 0x10,
+                (byte) 0x11, (byte) 0x12, (byte) 0x13, (byte) 0x14, (byte) 0x15, (byte) 0x16, (byte) 0x17, (byte) 0x18,
+                (byte) 0x19, (byte) 0x1A, (byte) 0x1B, (byte) 0x1C, (byte) 0x1D, (byte) 0x1E, (byte) 0x1F, (byte) 0x20
+        };
+
+        // the pooled ciphers must be re-keyed whenever the depot changes
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(544, DepotChunk.process(firstChunk, first, new byte[544], firstKey));
+            Assertions.assertEquals(156, DepotChunk.process(secondChunk, second, new byte[156], secondKey));
+        }
+
+        Assertions.assertThrows(IOException.class, () -> DepotChunk.process(firstChunk, first, new byte[544], secondKey));
+        Assertions.assertEquals(544, DepotChunk.process(firstChunk, first, new byte[544], firstKey));
+    }
+
+    private byte[] readChunk(String name) throws IOException {
+        var ms = new MemoryStream();
+        IOUtils.copy(getClass().getClassLoader().getResourceAsStream(name), ms.asOutputStream());
+        return ms.toByteArray();
+    }
 }
@@ -0,0 +1,134 @@
+package `in`.dragonbra.javasteam.steam.contentdownloader
+
+import `in`.dragonbra.javasteam.steam.steamclient.SteamClient
+import `in`.dragonbra.javasteam.types.ChunkData
+import `in`.dragonbra.javasteam.types.ChunkID
+import `in`.dragonbra.javasteam.types.DepotManifest
+import `in`.dragonbra.javasteam.types.FileData
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.runBlocking
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Two files of a depot sharing a chunk, which is only queued for download once whether the second file is planned
+ * before or after the chunk is written to the first one.
+ */
+class SharedChunksTest {
+
+    @TempDir
+    lateinit var installDir: File
+
+    private val sharedChunk = chunk(1, offset = 0)
+
+    private val first = FileData(fileName = "first", chunks = mutableListOf(sharedChunk), totalSize = 4)
+
+    private val second = FileData(
+        fileName = "second",
+        chunks = mutableListOf(chunk(2, offset = 0), chunk(1, offset = 4)),
+        totalSize = 8
+    )
+
+    private val downloader = ContentDownloader(SteamClient())
+
+    private val manifest = DepotManifest().apply { files = arrayListOf(first, second) }
+
+    private val sharedChunks = ConcurrentHashMap<ChunkID, SharedChunk>()
+
+    private val queue = Channel<Triple<FileStreamData, FileData, ChunkData>>(Channel.UNLIMITED)
+
+    private lateinit var depotFilesData: DepotFilesData
+
+    @BeforeEach
+    fun setUp() {
+        depotFilesData = DepotFilesData(
+            depotDownloadInfo = DepotDownloadInfo(1, 1, 1, "public", installDir.path, null),
+            depotCounter = DepotDownloadCounter(completeDownloadSize = 12),
+            stagingDir = File(installDir, ".staging").path,
+            manifest = manifest,
+            previousManifest = null
+        )
+    }
+
+    @Test
+    fun waitingPlaceGetsChunkWhenWritten() = runBlocking {
+        plan(first)
+        plan(second)
+
+        val queued = drainQueue()
+        Assertions.assertEquals(listOf("first" to 1, "second" to 2), queued.map { it.second.fileName to id(it.third) })
+
+        for (downloaded in queued) {
+            write(downloaded)
+        }
+
+        assertFiles()
+    }
+
+    @Test
+    fun laterPlaceCopiesWrittenChunk() = runBlocking {
+        plan(first)
+        for (downloaded in drainQueue()) {
+            write(downloaded)
+        }
+
+        plan(second)
+
+        val queued = drainQueue()
+        Assertions.assertEquals(listOf("second" to 2), queued.map { it.second.fileName to id(it.third) })
+
+        for (downloaded in queued) {
+            write(downloaded)
+        }
+
+        assertFiles()
+    }
+
+    private suspend fun plan(file: FileData) {
+        downloader.downloadDepotFile(depotFilesData, manifest.diff(null), file, queue, sharedChunks)
+    }
+
+    private suspend fun write(downloaded: Triple<FileStreamData, FileData, ChunkData>) {
+        val (fileStreamData, file, chunk) = downloaded
+        val data = content(id(chunk))
+
+        downloader.writeDepotFileChunk(
+            GlobalDownloadCounter(),
+            depotFilesData,
+            sharedChunks,
+            DownloadedChunk(fileStreamData, file, chunk, data, data.size)
+        )
+    }
+
+    private fun drainQueue(): List<Triple<FileStreamData, FileData, ChunkData>> =
+        generateSequence { queue.tryReceive().getOrNull() }.toList()
+
+    private fun assertFiles() {
+        Assertions.assertArrayEquals(content(1), File(installDir, "first").readBytes())
+        Assertions.assertArrayEquals(content(2) + content(1), File(installDir, "second").readBytes())
+
+        // only where the chunk was written is kept
+        Assertions.assertEquals(
+            SharedChunk.Source(File(installDir, "first").path, 0, 4),
+            sharedChunks[ChunkID.of(sharedChunk)]?.source
+        )
+    }
+
+    companion object {
+        private fun chunk(id: Int, offset: Long): ChunkData =
+            ChunkData(
+                chunkID = ByteArray(ChunkID.SIZE).also { it[0] = id.toByte() },
+                offset = offset,
+                compressedLength = 4,
+                uncompressedLength = 4
+            )
+
+        private fun id(chunk: ChunkData): Int = chunk.chunkID!![0].toInt()
+
+        private fun content(id: Int): ByteArray = ByteArray(4) { (id * 16 + it).toByte() }
+    }
+}
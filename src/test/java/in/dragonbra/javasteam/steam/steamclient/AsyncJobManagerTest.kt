@@ -0,0 +1,136 @@
+package `in`.dragonbra.javasteam.steam.steamclient
+
+import `in`.dragonbra.javasteam.ConnectedSteamClient
+import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
+import `in`.dragonbra.javasteam.steam.steamclient.configuration.SteamConfiguration
+import `in`.dragonbra.javasteam.types.AsyncJobSingle
+import `in`.dragonbra.javasteam.types.JobID
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Covers the deadline queue of [AsyncJobManager] by running the timeout check by hand.
+ */
+class AsyncJobManagerTest {
+
+    internal class Callback : CallbackMsg()
+
+    @Test
+    fun loweredTimeoutQueuesCloserDeadline() {
+        val client = ConnectedSteamClient.get()
+        val manager = client.jobManager
+
+        val asyncJob = AsyncJobSingle<Callback>(client, JobID(123))
+        val asyncTask = asyncJob.toFuture()
+        Assertions.assertEquals(1, manager.scheduledDeadlines)
+
+        asyncJob.timeout = 0
+        Assertions.assertEquals(2, manager.scheduledDeadlines, "A closer deadline should get its own entry")
+
+        manager.cancelTimedOutJobs()
+
+        Assertions.assertThrows(CancellationException::class.java) { asyncTask.get(TIMEOUT, TimeUnit.MILLISECONDS) }
+        Assertions.assertFalse(manager.asyncJobs.containsKey(JobID(123)))
+        // the original entry is still queued, and skipped when it comes due
+        Assertions.assertEquals(1, manager.scheduledDeadlines)
+    }
+
+    @Test
+    fun raisedTimeoutKeepsEntry() {
+        val client = ConnectedSteamClient.get()
+        val manager = client.jobManager
+
+        val asyncJob = AsyncJobSingle<Callback>(client, JobID(123))
+        asyncJob.timeout = 20000
+
+        Assertions.assertEquals(1, manager.scheduledDeadlines, "A later deadline should reuse the queued entry")
+    }
+
+    @Test
+    fun supersededEntryIsSkipped() {
+        val client = ConnectedSteamClient.get()
+        val manager = client.jobManager
+
+        val asyncJob = AsyncJobSingle<Callback>(client, JobID(123))
+        val asyncTask = asyncJob.toFuture()
+
+        asyncJob.timeout = 1
+        asyncJob.timeout = 0
+        asyncJob.timeout = 100000
+        Assertions.assertEquals(3, manager.scheduledDeadlines)
+
+        Thread.sleep(10)
+        manager.cancelTimedOutJobs()
+
+        Assertions.assertFalse(asyncTask.isDone, "The job was given more time")
+        Assertions.assertTrue(manager.asyncJobs.containsKey(JobID(123)))
+        // the due current entry was queued again for the new deadline, the superseded one was dropped
+        Assertions.assertEquals(2, manager.scheduledDeadlines)
+    }
+
+    @Test
+    fun finishedJobEntryIsSkipped() {
+        val client = ConnectedSteamClient.get()
+        val manager = client.jobManager
+
+        val finished = AsyncJobSingle<Callback>(client, JobID(123))
+        finished.timeout = 0
+
+        client.postCallback(Callback().apply { jobID = JobID(123) })
+        Assertions.assertFalse(manager.asyncJobs.containsKey(JobID(123)))
+
+        // a new job with the same id must not be timed out by the entry of the finished one
+        val restarted = AsyncJobSingle<Callback>(client, JobID(123))
+        val restartedTask = restarted.toFuture()
+
+        manager.cancelTimedOutJobs()
+
+        Assertions.assertFalse(restartedTask.isDone)
+        Assertions.assertSame(restarted, manager.asyncJobs[JobID(123)])
+    }
+
+    @Test
+    fun timedOutJobsCompleteOnClientExecutor() {
+        val executor = Executors.newSingleThreadExecutor { Thread(it, "client executor") }
+
+        try {
+            val threading = ClientThreading.fromExecutor(executor)
+            val client = SteamClient(SteamConfiguration.create { it.withThreading(threading) })
+            client.setIsConnected(true)
+
+            val asyncJob = AsyncJobSingle<Callback>(client, JobID(123))
+            val completedOn = CompletableFuture<String>()
+            asyncJob.toFuture().whenComplete { _, _ -> completedOn.complete(Thread.currentThread().name) }
+
+            asyncJob.timeout = 0
+            client.jobManager.cancelTimedOutJobs()
+
+            // not on the thread checking the timeouts, which is shared by every client
+            Assertions.assertEquals("client executor", completedOn.get(TIMEOUT, TimeUnit.MILLISECONDS))
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    fun asyncJobsIsLiveView() {
+        val client = ConnectedSteamClient.get()
+        val manager = client.jobManager
+
+        val asyncJob = AsyncJobSingle<Callback>(client, JobID(123))
+
+        Assertions.assertEquals(mapOf(JobID(123) to asyncJob), HashMap(manager.asyncJobs))
+
+        Assertions.assertFalse(manager.asyncJobs.remove(JobID(123), AsyncJobSingle<Callback>(client, JobID(456))))
+        Assertions.assertTrue(manager.asyncJobs.remove(JobID(123), asyncJob))
+        Assertions.assertEquals(setOf(JobID(456)), manager.asyncJobs.keys)
+    }
+
+    companion object {
+        private const val TIMEOUT = 5000L
+    }
+}
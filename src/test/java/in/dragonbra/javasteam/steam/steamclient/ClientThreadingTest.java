@@ -0,0 +1,134 @@
+package in.dragonbra.javasteam.steam.steamclient;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClientThreadingTest {
+
+    @Test
+    public void defaultCreatesNamedPlatformThreads() {
+        var thread = ClientThreading.DEFAULT.newThread("TcpConnection Thread", () -> {
+        });
+
+        Assertions.assertEquals("TcpConnection Thread", thread.getName());
+        Assertions.assertFalse(isVirtual(thread));
+        Assertions.assertFalse(ClientThreading.DEFAULT.isVirtual());
+    }
+
+    @Test
+    public void fromExecutorUsesPlatformThreads() {
+        var threading = ClientThreading.fromExecutor(Runnable::run);
+
+        Assertions.assertFalse(threading.isVirtual());
+        Assertions.assertFalse(isVirtual(threading.newThread("UdpConnection Thread", () -> {
+        })));
+    }
+
+    @Test
+    public void executorRunsOnConfiguredExecutor() throws InterruptedException {
+        var executed = new AtomicInteger();
+        var threading = ClientThreading.fromExecutor(task -> {
+            executed.incrementAndGet();
+            task.run();
+        });
+
+        var done = new CountDownLatch(1);
+        threading.getExecutor().execute(done::countDown);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, executed.get());
+    }
+
+    @Test
+    public void virtualThreadsMatchRuntimeSupport() {
+        if (!ClientThreading.isVirtualThreadsSupported()) {
+            Assertions.assertThrows(UnsupportedOperationException.class, ClientThreading::virtualThreads);
+            return;
+        }
+
+        var threading = ClientThreading.virtualThreads();
+        var thread = threading.newThread("TcpConnection Thread", () -> {
+        });
+
+        Assertions.assertTrue(threading.isVirtual());
+        Assertions.assertTrue(isVirtual(thread));
+        Assertions.assertEquals("TcpConnection Thread", thread.getName());
+    }
+
+    /**
+     * Starts a thread per simulated client, parked like the read loop of an idle connection, and reports the live
+     * thread count and heap used with each available strategy. The stacks of platform threads live outside the heap,
+     * the thread count is what grows with them.
+     * Tagged as a benchmark, so it only runs with {@code ./gradlew benchmark}.
+     */
+    @Tag("benchmark")
+    @Test
+    public void benchmarkIdleClients() throws InterruptedException {
+        var strategies = new ArrayList<ClientThreading>();
+        strategies.add(ClientThreading.DEFAULT);
+        if (ClientThreading.isVirtualThreadsSupported()) {
+            strategies.add(ClientThreading.virtualThreads());
+        }
+
+        for (int clients : new int[]{1_000, 10_000}) {
+            for (var threading : strategies) {
+                var threadBean = ManagementFactory.getThreadMXBean();
+                var runtime = Runtime.getRuntime();
+
+                System.gc();
+                int threadsBefore = threadBean.getThreadCount();
+                long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+                long startTime = System.nanoTime();
+
+                var started = new CountDownLatch(clients);
+                var release = new CountDownLatch(1);
+                var threads = new ArrayList<Thread>(clients);
+                for (int i = 0; i < clients; i++) {
+                    var thread = threading.newThread("Client " + i, () -> {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    });
+                    thread.start();
+                    threads.add(thread);
+                }
+
+                Assertions.assertTrue(started.await(60, TimeUnit.SECONDS), "all clients should start");
+
+                long startupTime = System.nanoTime() - startTime;
+                int liveThreads = threadBean.getThreadCount() - threadsBefore;
+                long heap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+                release.countDown();
+                for (var thread : threads) {
+                    thread.join();
+                }
+
+                System.out.printf("%d idle clients, %s:%n", clients, threading.isVirtual() ? "virtual" : "platform");
+                System.out.printf("Startup: %.2f ms%n", startupTime / 1_000_000.0);
+                System.out.printf("Platform threads: %d%n", liveThreads);
+                System.out.printf("Heap: %.2f MB%n", heap / (1024.0 * 1024.0));
+                System.out.println();
+            }
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
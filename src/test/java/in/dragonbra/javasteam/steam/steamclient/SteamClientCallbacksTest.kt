@@ -0,0 +1,154 @@
+package `in`.dragonbra.javasteam.steam.steamclient
+
+import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackManager
+import `in`.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg
+import `in`.dragonbra.javasteam.steam.steamclient.callbacks.ConnectedCallback
+import `in`.dragonbra.javasteam.steam.steamclient.callbacks.DisconnectedCallback
+import `in`.dragonbra.javasteam.steam.steamclient.configuration.SteamConfiguration
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.take
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+class SteamClientCallbacksTest {
+
+    @Test
+    fun callbacksAreSharedWithAllCollectors() = runBlocking {
+        val client = SteamClient()
+
+        val first = async(start = CoroutineStart.UNDISPATCHED) { client.callbacks.take(2).toList() }
+        val second = async(start = CoroutineStart.UNDISPATCHED) { client.callbacks.take(2).toList() }
+
+        client.postCallback(ConnectedCallback())
+        client.postCallback(DisconnectedCallback(true))
+
+        withTimeout(TIMEOUT) {
+            for (received in listOf(first.await(), second.await())) {
+                Assertions.assertInstanceOf(ConnectedCallback::class.java, received[0])
+                Assertions.assertInstanceOf(DisconnectedCallback::class.java, received[1])
+            }
+        }
+    }
+
+    @Test
+    fun callbacksOfFiltersByType() = runBlocking {
+        val client = SteamClient()
+
+        val disconnects = async(start = CoroutineStart.UNDISPATCHED) {
+            client.callbacksOf<DisconnectedCallback>().take(1).toList()
+        }
+
+        client.postCallback(ConnectedCallback())
+        client.postCallback(DisconnectedCallback(true))
+
+        withTimeout(TIMEOUT) {
+            Assertions.assertTrue(disconnects.await().single().isUserInitiated)
+        }
+    }
+
+    @Test
+    fun collectedCallbacksStayQueued() = runBlocking {
+        val client = SteamClient()
+
+        val received = async(start = CoroutineStart.UNDISPATCHED) { client.callbacks.first() }
+
+        client.postCallback(ConnectedCallback())
+        client.postCallback(DisconnectedCallback(true))
+
+        withTimeout(TIMEOUT) {
+            Assertions.assertInstanceOf(ConnectedCallback::class.java, received.await())
+        }
+
+        // the collector left after the first callback, the queue still has both
+        Assertions.assertEquals(2, client.callbackQueueDepth)
+        Assertions.assertInstanceOf(ConnectedCallback::class.java, client.getCallback())
+        Assertions.assertInstanceOf(DisconnectedCallback::class.java, client.getCallback())
+    }
+
+    @Test
+    fun callbackManagerAndCollectorsReceiveEveryCallback() = runBlocking {
+        val count = 100
+        // buffers every callback, so the collectors can't miss any however late they run
+        val client = createClient(CallbackQueueOptions(flowBufferCapacity = count))
+        val manager = CallbackManager(client)
+
+        val managed = AtomicInteger()
+        manager.subscribe(ConnectedCallback::class.java) { managed.incrementAndGet() }
+
+        val collected = async(start = CoroutineStart.UNDISPATCHED) { client.callbacks.take(count).toList() }
+        val disconnects = async(start = CoroutineStart.UNDISPATCHED) {
+            client.callbacksOf<DisconnectedCallback>().take(count / 2).toList()
+        }
+
+        val runner = thread {
+            while (managed.get() < count / 2) {
+                manager.runWaitCallbacks(100)
+            }
+        }
+
+        // posted from another thread, like the network thread, so collectors can run while it waits for them
+        val poster = thread {
+            repeat(count / 2) {
+                client.postCallback(ConnectedCallback())
+                client.postCallback(DisconnectedCallback(true))
+            }
+        }
+
+        withTimeout(TIMEOUT) {
+            Assertions.assertEquals(count, collected.await().size)
+            Assertions.assertEquals(count / 2, disconnects.await().size)
+        }
+
+        poster.join(TIMEOUT)
+        runner.join(TIMEOUT)
+        Assertions.assertEquals(count / 2, managed.get())
+    }
+
+    @Test
+    fun slowCollectorDoesNotBlockPosting() = runBlocking {
+        val client = SteamClient()
+        val resume = CompletableDeferred<Unit>()
+        val received = mutableListOf<CallbackMsg>()
+
+        val collector = launch(start = CoroutineStart.UNDISPATCHED) {
+            client.callbacks.collect {
+                received.add(it)
+                resume.await()
+            }
+        }
+
+        val count = CallbackQueueOptions.DEFAULT_FLOW_BUFFER_CAPACITY * 4
+        val poster = thread {
+            repeat(count) {
+                client.postCallback(ConnectedCallback())
+            }
+        }
+
+        poster.join(TIMEOUT)
+        Assertions.assertFalse(poster.isAlive, "posting should not wait for the collector")
+        Assertions.assertEquals(count, client.callbackQueueDepth)
+
+        resume.complete(Unit)
+        collector.cancelAndJoin()
+
+        // the collector kept the first callback and the newest buffered ones, the rest were dropped
+        Assertions.assertTrue(received.size < count)
+    }
+
+    companion object {
+        private const val TIMEOUT = 5000L
+
+        private fun createClient(options: CallbackQueueOptions): SteamClient =
+            SteamClient(SteamConfiguration.create { it.withCallbackQueueOptions(options) })
+    }
+}
@@ -1,6 +1,9 @@
 package in.dragonbra.javasteam.steam.steamclient;
 
+import in.dragonbra.javasteam.TestPackets;
 import in.dragonbra.javasteam.base.IPacketMsg;
+import in.dragonbra.javasteam.enums.EMsg;
+import in.dragonbra.javasteam.steam.CMClient;
 import in.dragonbra.javasteam.steam.handlers.ClientMsgHandler;
 import in.dragonbra.javasteam.steam.handlers.steamapps.SteamApps;
 import in.dragonbra.javasteam.steam.handlers.steamcloud.SteamCloud;
@@ -16,11 +19,18 @@ import in.dragonbra.javasteam.steam.handlers.steamunifiedmessages.SteamUnifiedMe
 import in.dragonbra.javasteam.steam.handlers.steamuser.SteamUser;
 import in.dragonbra.javasteam.steam.handlers.steamuserstats.SteamUserStats;
 import in.dragonbra.javasteam.steam.handlers.steamworkshop.SteamWorkshop;
+import in.dragonbra.javasteam.steam.steamclient.callbackmgr.CallbackMsg;
+import in.dragonbra.javasteam.steam.steamclient.callbacks.ConnectedCallback;
+import in.dragonbra.javasteam.steam.steamclient.callbacks.DisconnectedCallback;
+import in.dragonbra.javasteam.steam.steamclient.configuration.SteamConfiguration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.Set;
 
 class SteamClientTest {
 
@@ -123,10 +133,143 @@ class SteamClientTest {
         Assertions.assertEquals(0, jobID.getBoxID());
     }
 
+    @Test
+    public void messagesAreRoutedToDeclaringHandlers() {
+        var catchAll = new CountingMsgHandler();
+        var routed = new RoutedMsgHandler();
+        client.addHandler(catchAll);
+        client.addHandler(routed);
+
+        client.receiveTestPacketMsg(CMClient.getPacketMsg(TestPackets.getPacket(EMsg.ClientWalletInfoUpdate, true)));
+        client.receiveTestPacketMsg(CMClient.getPacketMsg(TestPackets.getPacket(EMsg.ClientClanState, true)));
+
+        Assertions.assertEquals(2, catchAll.count);
+        Assertions.assertEquals(1, routed.count);
+    }
+
+    @Test
+    public void removedHandlerIsNotRoutedTo() {
+        var routed = new RoutedMsgHandler();
+        client.addHandler(routed);
+        client.removeHandler(routed);
+
+        client.receiveTestPacketMsg(CMClient.getPacketMsg(TestPackets.getPacket(EMsg.ClientWalletInfoUpdate, true)));
+
+        Assertions.assertEquals(0, routed.count);
+    }
+
+    @Test
+    public void postCallbackTracksQueueDepth() {
+        client.postCallback(new ConnectedCallback());
+        client.postCallback(new DisconnectedCallback(true));
+        Assertions.assertEquals(2, client.getCallbackQueueDepth());
+
+        Assertions.assertInstanceOf(ConnectedCallback.class, client.getCallback());
+        Assertions.assertEquals(1, client.getCallbackQueueDepth());
+
+        Assertions.assertInstanceOf(DisconnectedCallback.class, client.waitForCallback());
+        Assertions.assertEquals(0, client.getCallbackQueueDepth());
+        Assertions.assertEquals(0L, client.getDroppedCallbacks());
+    }
+
+    @Test
+    public void fullQueueDropsNewestCallback() {
+        client = createClient(new CallbackQueueOptions(1, CallbackQueueOverflow.DROP_NEWEST));
+
+        client.postCallback(new ConnectedCallback());
+        client.postCallback(new DisconnectedCallback(true));
+
+        Assertions.assertEquals(1, client.getCallbackQueueDepth());
+        Assertions.assertEquals(1L, client.getDroppedCallbacks());
+        Assertions.assertInstanceOf(ConnectedCallback.class, client.getCallback());
+        Assertions.assertNull(client.getCallback());
+    }
+
+    @Test
+    public void fullQueueDropsOldestCallback() {
+        client = createClient(new CallbackQueueOptions(1, CallbackQueueOverflow.DROP_OLDEST));
+
+        client.postCallback(new ConnectedCallback());
+        client.postCallback(new DisconnectedCallback(true));
+
+        Assertions.assertEquals(1, client.getCallbackQueueDepth());
+        Assertions.assertEquals(1L, client.getDroppedCallbacks());
+        Assertions.assertInstanceOf(DisconnectedCallback.class, client.getCallback());
+        Assertions.assertNull(client.getCallback());
+    }
+
+    @Test
+    public void fullQueueDropsDroppableTypes() {
+        client = createClient(new CallbackQueueOptions(
+                1, CallbackQueueOverflow.DROP_OLDEST, Set.of(DisconnectedCallback.class)));
+
+        client.postCallback(new ConnectedCallback());
+        client.postCallback(new DisconnectedCallback(true));
+
+        Assertions.assertEquals(1L, client.getDroppedCallbacks());
+        Assertions.assertInstanceOf(ConnectedCallback.class, client.getCallback());
+    }
+
+    @Test
+    public void drainCallbacksHandsOverUpToMax() {
+        client.postCallback(new ConnectedCallback());
+        client.postCallback(new DisconnectedCallback(true));
+        client.postCallback(new DisconnectedCallback(false));
+
+        var drained = new ArrayList<CallbackMsg>();
+        Assertions.assertEquals(2, client.drainCallbacks(2, 1000L, drained::add));
+        Assertions.assertInstanceOf(ConnectedCallback.class, drained.get(0));
+        Assertions.assertInstanceOf(DisconnectedCallback.class, drained.get(1));
+
+        Assertions.assertEquals(1, client.drainCallbacks(2, 1000L, drained::add));
+        Assertions.assertEquals(0, client.getCallbackQueueDepth());
+    }
+
+    @Test
+    public void drainCallbacksReturnsZeroAfterTimeout() {
+        Assertions.assertEquals(0, client.drainCallbacks(10, 50L, callback -> Assertions.fail()));
+        Assertions.assertNull(client.waitForCallback(50L));
+    }
+
+    @Test
+    public void waitForCallbackWakesWhenCallbackIsPosted() throws InterruptedException {
+        var poster = new Thread(() -> {
+            try {
+                Thread.sleep(50L);
+            } catch (InterruptedException ignored) {
+            }
+            client.postCallback(new ConnectedCallback());
+        });
+        poster.start();
+
+        Assertions.assertInstanceOf(ConnectedCallback.class, client.waitForCallback(5000L));
+        poster.join();
+    }
+
+    private static SteamClient createClient(CallbackQueueOptions options) {
+        return new SteamClient(SteamConfiguration.create(builder -> builder.withCallbackQueueOptions(options)));
+    }
+
     static class TestMsgHandler extends ClientMsgHandler {
         @Override
         public void handleMsg(IPacketMsg packetMsg) {
             // nothing
         }
     }
+
+    static class CountingMsgHandler extends ClientMsgHandler {
+        int count;
+
+        @Override
+        public void handleMsg(IPacketMsg packetMsg) {
+            count++;
+        }
+    }
+
+    static class RoutedMsgHandler extends CountingMsgHandler {
+        @Override
+        public Set<EMsg> getHandledMessages() {
+            return EnumSet.of(EMsg.ClientWalletInfoUpdate);
+        }
+    }
 }
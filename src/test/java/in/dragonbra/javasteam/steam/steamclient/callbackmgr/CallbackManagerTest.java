@@ -204,6 +204,53 @@ public class CallbackManagerTest extends TestBase {
         }
     }
 
+    @Test
+    public void postedCallbackTriggersActionForSupertypes() {
+        var callback = new DerivedCallbackForTest();
+
+        var baseCalls = new AtomicInteger(0);
+        var derivedCalls = new AtomicInteger(0);
+        var allCalls = new AtomicInteger(0);
+
+        try (var ignored1 = mgr.subscribe(CallbackForTest.class, cb -> baseCalls.incrementAndGet());
+             var ignored2 = mgr.subscribe(DerivedCallbackForTest.class, cb -> derivedCalls.incrementAndGet());
+             var ignored3 = mgr.subscribe(CallbackMsg.class, cb -> allCalls.incrementAndGet())) {
+            postAndRunCallback(callback);
+            postAndRunCallback(new CallbackForTest());
+        } catch (IOException e) {
+            logger.error(e);
+        }
+
+        Assertions.assertEquals(2, baseCalls.get());
+        Assertions.assertEquals(1, derivedCalls.get());
+        Assertions.assertEquals(2, allCalls.get());
+    }
+
+    @Test
+    public void disposedJobSubscriptionDoesNotAffectOtherJobs() {
+        var firstCalls = new AtomicInteger(0);
+        var secondCalls = new AtomicInteger(0);
+
+        var first = mgr.subscribe(CallbackForTest.class, new JobID(1), cb -> firstCalls.incrementAndGet());
+        var second = mgr.subscribe(CallbackForTest.class, new JobID(1), cb -> secondCalls.incrementAndGet());
+
+        try {
+            first.close();
+
+            var callback = new CallbackForTest();
+            callback.setJobID(new JobID(1));
+            postAndRunCallback(callback);
+
+            second.close();
+            postAndRunCallback(callback);
+        } catch (IOException e) {
+            logger.error(e);
+        }
+
+        Assertions.assertEquals(0, firstCalls.get());
+        Assertions.assertEquals(1, secondCalls.get());
+    }
+
     private void postAndRunCallback(CallbackMsg callback) {
         client.postCallback(callback);
         mgr.runCallbacks();
@@ -225,4 +272,7 @@ public class CallbackManagerTest extends TestBase {
         }
     }
 
+    public static class DerivedCallbackForTest extends CallbackForTest {
+    }
+
 }
@@ -3,8 +3,15 @@ package in.dragonbra.javasteam.steam.steamclient.configuration;
 import in.dragonbra.javasteam.enums.EClientPersonaStateFlag;
 import in.dragonbra.javasteam.enums.EUniverse;
 import in.dragonbra.javasteam.networking.steam3.ProtocolTypes;
+import in.dragonbra.javasteam.networking.steam3.TcpEventLoopGroup;
+import in.dragonbra.javasteam.networking.steam3.TcpSocketOptions;
+import in.dragonbra.javasteam.networking.steam3.WebSocketClientEngine;
 import in.dragonbra.javasteam.steam.discovery.IServerListProvider;
 import in.dragonbra.javasteam.steam.discovery.ServerRecord;
+import in.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions;
+import in.dragonbra.javasteam.steam.steamclient.CallbackQueueOverflow;
+import in.dragonbra.javasteam.steam.steamclient.ClientThreading;
+import in.dragonbra.javasteam.steam.steamclient.callbacks.ConnectedCallback;
 import okhttp3.OkHttpClient;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +20,8 @@ import org.junit.jupiter.api.Test;
 import java.time.Instant;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,6 +29,10 @@ import java.util.concurrent.TimeUnit;
  */
 public class SteamConfigurationConfiguredObjectTest {
 
+    private static final ClientThreading THREADING = ClientThreading.fromExecutor(Runnable::run);
+
+    private static final Executor INBOUND_MESSAGE_EXECUTOR = Runnable::run;
+
     private final SteamConfiguration configuration = SteamConfiguration.create(builder ->
             builder.withDirectoryFetch(false)
                     .withCellID(123)
@@ -28,9 +41,16 @@ public class SteamConfigurationConfiguredObjectTest {
                     .withHttpClient(new OkHttpClient.Builder().connectTimeout(1, TimeUnit.MINUTES).build())
                     .withProtocolTypes(EnumSet.of(ProtocolTypes.WEB_SOCKET, ProtocolTypes.UDP))
                     .withServerListProvider(new CustomServerListProvider())
+                    .withTcpEventLoopGroup(TcpEventLoopGroup.getDefault())
+                    .withTcpSocketOptions(new TcpSocketOptions(false, 65536, 131072))
                     .withUniverse(EUniverse.Internal)
                     .withWebAPIBaseAddress("https://foo.bar.com/api/")
                     .withWebAPIKey("T0PS3kR1t")
+                    .withWebSocketClientEngine(new WebSocketClientEngine(10000L, 16))
+                    .withCallbackQueueOptions(new CallbackQueueOptions(
+                            256, CallbackQueueOverflow.DROP_OLDEST, Set.of(ConnectedCallback.class), false))
+                    .withThreading(THREADING)
+                    .withInboundMessageExecutor(INBOUND_MESSAGE_EXECUTOR)
     );
 
     @Test
@@ -78,6 +98,45 @@ public class SteamConfigurationConfiguredObjectTest {
         Assertions.assertEquals(EnumSet.of(ProtocolTypes.WEB_SOCKET, ProtocolTypes.UDP), configuration.getProtocolTypes());
     }
 
+    @Test
+    public void TcpEventLoopGroupIsConfigured() {
+        Assertions.assertSame(TcpEventLoopGroup.getDefault(), configuration.getTcpEventLoopGroup());
+    }
+
+    @Test
+    public void TcpSocketOptionsAreConfigured() {
+        var socketOptions = configuration.getTcpSocketOptions();
+        Assertions.assertFalse(socketOptions.isTcpNoDelay());
+        Assertions.assertEquals(65536, socketOptions.getSendBufferSize());
+        Assertions.assertEquals(131072, socketOptions.getReceiveBufferSize());
+    }
+
+    @Test
+    public void WebSocketClientEngineIsConfigured() {
+        var engine = configuration.getWebSocketClientEngine();
+        Assertions.assertEquals(10000L, engine.getPingIntervalMillis());
+        Assertions.assertEquals(16, engine.getOutboundQueueCapacity());
+    }
+
+    @Test
+    public void CallbackQueueOptionsAreConfigured() {
+        var options = configuration.getCallbackQueueOptions();
+        Assertions.assertEquals(256, options.getCapacity());
+        Assertions.assertEquals(CallbackQueueOverflow.DROP_OLDEST, options.getOverflow());
+        Assertions.assertEquals(Set.of(ConnectedCallback.class), options.getDroppableTypes());
+        Assertions.assertFalse(options.getQueueJobCallbacks());
+    }
+
+    @Test
+    public void InboundMessageExecutorIsConfigured() {
+        Assertions.assertSame(INBOUND_MESSAGE_EXECUTOR, configuration.getInboundMessageExecutor());
+    }
+
+    @Test
+    public void ThreadingIsConfigured() {
+        Assertions.assertSame(THREADING, configuration.getThreading());
+    }
+
     @Test
     public void UniverseIsConfigured() {
         Assertions.assertEquals(EUniverse.Internal, configuration.getUniverse());
@@ -3,7 +3,11 @@ package in.dragonbra.javasteam.steam.steamclient.configuration;
 import in.dragonbra.javasteam.enums.EClientPersonaStateFlag;
 import in.dragonbra.javasteam.enums.EUniverse;
 import in.dragonbra.javasteam.networking.steam3.ProtocolTypes;
+import in.dragonbra.javasteam.networking.steam3.TcpSocketOptions;
+import in.dragonbra.javasteam.networking.steam3.WebSocketClientEngine;
 import in.dragonbra.javasteam.steam.discovery.MemoryServerListProvider;
+import in.dragonbra.javasteam.steam.steamclient.CallbackQueueOptions;
+import in.dragonbra.javasteam.steam.steamclient.ClientThreading;
 import okhttp3.OkHttpClient;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -70,6 +74,37 @@ public class SteamConfigurationDefaultTest {
         Assertions.assertEquals(EnumSet.of(ProtocolTypes.TCP, ProtocolTypes.WEB_SOCKET), configuration.getProtocolTypes());
     }
 
+    @Test
+    public void noTcpEventLoopGroup() {
+        Assertions.assertNull(configuration.getTcpEventLoopGroup());
+    }
+
+    @Test
+    public void defaultTcpSocketOptions() {
+        Assertions.assertSame(TcpSocketOptions.DEFAULT, configuration.getTcpSocketOptions());
+    }
+
+    @Test
+    public void sharedWebSocketClientEngine() {
+        Assertions.assertSame(WebSocketClientEngine.getDefault(), configuration.getWebSocketClientEngine());
+    }
+
+    @Test
+    public void unboundedCallbackQueue() {
+        Assertions.assertSame(CallbackQueueOptions.DEFAULT, configuration.getCallbackQueueOptions());
+        Assertions.assertEquals(CallbackQueueOptions.UNBOUNDED, configuration.getCallbackQueueOptions().getCapacity());
+    }
+
+    @Test
+    public void inboundMessagesHandledOnConnectionThread() {
+        Assertions.assertNull(configuration.getInboundMessageExecutor());
+    }
+
+    @Test
+    public void defaultThreading() {
+        Assertions.assertSame(ClientThreading.DEFAULT, configuration.getThreading());
+    }
+
     @Test
     public void publicUniverse() {
         Assertions.assertEquals(EUniverse.Public, configuration.getUniverse());
@@ -0,0 +1,118 @@
+package in.dragonbra.javasteam.types;
+
+import in.dragonbra.javasteam.enums.EDepotFileFlag;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class DepotManifestDiffTest {
+
+    @Test
+    public void classifiesFilesByName() {
+        var previous = manifest(
+                file("changed", 1, 1, 2),
+                file("unchanged", 1, 3),
+                file("removed", 1, 4)
+        );
+        var current = manifest(
+                file("changed", 2, 1, 5),
+                file("unchanged", 1, 3),
+                file("added", 1, 4)
+        );
+
+        var diff = current.diff(previous);
+
+        Assertions.assertEquals(List.of("added"), names(diff.getAdded()));
+        Assertions.assertEquals(List.of("removed"), names(diff.getRemoved()));
+        Assertions.assertEquals(List.of("changed"), names(diff.getChanged()));
+        Assertions.assertEquals(List.of("unchanged"), names(diff.getUnchanged()));
+    }
+
+    @Test
+    public void findsReusableChunksAcrossFiles() {
+        var previous = manifest(file("a", 1, 1, 2), file("b", 1, 3));
+        var current = manifest(file("a", 2, 1, 4), file("c", 1, 3));
+
+        var diff = current.diff(previous);
+
+        Assertions.assertEquals(Set.of(ChunkID.of(chunkId(1)), ChunkID.of(chunkId(3))), diff.getReusableChunks());
+    }
+
+    @Test
+    public void indexesChunksOfPreviousFile() {
+        var previous = manifest(file("a", 1, 1, 2));
+        var current = manifest(file("a", 2, 2, 3), file("b", 1, 1));
+
+        var diff = current.diff(previous);
+        var changedFile = current.getFiles().get(0);
+
+        Assertions.assertSame(previous.getFiles().get(0), diff.getPreviousFile(changedFile));
+
+        var previousChunks = diff.getPreviousChunks(changedFile);
+        Assertions.assertEquals(2, previousChunks.size());
+        Assertions.assertSame(previous.getFiles().get(0).getChunks().get(1), previousChunks.get(ChunkID.of(chunkId(2))));
+        Assertions.assertNull(previousChunks.get(ChunkID.of(chunkId(3))));
+
+        var addedFile = current.getFiles().get(1);
+        Assertions.assertNull(diff.getPreviousFile(addedFile));
+        Assertions.assertTrue(diff.getPreviousChunks(addedFile).isEmpty());
+    }
+
+    @Test
+    public void withoutPreviousManifestEveryFileIsAdded() {
+        var current = manifest(file("a", 1, 1), file("b", 1, 2));
+
+        var diff = current.diff(null);
+
+        Assertions.assertEquals(List.of("a", "b"), names(diff.getAdded()));
+        Assertions.assertTrue(diff.getRemoved().isEmpty());
+        Assertions.assertTrue(diff.getChanged().isEmpty());
+        Assertions.assertTrue(diff.getReusableChunks().isEmpty());
+    }
+
+    @Test
+    public void chunkIdComparesByContent() {
+        var id = ChunkID.of(chunkId(7));
+
+        Assertions.assertEquals(id, ChunkID.of(chunkId(7)));
+        Assertions.assertEquals(id.hashCode(), ChunkID.of(chunkId(7)).hashCode());
+        Assertions.assertNotEquals(id, ChunkID.of(chunkId(8)));
+        Assertions.assertArrayEquals(chunkId(7), id.toByteArray());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChunkID.of(new byte[16]));
+    }
+
+    private static DepotManifest manifest(FileData... files) {
+        var manifest = new DepotManifest();
+        manifest.setFiles(new ArrayList<>(List.of(files)));
+        return manifest;
+    }
+
+    private static FileData file(String name, int hash, int... chunkIds) {
+        var chunks = new ArrayList<ChunkData>();
+        long offset = 0;
+        for (int chunkId : chunkIds) {
+            chunks.add(new ChunkData(chunkId(chunkId), 0, offset, 0, 1024));
+            offset += 1024;
+        }
+
+        return new FileData(name, new byte[0], chunks, EnumSet.noneOf(EDepotFileFlag.class), offset,
+                new byte[]{(byte) hash}, null);
+    }
+
+    private static byte[] chunkId(int value) {
+        var id = new byte[ChunkID.SIZE];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = (byte) (value * 31 + i);
+        }
+        return id;
+    }
+
+    private static List<String> names(List<FileData> files) {
+        return files.stream().map(FileData::getFileName).collect(Collectors.toList());
+    }
+}
@@ -67,6 +67,27 @@ public class Adler32Test {
         Assertions.assertEquals(expected, actual);
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 15, 16, 17, 5552, 5552 + 17})
+    void calculatesRangeOfLargerBuffer(int length) {
+        var data = new byte[length + 64];
+        new Random().nextBytes(data);
+
+        var expected = referenceImplementation(1, Arrays.copyOfRange(data, 31, 31 + length));
+        var actual = Adler32.calculate(1, data, 31, length);
+
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void rejectsRangeOutOfBounds() {
+        var data = new byte[16];
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> Adler32.calculate(1, data, -1, 4));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> Adler32.calculate(1, data, 8, 9));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> Adler32.calculate(1, data, 0, -1));
+    }
+
     // Additional benchmarking
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
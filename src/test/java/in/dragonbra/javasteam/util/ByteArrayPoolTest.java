@@ -0,0 +1,61 @@
+package in.dragonbra.javasteam.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void rentRoundsUpToPowerOfTwo() {
+        var pool = new ByteArrayPool();
+
+        Assertions.assertEquals(16, pool.rent(0).length);
+        Assertions.assertEquals(16, pool.rent(16).length);
+        Assertions.assertEquals(32, pool.rent(17).length);
+        Assertions.assertEquals(1024 * 1024, pool.rent(1000 * 1000).length);
+    }
+
+    @Test
+    public void releasedArrayIsReused() {
+        var pool = new ByteArrayPool();
+
+        var array = pool.rent(1000);
+        pool.release(array);
+
+        Assertions.assertSame(array, pool.rent(600));
+    }
+
+    @Test
+    public void foreignArraysAreNotPooled() {
+        var pool = new ByteArrayPool();
+
+        var array = new byte[1000];
+        pool.release(array);
+
+        Assertions.assertNotSame(array, pool.rent(1000));
+    }
+
+    @Test
+    public void oversizedArraysAreNotPooled() {
+        var pool = new ByteArrayPool(1024, 4);
+
+        var array = pool.rent(4096);
+        Assertions.assertEquals(4096, array.length);
+
+        pool.release(array);
+        Assertions.assertNotSame(array, pool.rent(4096));
+    }
+
+    @Test
+    public void bucketsAreBounded() {
+        var pool = new ByteArrayPool(1024, 1);
+
+        var first = pool.rent(64);
+        var second = pool.rent(64);
+        pool.release(first);
+        pool.release(second);
+
+        Assertions.assertSame(first, pool.rent(64));
+        Assertions.assertNotSame(second, pool.rent(64));
+    }
+}
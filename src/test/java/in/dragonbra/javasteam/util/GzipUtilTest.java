@@ -0,0 +1,117 @@
+package in.dragonbra.javasteam.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+public class GzipUtilTest {
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] sample(int length) {
+        var data = new byte[length];
+        var random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            // compressible, but not trivially so
+            data[i] = (byte) (random.nextInt(16) + 'a');
+        }
+        return data;
+    }
+
+    @Test
+    public void decompressMatchesInput() throws IOException {
+        var data = sample(100_000);
+        var compressed = gzip(data);
+
+        var destination = new byte[data.length];
+        var written = GzipUtil.decompress(compressed, 0, compressed.length, destination);
+
+        Assertions.assertEquals(data.length, written);
+        Assertions.assertArrayEquals(data, destination);
+    }
+
+    @Test
+    public void decompressIntoLargerBufferAtOffset() throws IOException {
+        var data = sample(1000);
+        var compressed = gzip(data);
+
+        var input = new byte[compressed.length + 10];
+        System.arraycopy(compressed, 0, input, 5, compressed.length);
+
+        var destination = new byte[4096];
+        var written = GzipUtil.decompress(input, 5, compressed.length, destination);
+
+        Assertions.assertEquals(data.length, written);
+        Assertions.assertArrayEquals(data, Arrays.copyOf(destination, written));
+    }
+
+    @Test
+    public void decompressReusesInflaters() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            var data = sample(100 + i * 37);
+            var compressed = gzip(data);
+            var destination = new byte[data.length];
+
+            Assertions.assertEquals(data.length, GzipUtil.decompress(compressed, 0, compressed.length, destination));
+            Assertions.assertArrayEquals(data, destination);
+        }
+    }
+
+    @Test
+    public void decompressSkipsOptionalHeaderFields() throws IOException {
+        var data = sample(500);
+        var compressed = gzip(data);
+
+        var name = "file.bin\0".getBytes();
+        var withName = new byte[compressed.length + name.length];
+        System.arraycopy(compressed, 0, withName, 0, 10);
+        System.arraycopy(name, 0, withName, 10, name.length);
+        System.arraycopy(compressed, 10, withName, 10 + name.length, compressed.length - 10);
+        withName[3] = 8; // FNAME
+
+        var destination = new byte[data.length];
+        Assertions.assertEquals(data.length, GzipUtil.decompress(withName, 0, withName.length, destination));
+        Assertions.assertArrayEquals(data, destination);
+    }
+
+    @Test
+    public void decompressThrowsWhenDestinationIsTooSmall() throws IOException {
+        var compressed = gzip(sample(1000));
+
+        Assertions.assertThrows(IOException.class, () -> GzipUtil.decompress(compressed, 0, compressed.length, new byte[999]));
+    }
+
+    @Test
+    public void decompressThrowsOnTruncatedData() throws IOException {
+        var compressed = gzip(sample(1000));
+
+        Assertions.assertThrows(IOException.class, () -> GzipUtil.decompress(compressed, 0, compressed.length - 20, new byte[1000]));
+        Assertions.assertThrows(IOException.class, () -> GzipUtil.decompress(compressed, 0, compressed.length - 4, new byte[1000]));
+    }
+
+    @Test
+    public void decompressThrowsOnCorruptChecksum() throws IOException {
+        var compressed = gzip(sample(1000));
+        compressed[compressed.length - 8] ^= 1;
+
+        Assertions.assertThrows(IOException.class, () -> GzipUtil.decompress(compressed, 0, compressed.length, new byte[1000]));
+    }
+
+    @Test
+    public void decompressThrowsOnNonGzipData() {
+        var data = sample(100);
+
+        Assertions.assertThrows(IOException.class, () -> GzipUtil.decompress(data, 0, data.length, new byte[100]));
+    }
+}
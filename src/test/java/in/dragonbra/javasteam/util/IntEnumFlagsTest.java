@@ -0,0 +1,66 @@
+package in.dragonbra.javasteam.util;
+
+import in.dragonbra.javasteam.enums.EChatPermission;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+public class IntEnumFlagsTest {
+
+    private enum Flag {
+        None(0), A(1), B(2), AB(3), C(8);
+
+        private final int code;
+
+        Flag(int code) {
+            this.code = code;
+        }
+    }
+
+    @Test
+    public void decodeIncludesFlagsWithAllBitsSet() {
+        var flags = IntEnumFlags.of(Flag.class, e -> e.code);
+
+        Assertions.assertEquals(EnumSet.of(Flag.None), flags.decode(0));
+        Assertions.assertEquals(EnumSet.of(Flag.None, Flag.A), flags.decode(1));
+        Assertions.assertEquals(EnumSet.of(Flag.None, Flag.A, Flag.B, Flag.AB), flags.decode(3));
+        Assertions.assertEquals(EnumSet.of(Flag.None, Flag.B, Flag.C), flags.decode(10));
+    }
+
+    @Test
+    public void decodeReturnsIndependentSets() {
+        var flags = IntEnumFlags.of(Flag.class, e -> e.code);
+
+        var first = flags.decode(1);
+        first.add(Flag.C);
+
+        Assertions.assertEquals(EnumSet.of(Flag.None, Flag.A), flags.decode(1));
+        Assertions.assertNotSame(flags.decode(1), flags.decode(1));
+    }
+
+    @Test
+    public void encodeCombinesBits() {
+        var flags = IntEnumFlags.of(Flag.class, e -> e.code);
+
+        Assertions.assertEquals(0, flags.encode(EnumSet.noneOf(Flag.class)));
+        Assertions.assertEquals(11, flags.encode(EnumSet.of(Flag.A, Flag.B, Flag.C)));
+    }
+
+    @Test
+    public void generatedFlagsRoundTrip() {
+        for (int code = 0; code < 4096; code++) {
+            var expected = EnumSet.noneOf(EChatPermission.class);
+            for (EChatPermission e : EChatPermission.values()) {
+                if ((e.code() & code) == e.code()) {
+                    expected.add(e);
+                }
+            }
+
+            Assertions.assertEquals(expected, EChatPermission.from(code));
+        }
+
+        Assertions.assertEquals(EChatPermission.code(EChatPermission.OwnerDefault),
+                EChatPermission.code(EChatPermission.from(EChatPermission.code(EChatPermission.OwnerDefault))));
+    }
+}
@@ -0,0 +1,121 @@
+package in.dragonbra.javasteam.util;
+
+import in.dragonbra.javasteam.enums.EMsg;
+import in.dragonbra.javasteam.enums.EResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class IntEnumLookupTest {
+
+    private enum Dense {
+        A(1), B(2), C(2), D(5);
+
+        private final int code;
+
+        Dense(int code) {
+            this.code = code;
+        }
+    }
+
+    private enum Sparse {
+        A(-1_000_000), B(0), C(7), D(1_000_000), E(Integer.MAX_VALUE), F(Integer.MIN_VALUE), G(7);
+
+        private final int code;
+
+        Sparse(int code) {
+            this.code = code;
+        }
+    }
+
+    private static EMsg referenceImplementation(int code) {
+        for (EMsg e : EMsg.values()) {
+            if (e.code() == code) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void denseLookup() {
+        var lookup = IntEnumLookup.of(Dense.class, e -> e.code);
+
+        Assertions.assertEquals(Dense.A, lookup.get(1));
+        Assertions.assertEquals(Dense.B, lookup.get(2));
+        Assertions.assertEquals(Dense.D, lookup.get(5));
+        Assertions.assertNull(lookup.get(0));
+        Assertions.assertNull(lookup.get(3));
+        Assertions.assertNull(lookup.get(6));
+        Assertions.assertNull(lookup.get(Integer.MIN_VALUE));
+        Assertions.assertNull(lookup.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void sparseLookup() {
+        var lookup = IntEnumLookup.of(Sparse.class, e -> e.code);
+
+        for (Sparse e : Sparse.values()) {
+            Assertions.assertEquals(e == Sparse.G ? Sparse.C : e, lookup.get(e.code));
+        }
+
+        Assertions.assertNull(lookup.get(1));
+        Assertions.assertNull(lookup.get(-1));
+        Assertions.assertNull(lookup.get(999_999));
+    }
+
+    @Test
+    public void generatedLookupMatchesLinearScan() {
+        for (int code = -10; code < 20_000; code++) {
+            Assertions.assertEquals(referenceImplementation(code), EMsg.from(code));
+        }
+
+        for (EResult e : EResult.values()) {
+            Assertions.assertEquals(e.code(), EResult.from(e.code()).code());
+        }
+    }
+
+    // Additional benchmarking
+
+    @Test
+    void benchmarkMessageLookup() {
+        final int iterations = 2_000_000;
+
+        var constants = EMsg.values();
+        var codes = new int[1024];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = constants[(i * 7919) % constants.length].code();
+        }
+
+        // Warmup
+        for (int i = 0; i < 100_000; i++) {
+            referenceImplementation(codes[i & 1023]);
+            EMsg.from(codes[i & 1023]);
+        }
+
+        // Benchmark reference implementation
+        int sink = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations / 100; i++) {
+            sink += referenceImplementation(codes[i & 1023]).ordinal();
+        }
+        long referenceTime = (System.nanoTime() - startTime) * 100;
+
+        // Benchmark lookup table
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += EMsg.from(codes[i & 1023]).ordinal();
+        }
+        long optimizedTime = System.nanoTime() - startTime;
+
+        double speedup = (double) referenceTime / optimizedTime;
+
+        System.out.printf("EMsg.from Benchmark (%d constants, %d lookups, checksum %d):%n", constants.length, iterations, sink);
+        System.out.printf("Linear scan: %.1f ns/lookup%n", (double) referenceTime / iterations);
+        System.out.printf("Lookup table: %.1f ns/lookup%n", (double) optimizedTime / iterations);
+        System.out.printf("Speedup: %.2fx%n", speedup);
+        System.out.println();
+
+        Assertions.assertTrue(speedup > 1.0,
+                String.format("Expected the lookup table to beat the linear scan, but speedup was only %.2fx", speedup));
+    }
+}
@@ -0,0 +1,60 @@
+package in.dragonbra.javasteam.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void putGetRemove() {
+        var map = new LongObjectMap<String>();
+
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertNull(map.put(1L, "a"));
+        Assertions.assertNull(map.put(Long.MAX_VALUE, "b"));
+        Assertions.assertEquals("a", map.put(1L, "c"));
+
+        Assertions.assertEquals(2, map.getSize());
+        Assertions.assertEquals("c", map.get(1L));
+        Assertions.assertEquals("b", map.get(Long.MAX_VALUE));
+        Assertions.assertNull(map.get(2L));
+
+        Assertions.assertEquals("c", map.remove(1L));
+        Assertions.assertNull(map.remove(1L));
+        Assertions.assertFalse(map.containsKey(1L));
+        Assertions.assertEquals(1, map.getSize());
+
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertNull(map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        var map = new LongObjectMap<Long>(0);
+        var reference = new HashMap<Long, Long>();
+        var random = new Random(1);
+
+        for (int i = 0; i < 100_000; i++) {
+            // few distinct keys, so probe sequences collide and removals shift entries
+            long key = random.nextInt(2000) * 4096L - 1_000_000L;
+
+            if (random.nextInt(3) < 2) {
+                Assertions.assertEquals(reference.put(key, key), map.put(key, key));
+            } else {
+                Assertions.assertEquals(reference.remove(key), map.remove(key));
+            }
+
+            Assertions.assertEquals(reference.size(), map.getSize());
+        }
+
+        for (var entry : reference.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+
+        Assertions.assertEquals(reference.size(), map.values().size());
+    }
+}
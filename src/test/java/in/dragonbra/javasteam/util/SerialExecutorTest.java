@@ -0,0 +1,188 @@
+package in.dragonbra.javasteam.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SerialExecutorTest {
+
+    @Test
+    public void runsTasksInOrderOneAtATime() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try {
+            int executors = 8;
+            int tasks = 10_000;
+
+            var serialExecutors = new ArrayList<SerialExecutor>();
+            var results = new ArrayList<List<Integer>>();
+            var running = new ArrayList<AtomicBoolean>();
+            var overlapped = new AtomicBoolean();
+            var done = new CountDownLatch(executors);
+
+            for (int i = 0; i < executors; i++) {
+                serialExecutors.add(new SerialExecutor(pool));
+                results.add(new ArrayList<>());
+                running.add(new AtomicBoolean());
+            }
+
+            for (int task = 0; task < tasks; task++) {
+                for (int i = 0; i < executors; i++) {
+                    var result = results.get(i);
+                    var active = running.get(i);
+                    int value = task;
+
+                    serialExecutors.get(i).execute(() -> {
+                        if (!active.compareAndSet(false, true)) {
+                            overlapped.set(true);
+                        }
+                        result.add(value);
+                        active.set(false);
+
+                        if (value == tasks - 1) {
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+
+            Assertions.assertTrue(done.await(30, TimeUnit.SECONDS));
+            Assertions.assertFalse(overlapped.get());
+
+            for (var result : results) {
+                Assertions.assertEquals(tasks, result.size());
+                for (int task = 0; task < tasks; task++) {
+                    Assertions.assertEquals(task, (int) result.get(task));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slowTaskOnlyDelaysItsOwnExecutor() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try {
+            var slow = new SerialExecutor(pool);
+            var fast = new SerialExecutor(pool);
+
+            var release = new CountDownLatch(1);
+            var slowDone = new CountDownLatch(1);
+            var fastDone = new CountDownLatch(1);
+
+            slow.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            slow.execute(slowDone::countDown);
+            fast.execute(fastDone::countDown);
+
+            Assertions.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, slowDone.getCount());
+            Assertions.assertEquals(1, slow.getStats().getQueuedTasks());
+
+            release.countDown();
+
+            Assertions.assertTrue(slowDone.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failingTaskDoesNotStopLaterTasks() {
+        var executor = new SerialExecutor(Runnable::run);
+        var counter = new AtomicInteger();
+
+        executor.execute(() -> {
+            throw new IllegalStateException("test");
+        });
+        executor.execute(counter::incrementAndGet);
+
+        Assertions.assertEquals(1, counter.get());
+        Assertions.assertEquals(2, executor.getStats().getCompletedTasks());
+    }
+
+    @Test
+    public void statsMeasureWaitAndRunTime() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        try {
+            var executor = new SerialExecutor(pool);
+            var release = new CountDownLatch(1);
+            var done = new CountDownLatch(2);
+
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                sleep(20);
+                done.countDown();
+            });
+            executor.execute(done::countDown);
+
+            // the second task is queued before the first one can finish
+            release.countDown();
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            // the stats of a task are recorded right after it returns
+            var stats = executor.getStats();
+            for (int i = 0; i < 100 && stats.getCompletedTasks() < 2; i++) {
+                sleep(10);
+                stats = executor.getStats();
+            }
+
+            Assertions.assertEquals(2, stats.getCompletedTasks());
+            Assertions.assertEquals(0, stats.getQueuedTasks());
+            Assertions.assertTrue(stats.getMaxRunNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            // the second task waited for the first one
+            Assertions.assertTrue(stats.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void runsTasksOnCallingThreadAfterShutdown() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        pool.shutdown();
+
+        var executor = new SerialExecutor(pool);
+        var results = new ArrayList<Integer>();
+        var caller = Thread.currentThread();
+
+        executor.execute(() -> results.add(1));
+        executor.execute(() -> results.add(caller == Thread.currentThread() ? 2 : -1));
+
+        Assertions.assertEquals(List.of(1, 2), results);
+        Assertions.assertEquals(0, executor.getStats().getQueuedTasks());
+        Assertions.assertEquals(2, executor.getStats().getCompletedTasks());
+    }
+
+    @Test
+    public void rejectsNullExecutor() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SerialExecutor(null));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
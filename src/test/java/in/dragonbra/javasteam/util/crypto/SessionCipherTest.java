@@ -0,0 +1,70 @@
+package in.dragonbra.javasteam.util.crypto;
+
+import in.dragonbra.javasteam.TestBase;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SessionCipherTest extends TestBase {
+
+    private static final byte[] KEY = CryptoHelper.generateRandomBlock(32);
+
+    @Test
+    public void matchesCryptoHelper() throws CryptoException {
+        var encryptor = SessionCipher.forEncryption(KEY);
+        var decryptor = SessionCipher.forDecryption(KEY);
+
+        for (int length : new int[]{0, 5, 16, 100}) {
+            byte[] input = CryptoHelper.generateRandomBlock(length);
+            byte[] iv = CryptoHelper.generateRandomBlock(16);
+
+            byte[] encrypted = encryptor.encrypt(input, iv);
+
+            assertEquals(SessionCipher.getEncryptedLength(length), encrypted.length);
+            assertArrayEquals(CryptoHelper.symmetricEncryptWithIV(input, KEY, iv), encrypted);
+            assertArrayEquals(input, decryptor.decrypt(encrypted));
+            assertArrayEquals(iv, decryptor.getLastIV());
+        }
+    }
+
+    @Test
+    public void encryptsAndDecryptsIntoBuffers() throws CryptoException {
+        var encryptor = SessionCipher.forEncryption(KEY);
+        var decryptor = SessionCipher.forDecryption(KEY);
+
+        byte[] input = CryptoHelper.generateRandomBlock(40);
+        byte[] iv = CryptoHelper.generateRandomBlock(16);
+
+        var encrypted = ByteBuffer.allocate(128);
+        int written = encryptor.encrypt(ByteBuffer.wrap(input), iv, encrypted);
+        assertEquals(SessionCipher.getEncryptedLength(input.length), written);
+        encrypted.flip();
+
+        var decrypted = ByteBuffer.allocateDirect(128);
+        int length = decryptor.decrypt(encrypted, decrypted);
+        decrypted.flip();
+
+        byte[] result = new byte[length];
+        decrypted.get(result);
+        assertArrayEquals(input, result);
+    }
+
+    @Test
+    public void rejectsWrongDirection() throws CryptoException {
+        var encryptor = SessionCipher.forEncryption(KEY);
+
+        assertThrows(IllegalStateException.class, () -> encryptor.decrypt(new byte[32]));
+    }
+
+    @Test
+    public void rejectsShortInput() throws CryptoException {
+        var decryptor = SessionCipher.forDecryption(KEY);
+
+        assertThrows(CryptoException.class, () -> decryptor.decrypt(Arrays.copyOf(KEY, 8)));
+    }
+}
@@ -0,0 +1,107 @@
+package in.dragonbra.javasteam.util.event;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ScheduledFunctionTest {
+
+    @Test
+    void runsImmediatelyAndPeriodically() throws InterruptedException {
+        var latch = new CountDownLatch(3);
+        var func = new ScheduledFunction(latch::countDown, 10);
+
+        func.start();
+        try {
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            func.stop();
+        }
+    }
+
+    @Test
+    void stopCancelsTheTask() throws InterruptedException {
+        var count = new AtomicInteger();
+        var func = new ScheduledFunction(count::incrementAndGet, 10);
+
+        func.start();
+        Assertions.assertTrue(func.isStarted());
+        Thread.sleep(50);
+        func.stop();
+        Assertions.assertFalse(func.isStarted());
+
+        Thread.sleep(20);
+        int stopped = count.get();
+        Thread.sleep(100);
+
+        Assertions.assertEquals(stopped, count.get());
+    }
+
+    @Test
+    void setDelayReschedulesStartedFunction() throws InterruptedException {
+        var count = new AtomicInteger();
+        var func = new ScheduledFunction(count::incrementAndGet, 10);
+
+        func.start();
+        Thread.sleep(50);
+        func.setDelay(60_000);
+
+        Thread.sleep(20);
+        int rescheduled = count.get();
+        Thread.sleep(100);
+
+        Assertions.assertEquals(60_000, func.getDelay());
+        Assertions.assertTrue(func.isStarted());
+        Assertions.assertEquals(rescheduled, count.get());
+
+        func.stop();
+    }
+
+    @Test
+    void exceptionsDoNotCancelTheTask() throws InterruptedException {
+        var latch = new CountDownLatch(3);
+        var func = new ScheduledFunction(() -> {
+            latch.countDown();
+            throw new IllegalStateException("test");
+        }, 10);
+
+        func.start();
+        try {
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            func.stop();
+        }
+    }
+
+    @Test
+    void functionsShareTheSchedulerThreads() throws InterruptedException {
+        var functions = new ArrayList<ScheduledFunction>();
+        var latch = new CountDownLatch(500);
+
+        // make sure the shared scheduler threads exist before counting
+        var warmup = new CountDownLatch(1);
+        var first = new ScheduledFunction(warmup::countDown, 1000);
+        first.start();
+        Assertions.assertTrue(warmup.await(5, TimeUnit.SECONDS));
+        first.stop();
+
+        int threadsBefore = Thread.activeCount();
+
+        for (int i = 0; i < 500; i++) {
+            var func = new ScheduledFunction(latch::countDown, 60_000);
+            functions.add(func);
+            func.start();
+        }
+
+        try {
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(Thread.activeCount() <= threadsBefore + 2);
+        } finally {
+            functions.forEach(ScheduledFunction::stop);
+        }
+    }
+}